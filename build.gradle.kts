@@ -8,6 +8,7 @@ plugins {
     id("java")
     id("maven-publish")
     id("com.jfrog.artifactory") version "6.0.0+"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "com.shailist.hytale"
@@ -25,6 +26,9 @@ dependencies {
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    // Object layouts and footprints for the benchmarks, see SlottedStorageFootprint.
+    jmh("org.openjdk.jol:jol-core:0.17")
 }
 
 java {
@@ -36,6 +40,28 @@ tasks.test {
     useJUnitPlatform()
 }
 
+// Run the whole suite again in the optimistic concurrency mode, which also enables the tests that need it.
+val testOptimistic by tasks.registering(Test::class) {
+    description = "Runs the tests with the optimistic transaction concurrency mode."
+    group = LifecycleBasePlugin.VERIFICATION_GROUP
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform()
+    systemProperty("hytale.transfer.transaction.concurrency", "optimistic")
+}
+
+tasks.check {
+    dependsOn(testOptimistic)
+}
+
+// Benchmarks live in src/jmh/java and can be run with `./gradlew jmh`.
+jmh {
+    // Benchmarks reuse the string variants and storages from the test utilities.
+    includeTests.set(true)
+    // Report allocations per operation (gc.alloc.rate.norm) next to the timings.
+    profilers.add("gc")
+}
+
 // Use default javadoc doclint settings (strict) so we can surface missing tags and improve docs.
 
 // Register common custom Javadoc tags so we can use tags such as @apiNote and @implSpec
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.test.transfer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.test.transfer.unittests.utils.SingleStringStorage;
+import com.shailist.hytale.test.transfer.unittests.utils.StringVariant;
+
+import static com.shailist.hytale.test.transfer.unittests.utils.StringConstants.*;
+
+/**
+ * Nested insertions and extractions on a {@link com.shailist.hytale.api.transfer.v1.storage.base.SingleVariantStorage}.
+ * Run with the {@code gc} profiler, {@code gc.alloc.rate.norm} should be 0 bytes per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SingleVariantStorageBenchmark {
+    private SingleStringStorage storage;
+    private StringVariant hello;
+
+    @Setup
+    public void setup() {
+        storage = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        hello = StringVariant.of(HELLO);
+        // Never let the storage become empty, so that the benchmark doesn't measure the creation of blank test variants.
+        storage.variant = hello;
+        storage.amount = UNIT_BUCKET;
+    }
+
+    @Benchmark
+    public long nestedInsertCommit() {
+        try (Transaction outer = Transaction.openOuter()) {
+            long inserted;
+
+            try (Transaction nested = outer.openNested()) {
+                inserted = storage.insert(hello, UNIT_BUCKET, nested);
+                nested.commit();
+            }
+
+            try (Transaction nested = outer.openNested()) {
+                inserted -= storage.extract(hello, UNIT_BUCKET, nested);
+                nested.commit();
+            }
+
+            outer.commit();
+            return inserted;
+        }
+    }
+
+    @Benchmark
+    public long nestedInsertAbort() {
+        try (Transaction outer = Transaction.openOuter()) {
+            try (Transaction nested = outer.openNested()) {
+                return storage.insert(hello, UNIT_BUCKET, nested);
+            }
+        }
+    }
+
+    @Benchmark
+    public long deeplyNestedExtract() {
+        try (Transaction outer = Transaction.openOuter()) {
+            try (Transaction nested = outer.openNested()) {
+                try (Transaction deeper = nested.openNested()) {
+                    long extracted = storage.extract(hello, UNIT_BUCKET / 2, deeper);
+                    deeper.commit();
+                    nested.commit();
+                    return extracted;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.test.transfer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shailist.hytale.api.transfer.v1.storage.SlottedStorage;
+import com.shailist.hytale.api.transfer.v1.storage.StorageView;
+import com.shailist.hytale.api.transfer.v1.storage.base.ArraySlottedStorage;
+import com.shailist.hytale.api.transfer.v1.storage.base.CombinedSlottedStorage;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.test.transfer.unittests.utils.ArrayStringStorage;
+import com.shailist.hytale.test.transfer.unittests.utils.SingleStringStorage;
+import com.shailist.hytale.test.transfer.unittests.utils.StringVariant;
+
+import static com.shailist.hytale.test.transfer.unittests.utils.StringConstants.*;
+
+/**
+ * A 54-slot inventory made of one {@link com.shailist.hytale.api.transfer.v1.storage.base.SingleVariantStorage} per slot,
+ * compared with an {@link ArraySlottedStorage} of the same size.
+ * Run {@link SlottedStorageFootprint} for the memory footprint of both layouts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlottedStorageBenchmark {
+    static final int SLOTS = 54;
+
+    @Param({"PER_SLOT", "ARRAY"})
+    public String layout;
+
+    private SlottedStorage<StringVariant> inventory;
+    private StringVariant hello;
+
+    @Setup
+    public void setup() {
+        hello = StringVariant.of(HELLO);
+        inventory = createInventory(layout);
+
+        // Half-fill every slot, so that no slot becomes empty and the benchmarks don't measure the creation of blank test variants.
+        for (SlottedStorage<StringVariant> slot : inventory.getSlots()) {
+            try (Transaction transaction = Transaction.openOuter()) {
+                slot.insert(hello, UNIT_BUCKET, transaction);
+                transaction.commit();
+            }
+        }
+    }
+
+    static SlottedStorage<StringVariant> createInventory(String layout) {
+        return switch (layout) {
+            case "PER_SLOT" -> {
+                List<SingleStringStorage> slots = new ArrayList<>();
+
+                for (int i = 0; i < SLOTS; i++) {
+                    slots.add(SingleStringStorage.withFixedCapacity(2 * UNIT_BUCKET));
+                }
+
+                yield new CombinedSlottedStorage<>(slots);
+            }
+            case "ARRAY" -> ArrayStringStorage.withFixedCapacity(SLOTS, 2 * UNIT_BUCKET);
+            default -> throw new IllegalArgumentException("Unknown layout: " + layout);
+        };
+    }
+
+    /**
+     * Touches a single slot in two nested transactions.
+     */
+    @Benchmark
+    public long nestedInsertExtractCommit() {
+        try (Transaction outer = Transaction.openOuter()) {
+            long inserted;
+
+            try (Transaction nested = outer.openNested()) {
+                inserted = inventory.insert(hello, UNIT_BUCKET, nested);
+                nested.commit();
+            }
+
+            try (Transaction nested = outer.openNested()) {
+                inserted -= inventory.extract(hello, UNIT_BUCKET, nested);
+                nested.commit();
+            }
+
+            outer.commit();
+            return inserted;
+        }
+    }
+
+    /**
+     * Touches every slot, and rolls all of them back.
+     */
+    @Benchmark
+    public long fillAllAbort() {
+        try (Transaction transaction = Transaction.openOuter()) {
+            return inventory.insert(hello, SLOTS * UNIT_BUCKET, transaction);
+        }
+    }
+
+    /**
+     * Reads every slot.
+     */
+    @Benchmark
+    public long sumAmounts() {
+        long total = 0;
+
+        for (StorageView<StringVariant> view : inventory) {
+            total += view.getAmount();
+        }
+
+        return total;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.test.transfer.benchmarks;
+
+import org.openjdk.jol.info.GraphLayout;
+
+import com.shailist.hytale.api.transfer.v1.storage.SlottedStorage;
+import com.shailist.hytale.api.transfer.v1.storage.base.SingleSlotStorage;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.test.transfer.unittests.utils.StringVariant;
+
+import static com.shailist.hytale.test.transfer.unittests.utils.StringConstants.*;
+
+/**
+ * Prints the retained memory footprint, measured with JOL, of the inventories of {@link SlottedStorageBenchmark}.
+ * Every slot is modified once in nested transactions first, so that the storages have grown their snapshot arrays.
+ *
+ * <p>Run with {@code java -cp build/libs/*-jmh.jar com.shailist.hytale.test.transfer.benchmarks.SlottedStorageFootprint}
+ * after {@code ./gradlew jmhJar}.
+ */
+public final class SlottedStorageFootprint {
+    private SlottedStorageFootprint() {
+    }
+
+    public static void main(String[] args) {
+        StringVariant hello = StringVariant.of(HELLO);
+
+        for (String layout : new String[] {"PER_SLOT", "ARRAY"}) {
+            SlottedStorage<StringVariant> inventory = SlottedStorageBenchmark.createInventory(layout);
+
+            for (SingleSlotStorage<StringVariant> slot : inventory.getSlots()) {
+                try (Transaction outer = Transaction.openOuter(); Transaction nested = outer.openNested()) {
+                    slot.insert(hello, UNIT_BUCKET, nested);
+                    nested.commit();
+                    outer.commit();
+                }
+            }
+
+            // The slots hold the same variant, that is counted once in both layouts.
+            GraphLayout layoutGraph = GraphLayout.parseInstance(inventory);
+            System.out.printf("%s: %d bytes, %d objects%n", layout, layoutGraph.totalSize(), layoutGraph.totalCount());
+            System.out.println(layoutGraph.toFootprint());
+        }
+    }
+}
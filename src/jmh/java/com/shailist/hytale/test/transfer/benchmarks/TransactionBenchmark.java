@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.test.transfer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalLong;
+
+/**
+ * Opening and closing a chain of nested transactions, with one participant modified in every transaction.
+ * Run with the {@code gc} profiler, {@code gc.alloc.rate.norm} should be 0 bytes per operation at every depth.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionBenchmark {
+    /** Deepest nesting depth that is opened, the outer transaction having depth 0. */
+    @Param({"0", "1", "2", "4", "8"})
+    public int depth;
+
+    private TransactionalLong counter;
+
+    @Setup
+    public void setup() {
+        counter = new TransactionalLong();
+    }
+
+    @Benchmark
+    public long openCommit() {
+        try (Transaction outer = Transaction.openOuter()) {
+            openNested(outer, true);
+            outer.commit();
+        }
+
+        return counter.getValue();
+    }
+
+    @Benchmark
+    public long openAbort() {
+        try (Transaction outer = Transaction.openOuter()) {
+            openNested(outer, false);
+        }
+
+        return counter.getValue();
+    }
+
+    private void openNested(Transaction transaction, boolean commit) {
+        counter.assignValue(counter.getValue() + 1, transaction);
+
+        if (transaction.nestingDepth() < depth) {
+            try (Transaction nested = transaction.openNested()) {
+                openNested(nested, commit);
+
+                if (commit) {
+                    nested.commit();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.test.transfer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.shailist.hytale.api.transfer.v1.storage.StorageUtil;
+import com.shailist.hytale.api.transfer.v1.storage.base.CombinedStorage;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.test.transfer.unittests.utils.SingleStringStorage;
+import com.shailist.hytale.test.transfer.unittests.utils.StringVariant;
+
+import static com.shailist.hytale.test.transfer.unittests.utils.StringConstants.*;
+
+/**
+ * {@link StorageUtil#move} from a combined storage of several slots, for every {@link Transaction.Validation} level.
+ * Every parameter value runs in its own fork, so the validation level is selected before transactions are first used.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransactionValidationBenchmark {
+    private static final int SLOTS = 8;
+
+    @Param({"FULL", "LIGHT", "NONE"})
+    public String validation;
+
+    private CombinedStorage<StringVariant, SingleStringStorage> from;
+    private SingleStringStorage to;
+
+    @Setup
+    public void setup() {
+        // Must happen before any transaction is opened in this fork.
+        System.setProperty(Transaction.VALIDATION_PROPERTY, validation);
+
+        if (Transaction.getValidation() != Transaction.Validation.valueOf(validation)) {
+            throw new IllegalStateException("Transactions were used before the validation level was selected.");
+        }
+
+        StringVariant hello = StringVariant.of(HELLO);
+        List<SingleStringStorage> slots = new ArrayList<>();
+
+        for (int i = 0; i < SLOTS; i++) {
+            SingleStringStorage slot = SingleStringStorage.withFixedCapacity(2 * UNIT_BUCKET);
+            slot.variant = hello;
+            slot.amount = 2 * UNIT_BUCKET;
+            slots.add(slot);
+        }
+
+        from = new CombinedStorage<>(slots);
+        to = SingleStringStorage.withFixedCapacity(2 * SLOTS * UNIT_BUCKET);
+    }
+
+    @Benchmark
+    public long moveAll() {
+        try (Transaction transaction = Transaction.openOuter()) {
+            // Aborted, so that every invocation moves the same amount.
+            return StorageUtil.move(from, to, variant -> true, Long.MAX_VALUE, transaction);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.jspecify.annotations.Nullable;
+
+import com.shailist.hytale.api.transfer.v1.storage.base.ResourceAmount;
+
+/**
+ * A cache for the lookups of {@link StorageUtil}, for callers that ask the same questions about the same storages
+ * every tick, such as hoppers or displays.
+ *
+ * <p>Every result is stored with the {@linkplain Storage#getVersion version} of the storage it was computed for,
+ * and it is returned again as long as the version of the storage doesn't change.
+ * A query about an unchanged storage therefore only costs a call to {@link Storage#getVersion}, instead of a scan of its views.
+ * Storages whose version changes on every call, which is the case of the default implementation, never hit the cache.
+ *
+ * <p>Results are keyed by storage and filter identity, so filters should be reused between calls, for example stored in constants.
+ * At most {@code maxEntries} results are kept, and the least recently used ones are evicted first.
+ *
+ * <p>Like {@link Storage#getVersion}, queries may only be made outside of transactions.
+ * Instances are not thread-safe, and are usually owned by the thread that ticks the storages.
+ */
+public final class CachedStorageQueries {
+    private static final Predicate<Object> ANY = resource -> true;
+
+    private final int maxEntries;
+    private final Map<Key, Entry> entries;
+    // Reused to look up entries without allocating a key.
+    private final Key lookupKey = new Key(null, null, null);
+
+    /**
+     * Create an empty cache.
+     *
+     * @param maxEntries The maximum number of cached results. Must be positive.
+     */
+    public CachedStorageQueries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum number of entries must be positive, got " + maxEntries);
+        }
+
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > CachedStorageQueries.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Cached version of {@link StorageUtil#findStoredResource(Storage)}.
+     *
+     * @param storage The storage to inspect, may be null.
+     * @param <T> The type of the stored resources.
+     * @return A non-blank resource stored in the storage, or {@code null} if none could be found.
+     * @throws IllegalStateException If a transaction is open on the current thread.
+     */
+    public <T> @Nullable T findStoredResource(@Nullable Storage<T> storage) {
+        return findStoredResource(storage, any());
+    }
+
+    /**
+     * Cached version of {@link StorageUtil#findStoredResource(Storage, Predicate)}.
+     *
+     * @param storage The storage to inspect, may be null.
+     * @param filter The filter. Only a resource for which this filter returns {@code true} will be returned.
+     * @param <T> The type of the stored resources.
+     * @return A non-blank resource stored in the storage that matches the filter, or {@code null} if none could be found.
+     * @throws IllegalStateException If a transaction is open on the current thread.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> @Nullable T findStoredResource(@Nullable Storage<T> storage, Predicate<T> filter) {
+        Objects.requireNonNull(filter, "Filter may not be null");
+        if (storage == null) return null;
+
+        long version = storage.getVersion();
+        Entry entry = lookup(storage, QueryKind.STORED_RESOURCE, filter, version);
+
+        if (entry == null) {
+            entry = store(storage, QueryKind.STORED_RESOURCE, filter, version, StorageUtil.findStoredResource(storage, filter));
+        }
+
+        return (T) entry.result;
+    }
+
+    /**
+     * Cached version of {@link StorageUtil#findExtractableResource(Storage, TransactionContext)}, outside of transactions.
+     *
+     * @param storage The storage to inspect, may be null.
+     * @param <T> The type of the stored resources.
+     * @return A non-blank resource stored in the storage that can be extracted, or {@code null} if none could be found.
+     * @throws IllegalStateException If a transaction is open on the current thread.
+     */
+    public <T> @Nullable T findExtractableResource(@Nullable Storage<T> storage) {
+        return findExtractableResource(storage, any());
+    }
+
+    /**
+     * Cached version of {@link StorageUtil#findExtractableResource(Storage, Predicate, TransactionContext)}, outside of transactions.
+     *
+     * @param storage The storage to inspect, may be null.
+     * @param filter The filter. Only a resource for which this filter returns {@code true} will be returned.
+     * @param <T> The type of the stored resources.
+     * @return A non-blank resource stored in the storage that matches the filter and can be extracted, or {@code null} if none could be found.
+     * @throws IllegalStateException If a transaction is open on the current thread.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> @Nullable T findExtractableResource(@Nullable Storage<T> storage, Predicate<T> filter) {
+        Objects.requireNonNull(filter, "Filter may not be null");
+        if (storage == null) return null;
+
+        long version = storage.getVersion();
+        Entry entry = lookup(storage, QueryKind.EXTRACTABLE_RESOURCE, filter, version);
+
+        if (entry == null) {
+            entry = store(storage, QueryKind.EXTRACTABLE_RESOURCE, filter, version, StorageUtil.findExtractableResource(storage, filter, null));
+        }
+
+        return (T) entry.result;
+    }
+
+    /**
+     * Cached version of {@link StorageUtil#findExtractableContent(Storage, TransactionContext)}, outside of transactions.
+     *
+     * @param storage The storage to inspect, may be null.
+     * @param <T> The type of the stored resources.
+     * @return A non-blank resource stored in the storage that can be extracted and the strictly positive amount of it that can be extracted,
+     * or {@code null} if none could be found.
+     * @throws IllegalStateException If a transaction is open on the current thread.
+     */
+    public <T> @Nullable ResourceAmount<T> findExtractableContent(@Nullable Storage<T> storage) {
+        return findExtractableContent(storage, any());
+    }
+
+    /**
+     * Cached version of {@link StorageUtil#findExtractableContent(Storage, Predicate, TransactionContext)}, outside of transactions.
+     *
+     * @param storage The storage to inspect, may be null.
+     * @param filter The filter. Only a resource for which this filter returns {@code true} will be returned.
+     * @param <T> The type of the stored resources.
+     * @return A non-blank resource stored in the storage that can be extracted and matches the filter, and the strictly positive amount of it that can be extracted,
+     * or {@code null} if none could be found.
+     * @throws IllegalStateException If a transaction is open on the current thread.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> @Nullable ResourceAmount<T> findExtractableContent(@Nullable Storage<T> storage, Predicate<T> filter) {
+        Objects.requireNonNull(filter, "Filter may not be null");
+        if (storage == null) return null;
+
+        long version = storage.getVersion();
+        Entry entry = lookup(storage, QueryKind.EXTRACTABLE_CONTENT, filter, version);
+
+        if (entry == null) {
+            entry = store(storage, QueryKind.EXTRACTABLE_CONTENT, filter, version, StorageUtil.findExtractableContent(storage, filter, null));
+        }
+
+        return (ResourceAmount<T>) entry.result;
+    }
+
+    /**
+     * Return the number of cached results.
+     *
+     * @return The number of cached results.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove all the cached results.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Predicate<T> any() {
+        return (Predicate<T>) ANY;
+    }
+
+    /**
+     * Return the entry of a query if it is up-to-date, and mark it as recently used.
+     */
+    private @Nullable Entry lookup(Storage<?> storage, QueryKind kind, Predicate<?> filter, long version) {
+        lookupKey.set(storage, kind, filter);
+        Entry entry = entries.get(lookupKey);
+        lookupKey.set(null, null, null);
+        return entry != null && entry.version == version ? entry : null;
+    }
+
+    private Entry store(Storage<?> storage, QueryKind kind, Predicate<?> filter, long version, @Nullable Object result) {
+        Entry entry = new Entry(version, result);
+        entries.put(new Key(storage, kind, filter), entry);
+        return entry;
+    }
+
+    private enum QueryKind {
+        STORED_RESOURCE,
+        EXTRACTABLE_RESOURCE,
+        EXTRACTABLE_CONTENT
+    }
+
+    /**
+     * Key of a query, comparing the storage and the filter by identity.
+     */
+    private static final class Key {
+        @Nullable Storage<?> storage;
+        @Nullable QueryKind kind;
+        @Nullable Predicate<?> filter;
+
+        Key(@Nullable Storage<?> storage, @Nullable QueryKind kind, @Nullable Predicate<?> filter) {
+            set(storage, kind, filter);
+        }
+
+        void set(@Nullable Storage<?> storage, @Nullable QueryKind kind, @Nullable Predicate<?> filter) {
+            this.storage = storage;
+            this.kind = kind;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key other && storage == other.storage && kind == other.kind && filter == other.filter;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(storage) * 31 + Objects.hashCode(kind)) * 31 + System.identityHashCode(filter);
+        }
+    }
+
+    private record Entry(long version, @Nullable Object result) {
+    }
+}
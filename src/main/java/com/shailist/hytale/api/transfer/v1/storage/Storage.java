@@ -19,7 +19,9 @@
 
 package com.shailist.hytale.api.transfer.v1.storage;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import com.google.common.collect.Iterators;
 
@@ -30,6 +32,8 @@ import com.shailist.hytale.api.transfer.v1.storage.base.SingleVariantStorage;
 import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
 import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
 import com.shailist.hytale.impl.transfer.TransferApiImpl;
+import com.shailist.hytale.impl.transfer.VersionAllocator;
+import com.shailist.hytale.impl.transfer.storage.SimulatedReservation;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -42,8 +46,10 @@ import org.jetbrains.annotations.NotNull;
  *     <li>{@link #supportsInsertion} and {@link #supportsExtraction} can be used to tell if insertion and extraction
  *     functionality are possibly supported by this storage.</li>
  *     <li>{@link #insert} and {@link #extract} can be used to insert or extract resources from this storage.</li>
+ *     <li>{@link #reserveInsert} and {@link #reserveExtract} can be used to hold capacity or resources for a later insertion or extraction.</li>
  *     <li>{@link #iterator} can be used to inspect the contents of this storage.</li>
  *     <li>{@link #getVersion()} can be used to quickly check if a storage has changed, without having to rescan its contents.</li>
+ *     <li>{@link #captureSnapshot()} can be used to copy the contents of this storage, to read them from another thread.</li>
  * </ul>
  *
  * <p>Users that wish to implement this interface can use the helpers in the {@code base} package:
@@ -99,6 +105,22 @@ public interface Storage<T> extends Iterable<StorageView<T>> {
      */
     long insert(T resource, long maxAmount, @NotNull TransactionContext transaction);
 
+    /**
+     * Reserve capacity to insert up to some amount of a resource into this storage, for a later {@linkplain StorageReservation#consume insertion}.
+     * The capacity is held until the reservation is consumed or released, or the transaction is closed.
+     *
+     * <p>The default implementation only simulates the insertion, and doesn't hold anything.
+     * Storages that can track reserved capacity should override this to hold it until the reservation is consumed.
+     *
+     * @param resource The resource to insert. May not be blank.
+     * @param maxAmount The maximum amount of resource to reserve. May not be negative.
+     * @param transaction The transaction this reservation is part of.
+     * @return The reservation, holding a non-negative amount not greater than maxAmount. It may hold nothing.
+     */
+    default StorageReservation<T> reserveInsert(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+        return SimulatedReservation.reserveInsert(this, resource, maxAmount, transaction);
+    }
+
     /**
      * Return whether extraction may be supported by this storage.
      *
@@ -121,6 +143,22 @@ public interface Storage<T> extends Iterable<StorageView<T>> {
      */
     long extract(T resource, long maxAmount, @NotNull TransactionContext transaction);
 
+    /**
+     * Reserve up to some amount of a resource in this storage, for a later {@linkplain StorageReservation#consume extraction}.
+     * The amount is held until the reservation is consumed or released, or the transaction is closed.
+     *
+     * <p>The default implementation only simulates the extraction, and doesn't hold anything.
+     * Storages that can track reserved amounts should override this to hold them until the reservation is consumed.
+     *
+     * @param resource The resource to extract. May not be blank.
+     * @param maxAmount The maximum amount of resource to reserve. May not be negative.
+     * @param transaction The transaction this reservation is part of.
+     * @return The reservation, holding a non-negative amount not greater than maxAmount. It may hold nothing.
+     */
+    default StorageReservation<T> reserveExtract(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+        return SimulatedReservation.reserveExtract(this, resource, maxAmount, transaction);
+    }
+
     /**
      * Iterate through the contents of this storage.
      * Every visited {@link StorageView} represents a stored resource and an amount.
@@ -207,6 +245,9 @@ public interface Storage<T> extends Iterable<StorageView<T>> {
      * <p>It is not valid to call this during a transaction,
      * and implementations are encouraged to throw an exception if that happens.
      *
+     * <p>The default implementation returns a new version on every call, so it never allows skipping a rescan.
+     * {@link SingleVariantStorage} and {@link CombinedStorage} keep the same version until they are modified.
+     *
      * @return The version identifier; changes whenever the storage may have changed.
      */
     default long getVersion() {
@@ -214,7 +255,34 @@ public interface Storage<T> extends Iterable<StorageView<T>> {
             throw new IllegalStateException("getVersion() may not be called during a transaction.");
         }
 
-        return TransferApiImpl.version.getAndIncrement();
+        // Without a way to detect changes, every call has to return a new version.
+        return VersionAllocator.next();
+    }
+
+    /**
+     * Capture an immutable copy of the current contents of this storage, that can then be read from any thread.
+     *
+     * <p>This must be called on the thread that modifies the storage, outside of any transaction,
+     * so that the snapshot only contains committed changes.
+     * The default implementation copies every {@linkplain #iterator view} of this storage into a slot.
+     * Implementations are encouraged to return the same snapshot again as long as their contents don't change,
+     * to share unchanged subtrees between snapshots, like {@link SingleVariantStorage} and {@link CombinedStorage} do.
+     *
+     * @return A snapshot of the contents of this storage.
+     * @throws IllegalStateException If a transaction is open on the current thread.
+     */
+    default StorageSnapshot<T> captureSnapshot() {
+        if (Transaction.isOpen()) {
+            throw new IllegalStateException("captureSnapshot() may not be called during a transaction.");
+        }
+
+        List<StorageSnapshot<T>> slots = new ArrayList<>();
+
+        for (StorageView<T> view : this) {
+            slots.add(StorageSnapshot.ofSlot(view.getResource(), view.getAmount()));
+        }
+
+        return StorageSnapshot.ofChildren(slots);
     }
 
     /**
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage;
+
+/**
+ * Capacity or amount of a resource that is held in a {@link Storage} for a later insertion or extraction,
+ * returned by {@link Storage#reserveInsert} and {@link Storage#reserveExtract}.
+ *
+ * <p>A reservation is pending until it is {@linkplain #consume consumed}, {@linkplain #release released},
+ * or the transaction it was made in is closed, whichever comes first.
+ * This allows plan-then-execute transfer loops to find out how much can be moved before moving anything:
+ * <pre>{@code
+ * try (StorageReservation<T> insertion = target.reserveInsert(resource, maxAmount, transaction);
+ *      StorageReservation<T> extraction = source.reserveExtract(resource, insertion.getAmount(), transaction)) {
+ *     long moved = extraction.consume(extraction.getAmount());
+ *     insertion.consume(moved);
+ * }
+ * }</pre>
+ *
+ * <p>Storages that track reservations, such as {@link com.shailist.hytale.api.transfer.v1.storage.base.SingleVariantStorage},
+ * hold the reserved amount while the reservation is pending: other operations can't use it, so consuming it always succeeds.
+ * The default implementation only simulates the operation, so other operations of the same transaction may use up
+ * the reserved amount in the meantime, and consuming may then insert or extract less.
+ *
+ * <p>Reservations must be consumed while the transaction they were made in is the current transaction.
+ *
+ * @param <T> The type of the reserved resource.
+ */
+public interface StorageReservation<T> extends AutoCloseable {
+    /**
+     * Return the reserved resource.
+     *
+     * @return The reserved resource.
+     */
+    T getResource();
+
+    /**
+     * Return the amount that is still reserved: the amount that was reserved while pending, or 0 once consumed or released.
+     *
+     * @return The reserved amount.
+     */
+    long getAmount();
+
+    /**
+     * Perform the reserved insertion or extraction for up to the reserved amount, in the transaction that made the reservation,
+     * and release the rest of the reservation. Does nothing if the reservation is not pending.
+     *
+     * @param maxAmount The maximum amount to insert or extract. May not be negative.
+     * @return The amount that was inserted or extracted: the smaller of {@code maxAmount} and the reserved amount
+     * if the storage holds reservations, and possibly less otherwise.
+     * @throws IllegalStateException If something would be consumed, but the transaction the reservation was made in
+     * is not the current transaction, for example because a nested transaction is open.
+     */
+    long consume(long maxAmount);
+
+    /**
+     * Release the reservation without inserting or extracting anything. Does nothing if the reservation is not pending.
+     */
+    void release();
+
+    /**
+     * Release the reservation if it is still pending.
+     */
+    @Override
+    default void close() {
+        release();
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.ObjLongConsumer;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An immutable, point-in-time copy of the contents of a {@link Storage}, captured with {@link Storage#captureSnapshot}.
+ * Snapshots can be read from any thread, for example to save a world in the background while it keeps ticking.
+ *
+ * <p>A snapshot is a tree that mirrors the storage: either a single slot with a resource and an amount,
+ * or a list of children, such as the snapshots of the parts of a {@link com.shailist.hytale.api.transfer.v1.storage.base.CombinedStorage CombinedStorage}.
+ * Since snapshots are immutable, storages reuse their previous snapshot when they haven't changed since it was captured,
+ * so capturing a large storage tree again only copies the slots that were modified in the meantime,
+ * and unchanged subtrees are shared between successive snapshots.
+ *
+ * @param <T> The type of the stored resources.
+ */
+public final class StorageSnapshot<T> {
+    // Null for the snapshot of a storage made of other storages.
+    private final @Nullable T resource;
+    private final long amount;
+    private final List<StorageSnapshot<T>> children;
+    private final int slotCount;
+
+    private StorageSnapshot(@Nullable T resource, long amount, List<StorageSnapshot<T>> children, int slotCount) {
+        this.resource = resource;
+        this.amount = amount;
+        this.children = children;
+        this.slotCount = slotCount;
+    }
+
+    /**
+     * Create the snapshot of a single slot.
+     *
+     * @param resource The resource in the slot. May be blank.
+     * @param amount The amount in the slot.
+     * @param <T> The type of the stored resources.
+     * @return The snapshot of the slot.
+     */
+    public static <T> StorageSnapshot<T> ofSlot(T resource, long amount) {
+        StoragePreconditions.notNegative(amount);
+        return new StorageSnapshot<>(Objects.requireNonNull(resource, "Resource may not be null."), amount, List.of(), 1);
+    }
+
+    /**
+     * Create the snapshot of a storage made of other storages.
+     *
+     * @param children The snapshots of the storages, in iteration order.
+     * @param <T> The type of the stored resources.
+     * @return The snapshot of the storage.
+     */
+    public static <T> StorageSnapshot<T> ofChildren(List<StorageSnapshot<T>> children) {
+        List<StorageSnapshot<T>> childrenCopy = List.copyOf(children);
+        int slotCount = 0;
+
+        for (StorageSnapshot<T> child : childrenCopy) {
+            slotCount += child.slotCount;
+        }
+
+        return new StorageSnapshot<>(null, 0, childrenCopy, slotCount);
+    }
+
+    /**
+     * Return whether this is the snapshot of a single slot, or the snapshot of a storage made of other storages.
+     *
+     * @return {@code true} if this is the snapshot of a single slot, {@code false} otherwise.
+     */
+    public boolean isSlot() {
+        return resource != null;
+    }
+
+    /**
+     * Return the resource in the slot.
+     *
+     * @return The resource in the slot. May be blank.
+     * @throws IllegalStateException If this is not the snapshot of a single slot.
+     */
+    public T getResource() {
+        if (resource == null) {
+            throw new IllegalStateException("Only the snapshot of a single slot has a resource.");
+        }
+
+        return resource;
+    }
+
+    /**
+     * Return the amount in the slot.
+     *
+     * @return The amount in the slot.
+     * @throws IllegalStateException If this is not the snapshot of a single slot.
+     */
+    public long getAmount() {
+        if (resource == null) {
+            throw new IllegalStateException("Only the snapshot of a single slot has an amount.");
+        }
+
+        return amount;
+    }
+
+    /**
+     * Return the snapshots of the storages this storage is made of.
+     *
+     * @return An unmodifiable list of the children of this snapshot, which is empty for the snapshot of a single slot.
+     */
+    public List<StorageSnapshot<T>> getChildren() {
+        return children;
+    }
+
+    /**
+     * Return the total number of slots in this snapshot.
+     *
+     * @return The number of slots.
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Perform an action for every slot in this snapshot, in iteration order.
+     *
+     * @param action The action, that receives the resource and the amount of every slot.
+     */
+    public void forEachSlot(ObjLongConsumer<T> action) {
+        if (resource != null) {
+            action.accept(resource, amount);
+        } else {
+            for (StorageSnapshot<T> child : children) {
+                child.forEachSlot(action);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return resource != null ? "StorageSnapshot[%d %s]".formatted(amount, resource) : "StorageSnapshot" + children;
+    }
+}
@@ -21,13 +21,16 @@ package com.shailist.hytale.api.transfer.v1.storage;
 
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 
 import org.jetbrains.annotations.NotNull;
 import org.jspecify.annotations.Nullable;
 
+import com.shailist.hytale.api.transfer.v1.storage.base.AsyncStorage;
 import com.shailist.hytale.api.transfer.v1.storage.base.ResourceAmount;
 import com.shailist.hytale.api.transfer.v1.storage.base.SingleSlotStorage;
+import com.shailist.hytale.api.transfer.v1.storage.base.StorageOwner;
 import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
 import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
 
@@ -126,6 +129,31 @@ public final class StorageUtil {
         return totalMoved;
     }
 
+    /**
+     * Move resources between two asynchronous storages, like {@link #move}, from any thread.
+     * The move runs on the thread of the owner of both storages, when the owner next {@linkplain StorageOwner#drain drains} its mailbox.
+     *
+     * @param from The source storage.
+     * @param to The target storage, which must have the same owner as the source storage.
+     * @param filter The filter for transferred resources.
+     *               Only resources for which this filter returns {@code true} will be transferred.
+     * @param maxAmount The maximum amount that will be transferred.
+     * @param <T> The type of resources to move.
+     * @return A future that is completed with the total amount of resources that was transferred, once it is committed.
+     * @throws IllegalArgumentException If the storages have different owners.
+     */
+    public static <T> CompletableFuture<Long> moveAsync(AsyncStorage<T> from, AsyncStorage<T> to, Predicate<T> filter, long maxAmount) {
+        Objects.requireNonNull(filter, "Filter may not be null");
+        StoragePreconditions.notNegative(maxAmount);
+
+        if (from.getOwner() != to.getOwner()) {
+            // A single transaction can't span two owner threads.
+            throw new IllegalArgumentException("Resources can only be moved asynchronously between storages of the same owner.");
+        }
+
+        return from.getOwner().submit(transaction -> move(from.getStorage(), to.getStorage(), filter, maxAmount, transaction));
+    }
+
     /**
      * Convenient helper to simulate an insertion, i.e. get the result of {@link Storage#insert} without modifying any state.
      * The passed transaction may be null if a new transaction should be opened for the simulation.
@@ -0,0 +1,366 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import com.shailist.hytale.api.transfer.v1.storage.SlottedStorage;
+import com.shailist.hytale.api.transfer.v1.storage.StoragePreconditions;
+import com.shailist.hytale.api.transfer.v1.storage.StorageView;
+import com.shailist.hytale.api.transfer.v1.storage.TransferVariant;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.api.transfer.v1.transaction.base.AbstractSnapshotParticipant;
+import com.shailist.hytale.impl.transfer.VersionAllocator;
+import com.shailist.hytale.impl.transfer.transaction.UndoLog;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.UnmodifiableView;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A {@link SlottedStorage} whose slots can each store a single transfer variant, such as an inventory.
+ * Behaves like a {@link CombinedSlottedStorage} of {@link SingleVariantStorage}s, but is much more compact.
+ *
+ * <p>The variants and the amounts of all the slots are held in two flat arrays, and the whole storage is a single
+ * transaction participant. Its snapshots are undo logs: the previous contents of a slot are recorded the first time
+ * the slot is modified in a transaction, so the cost of a transaction is proportional to the number of slots it touches,
+ * and not to the number of slots of the storage. The {@linkplain #getSlot slots} are lightweight views that forward to the storage.
+ *
+ * <p>Implementors should at least override {@link #getBlankVariant} and {@link #getCapacity(int, TransferVariant)},
+ * and probably {@link #onFinalCommit} as well for {@code markDirty()} and similar calls.
+ * {@link #canInsert} and {@link #canExtract} can be used for more precise control over which variants may be inserted
+ * into or extracted from every slot.
+ *
+ * @param <T> The transfer variant type handled by this storage.
+ */
+public abstract class ArraySlottedStorage<T extends TransferVariant<?>> extends AbstractSnapshotParticipant implements SlottedStorage<T> {
+	// Undo operation, stored in the undo log entries: restore the variant and the amount of a slot.
+	private static final int UNDO_SLOT = 0;
+
+	private final T[] variants;
+	private final long[] amounts;
+	private final List<SingleSlotStorage<T>> slots;
+	private final UndoLog.Stack undoLogs = new UndoLog.Stack();
+	// For every slot, the tag of the last undo log that recorded its previous contents.
+	// Every undo log gets a different tag, so that stale entries never match.
+	private final long[] recordedIn;
+	// Version returned by getVersion(), replaced when an outer transaction that modified this storage is committed.
+	private volatile long version = VersionAllocator.next();
+	// Registry notified of the changes of this storage, if any.
+	private @Nullable StorageChangeRegistry<T> changeRegistry = null;
+
+	/**
+	 * Initializes the storage with the passed number of slots, all containing the blank variant with zero amount.
+	 *
+	 * @param slotCount The number of slots. May not be negative.
+	 */
+	@SuppressWarnings("unchecked")
+	protected ArraySlottedStorage(int slotCount) {
+		if (slotCount < 0) {
+			throw new IllegalArgumentException("Slot count may not be negative, got " + slotCount);
+		}
+
+		this.variants = (T[]) new TransferVariant<?>[slotCount];
+		this.amounts = new long[slotCount];
+		this.recordedIn = new long[slotCount];
+		Arrays.fill(variants, getBlankVariant());
+		List<SingleSlotStorage<T>> slots = new ArrayList<>(slotCount);
+
+		for (int i = 0; i < slotCount; i++) {
+			slots.add(new Slot(i));
+		}
+
+		this.slots = Collections.unmodifiableList(slots);
+	}
+
+	/**
+	 * Return the blank variant.
+	 *
+	 * @return The blank transfer variant for this storage type.
+	 */
+	protected abstract T getBlankVariant();
+
+	/**
+	 * Return the maximum capacity of a slot for the passed transfer variant.
+	 * If the passed variant is blank, an estimate should be returned.
+	 *
+	 * @param slot The index of the slot.
+	 * @param variant The variant for which capacity is queried. May be blank.
+	 * @return The maximum capacity of the slot for the passed variant, or an estimate if blank.
+	 */
+	protected abstract long getCapacity(int slot, T variant);
+
+	/**
+	 * Return whether the passed non-blank variant can be inserted into a slot.
+	 *
+	 * @param slot The index of the slot.
+	 * @param variant The variant to test.
+	 * @return {@code true} if the passed non-blank variant can be inserted, {@code false} otherwise.
+	 */
+	protected boolean canInsert(int slot, T variant) {
+		return true;
+	}
+
+	/**
+	 * Return whether the passed non-blank variant can be extracted from a slot.
+	 *
+	 * @param slot The index of the slot.
+	 * @param variant The variant to test.
+	 * @return {@code true} if the passed non-blank variant can be extracted, {@code false} otherwise.
+	 */
+	protected boolean canExtract(int slot, T variant) {
+		return true;
+	}
+
+	@Override
+	public int getSlotCount() {
+		return slots.size();
+	}
+
+	@Override
+	public SingleSlotStorage<T> getSlot(int slot) {
+		return slots.get(slot);
+	}
+
+	@Override
+	@UnmodifiableView
+	public List<SingleSlotStorage<T>> getSlots() {
+		return slots;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The variant is inserted into the slots in order, like a {@link CombinedStorage}.
+	 */
+	@Override
+	public long insert(T insertedVariant, long maxAmount, @NotNull TransactionContext transaction) {
+		StoragePreconditions.notBlankNotNegative(insertedVariant, maxAmount);
+		recordRead(transaction);
+		long insertedAmount = 0;
+
+		for (int slot = 0; slot < variants.length && insertedAmount < maxAmount; slot++) {
+			insertedAmount += insertIntoSlot(slot, insertedVariant, maxAmount - insertedAmount, transaction);
+		}
+
+		return insertedAmount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The variant is extracted from the slots in order, like a {@link CombinedStorage}.
+	 */
+	@Override
+	public long extract(T extractedVariant, long maxAmount, @NotNull TransactionContext transaction) {
+		StoragePreconditions.notBlankNotNegative(extractedVariant, maxAmount);
+		recordRead(transaction);
+		long extractedAmount = 0;
+
+		for (int slot = 0; slot < variants.length && extractedAmount < maxAmount; slot++) {
+			extractedAmount += extractFromSlot(slot, extractedVariant, maxAmount - extractedAmount, transaction);
+		}
+
+		return extractedAmount;
+	}
+
+	@Override
+	public @NotNull Iterator<StorageView<T>> iterator() {
+		return Collections.<StorageView<T>>unmodifiableList(slots).iterator();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The version only changes when an outer transaction that modified this storage is committed.
+	 */
+	@Override
+	public long getVersion() {
+		if (Transaction.isOpen()) {
+			throw new IllegalStateException("getVersion() may not be called during a transaction.");
+		}
+
+		return version;
+	}
+
+	private long insertIntoSlot(int slot, T insertedVariant, long maxAmount, TransactionContext transaction) {
+		T currentVariant = variants[slot];
+
+		if ((currentVariant.isBlank() || insertedVariant.equals(currentVariant)) && canInsert(slot, insertedVariant)) {
+			long insertedAmount = Math.min(maxAmount, getCapacity(slot, insertedVariant) - amounts[slot]);
+
+			if (insertedAmount > 0) {
+				recordPreviousContents(slot, transaction);
+
+				if (currentVariant.isBlank()) {
+					variants[slot] = insertedVariant;
+					amounts[slot] = insertedAmount;
+				} else {
+					amounts[slot] += insertedAmount;
+				}
+
+				return insertedAmount;
+			}
+		}
+
+		return 0;
+	}
+
+	private long extractFromSlot(int slot, T extractedVariant, long maxAmount, TransactionContext transaction) {
+		T currentVariant = variants[slot];
+
+		if (!currentVariant.isBlank() && extractedVariant.equals(currentVariant) && canExtract(slot, extractedVariant)) {
+			long extractedAmount = Math.min(maxAmount, amounts[slot]);
+
+			if (extractedAmount > 0) {
+				recordPreviousContents(slot, transaction);
+				amounts[slot] -= extractedAmount;
+
+				if (amounts[slot] == 0) {
+					variants[slot] = getBlankVariant();
+				}
+
+				return extractedAmount;
+			}
+		}
+
+		return 0;
+	}
+
+	private void recordPreviousContents(int slot, TransactionContext transaction) {
+		StorageChangeRegistry<T> registry = changeRegistry;
+
+		if (registry != null) {
+			// The registry must register its close callback before this storage, so that it sees the final contents.
+			registry.prepare(transaction);
+		}
+
+		UndoLog undoLog = undoLog(transaction);
+
+		// Only the oldest contents of the slot in this transaction need to be restored on abort.
+		if (recordedIn[slot] != undoLog.tag()) {
+			recordedIn[slot] = undoLog.tag();
+			undoLog.record(UNDO_SLOT, slot, amounts[slot], variants[slot], null);
+		}
+
+		if (registry != null) {
+			registry.enlist(slots.get(slot), transaction);
+		}
+	}
+
+	void setChangeRegistry(StorageChangeRegistry<T> caller, @Nullable StorageChangeRegistry<T> registry) {
+		if (changeRegistry != null && changeRegistry != caller) {
+			throw new IllegalStateException("Storage " + this + " is already tracked by another registry.");
+		}
+
+		changeRegistry = registry;
+	}
+
+	private UndoLog undoLog(@NotNull TransactionContext transaction) {
+		updateSnapshots(transaction);
+		return undoLogs.get(transaction.nestingDepth());
+	}
+
+	@Override
+	protected boolean hasSnapshot(int nestingDepth) {
+		return undoLogs.has(nestingDepth);
+	}
+
+	@Override
+	protected void saveSnapshot(int nestingDepth) {
+		undoLogs.open(nestingDepth);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void restoreSnapshot(int nestingDepth) {
+		UndoLog undoLog = undoLogs.take(nestingDepth);
+
+		// Undo the modifications in reverse order.
+		for (int entry = undoLog.size() - 1; entry >= 0; entry--) {
+			int slot = undoLog.index(entry);
+			amounts[slot] = undoLog.number(entry);
+			variants[slot] = (T) Objects.requireNonNull(undoLog.first(entry));
+		}
+
+		undoLogs.release(undoLog);
+	}
+
+	@Override
+	protected void commitSnapshot(int nestingDepth) {
+		undoLogs.commit(nestingDepth);
+	}
+
+	@Override
+	public void onClose(@NotNull TransactionContext transaction, Transaction.Result result) {
+		super.onClose(transaction, result);
+
+		// Replaced while this storage is still owned by the transaction, rather than in onFinalCommit.
+		if (transaction.nestingDepth() == 0 && result.wasCommitted()) {
+			version = VersionAllocator.next();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ArraySlottedStorage[" + slots.size() + " slots]";
+	}
+
+	/**
+	 * A view of a slot, that forwards to the arrays of the storage.
+	 */
+	private final class Slot implements SingleSlotStorage<T> {
+		private final int index;
+
+		Slot(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public long insert(T insertedVariant, long maxAmount, @NotNull TransactionContext transaction) {
+			StoragePreconditions.notBlankNotNegative(insertedVariant, maxAmount);
+			recordRead(transaction);
+			return insertIntoSlot(index, insertedVariant, maxAmount, transaction);
+		}
+
+		@Override
+		public long extract(T extractedVariant, long maxAmount, @NotNull TransactionContext transaction) {
+			StoragePreconditions.notBlankNotNegative(extractedVariant, maxAmount);
+			recordRead(transaction);
+			return extractFromSlot(index, extractedVariant, maxAmount, transaction);
+		}
+
+		@Override
+		public boolean isResourceBlank() {
+			return variants[index].isBlank();
+		}
+
+		@Override
+		public T getResource() {
+			return variants[index];
+		}
+
+		@Override
+		public long getAmount() {
+			return amounts[index];
+		}
+
+		@Override
+		public long getCapacity() {
+			return ArraySlottedStorage.this.getCapacity(index, variants[index]);
+		}
+
+		@Override
+		public String toString() {
+			return "ArraySlottedStorage.Slot[%d: %d %s]".formatted(index, amounts[index], variants[index]);
+		}
+	}
+}
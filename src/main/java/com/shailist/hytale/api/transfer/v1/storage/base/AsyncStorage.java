@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.shailist.hytale.api.transfer.v1.storage.Storage;
+import com.shailist.hytale.api.transfer.v1.storage.StoragePreconditions;
+import com.shailist.hytale.api.transfer.v1.storage.StorageUtil;
+
+/**
+ * An asynchronous view of a {@link Storage}, that can be used from any thread.
+ * Operations are sent to the {@link StorageOwner} of the storage, which runs them on its thread,
+ * batched with the other operations submitted during the same tick, and complete a future with the transferred amount.
+ * Instances are created with {@link StorageOwner#wrap}.
+ *
+ * <p>Resources can be moved between two asynchronous storages of the same owner with {@link StorageUtil#moveAsync}.
+ *
+ * @param <T> The type of the stored resources.
+ */
+public final class AsyncStorage<T> {
+	private final Storage<T> storage;
+	private final StorageOwner owner;
+
+	AsyncStorage(Storage<T> storage, StorageOwner owner) {
+		this.storage = storage;
+		this.owner = owner;
+	}
+
+	/**
+	 * Return the wrapped storage, that may only be accessed from the owner thread.
+	 *
+	 * @return The wrapped storage.
+	 */
+	public Storage<T> getStorage() {
+		return storage;
+	}
+
+	/**
+	 * Return the owner of the wrapped storage.
+	 *
+	 * @return The owner of the wrapped storage.
+	 */
+	public StorageOwner getOwner() {
+		return owner;
+	}
+
+	/**
+	 * Insert a resource into the storage, on the owner thread.
+	 *
+	 * @param resource The resource to insert. May not be blank.
+	 * @param maxAmount The maximum amount of resource to insert. May not be negative.
+	 * @return A future that is completed with the amount that was inserted, once it is committed.
+	 * @see Storage#insert
+	 */
+	public CompletableFuture<Long> insertAsync(T resource, long maxAmount) {
+		StoragePreconditions.notNegative(maxAmount);
+		return owner.submit(transaction -> storage.insert(resource, maxAmount, transaction));
+	}
+
+	/**
+	 * Extract a resource from the storage, on the owner thread.
+	 *
+	 * @param resource The resource to extract. May not be blank.
+	 * @param maxAmount The maximum amount of resource to extract. May not be negative.
+	 * @return A future that is completed with the amount that was extracted, once it is committed.
+	 * @see Storage#extract
+	 */
+	public CompletableFuture<Long> extractAsync(T resource, long maxAmount) {
+		StoragePreconditions.notNegative(maxAmount);
+		return owner.submit(transaction -> storage.extract(resource, maxAmount, transaction));
+	}
+
+	@Override
+	public String toString() {
+		return "AsyncStorage[" + storage + "]";
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.shailist.hytale.api.transfer.v1.storage.StoragePreconditions;
+import com.shailist.hytale.api.transfer.v1.storage.TransferVariant;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A storage that can store a fixed transfer variant or be empty, and that can be used concurrently
+ * by the transactions of any number of threads without locks, for example a global power or fluid pool.
+ *
+ * <p>Instead of snapshots, every insertion and extraction atomically reserves its amount with a compare-and-set,
+ * and the reservation is confirmed or released in a close callback of the transaction:
+ * <ul>
+ *     <li>An extraction immediately removes the extracted amount from the {@linkplain #getAmount() available amount}.
+ *     The amount is given back if the transaction is aborted.</li>
+ *     <li>An insertion immediately reserves the space for the inserted amount.
+ *     The inserted amount only becomes available once the outer transaction is committed,
+ *     even to the transaction that inserted it, and the space is freed if the transaction is aborted.</li>
+ * </ul>
+ * Every operation is therefore linearizable, the capacity is never exceeded,
+ * and a transaction can never extract something that another transaction has not committed yet.
+ * Each operation allocates its reservation, which is the price for not needing any per-thread state.
+ *
+ * <p>Implementors should at least override {@link #getBlankVariant()}, {@link #getAllowedVariant()}
+ * and {@link #getCapacity()}, and probably {@link #onFinalCommit} as well for {@code markDirty()} and similar calls.
+ *
+ * @param <T> The transfer variant type handled by this storage.
+ */
+public abstract class AtomicFixedVariantStorage<T extends TransferVariant<?>> implements SingleSlotStorage<T> {
+	// The committed amount, minus the extractions reserved by open transactions.
+	private final AtomicLong available = new AtomicLong();
+	// The committed amount, plus the insertions reserved by open transactions.
+	private final AtomicLong occupied = new AtomicLong();
+	private final AtomicLong version = new AtomicLong();
+
+	/**
+	 * Protected no-arg constructor to satisfy doclint requirements.
+	 */
+	protected AtomicFixedVariantStorage() {
+	}
+
+	/**
+	 * Return the blank variant.
+	 *
+	 * @return The blank transfer variant for this storage type.
+	 */
+	protected abstract T getBlankVariant();
+
+	/**
+	 * Return the transfer variant that this storage accepts.
+	 *
+	 * @return The allowed variant for this storage.
+	 */
+	protected abstract T getAllowedVariant();
+
+	/**
+	 * Called after a reservation of this storage was confirmed by the commit of an outer transaction,
+	 * once for every insertion or extraction that was part of the transaction.
+	 * It may run on any thread that uses this storage.
+	 */
+	protected void onFinalCommit() {
+	}
+
+	/**
+	 * Insert into the storage using the allowed variant.
+	 *
+	 * @param maxAmount maximum amount to insert
+	 * @param transaction transaction context
+	 * @return amount inserted
+	 */
+	public long insert(long maxAmount, @NotNull TransactionContext transaction) {
+		return insert(getAllowedVariant(), maxAmount, transaction);
+	}
+
+	/**
+	 * Extract from the storage using the allowed variant.
+	 *
+	 * @param maxAmount maximum amount to extract
+	 * @param transaction transaction context
+	 * @return amount extracted
+	 */
+	public long extract(long maxAmount, @NotNull TransactionContext transaction) {
+		return extract(getAllowedVariant(), maxAmount, transaction);
+	}
+
+	@Override
+	public long insert(T insertedVariant, long maxAmount, @NotNull TransactionContext transaction) {
+		StoragePreconditions.notBlankNotNegative(insertedVariant, maxAmount);
+
+		if (!insertedVariant.equals(getAllowedVariant())) {
+			return 0;
+		}
+
+		long capacity = getCapacity();
+		long currentlyOccupied;
+		long insertedAmount;
+
+		do {
+			currentlyOccupied = occupied.get();
+			insertedAmount = Math.min(maxAmount, capacity - currentlyOccupied);
+
+			if (insertedAmount <= 0) {
+				return 0;
+			}
+		} while (!occupied.compareAndSet(currentlyOccupied, currentlyOccupied + insertedAmount));
+
+		transaction.addCloseCallback(new Reservation(true, insertedAmount));
+		return insertedAmount;
+	}
+
+	@Override
+	public long extract(T extractedVariant, long maxAmount, @NotNull TransactionContext transaction) {
+		StoragePreconditions.notBlankNotNegative(extractedVariant, maxAmount);
+
+		if (!extractedVariant.equals(getAllowedVariant())) {
+			return 0;
+		}
+
+		long currentlyAvailable;
+		long extractedAmount;
+
+		do {
+			currentlyAvailable = available.get();
+			extractedAmount = Math.min(maxAmount, currentlyAvailable);
+
+			if (extractedAmount <= 0) {
+				return 0;
+			}
+		} while (!available.compareAndSet(currentlyAvailable, currentlyAvailable - extractedAmount));
+
+		transaction.addCloseCallback(new Reservation(false, extractedAmount));
+		return extractedAmount;
+	}
+
+	@Override
+	public boolean isResourceBlank() {
+		return getAmount() == 0;
+	}
+
+	@Override
+	public T getResource() {
+		return getAmount() == 0 ? getBlankVariant() : getAllowedVariant();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>This is the committed amount, minus the extractions reserved by open transactions.
+	 */
+	@Override
+	public long getAmount() {
+		return available.get();
+	}
+
+	@Override
+	public long getVersion() {
+		if (Transaction.isOpen()) {
+			throw new IllegalStateException("getVersion() may not be called during a transaction.");
+		}
+
+		return version.get();
+	}
+
+	@Override
+	public String toString() {
+		return "AtomicFixedVariantStorage[%d/%d %s]".formatted(getAmount(), getCapacity(), getAllowedVariant());
+	}
+
+	/**
+	 * An amount reserved by an insertion or an extraction, that follows the transaction up to the outer transaction.
+	 */
+	private final class Reservation implements TransactionContext.CloseCallback, TransactionContext.OuterCloseCallback {
+		private final boolean insertion;
+		private final long amount;
+
+		private Reservation(boolean insertion, long amount) {
+			this.insertion = insertion;
+			this.amount = amount;
+		}
+
+		@Override
+		public void onClose(@NotNull TransactionContext transaction, TransactionContext.Result result) {
+			if (result.wasAborted()) {
+				// Release the reservation.
+				if (insertion) {
+					occupied.addAndGet(-amount);
+				} else {
+					available.addAndGet(amount);
+				}
+			} else if (transaction.nestingDepth() > 0) {
+				// The parent transaction may still be aborted: keep the reservation until it is closed.
+				transaction.getOpenTransaction(transaction.nestingDepth() - 1).addCloseCallback(this);
+			} else {
+				// Confirm the reservation.
+				if (insertion) {
+					available.addAndGet(amount);
+				} else {
+					occupied.addAndGet(-amount);
+				}
+
+				version.incrementAndGet();
+				transaction.addOuterCloseCallback(this);
+			}
+		}
+
+		@Override
+		public void afterOuterClose(TransactionContext.Result result) {
+			onFinalCommit();
+		}
+	}
+}
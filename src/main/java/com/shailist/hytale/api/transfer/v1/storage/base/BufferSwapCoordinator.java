@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.shailist.hytale.api.transfer.v1.storage.Storage;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+
+/**
+ * Swaps the buffers of a group of {@link DoubleBufferedStorage}s together, at the end of every tick.
+ *
+ * <p>Every swap increments the generation of the coordinator, and the new front buffers are tagged with it.
+ * Readers that need a consistent view of several storages can compare the {@linkplain DoubleBufferedStorage.Front#generation generations}
+ * of the front buffers they read, and read again if a swap happened in the meantime.
+ *
+ * <p>Storages are created, removed and swapped on the tick thread.
+ */
+public final class BufferSwapCoordinator {
+	private final List<DoubleBufferedStorage<?>> storages = new ArrayList<>();
+	private volatile long generation = 0;
+
+	/**
+	 * Create a coordinator without any storage.
+	 */
+	public BufferSwapCoordinator() {
+	}
+
+	/**
+	 * Wrap a storage into a double-buffered storage that is swapped by this coordinator.
+	 * Must be called outside of any transaction.
+	 *
+	 * @param backBuffer The storage that is modified during ticks.
+	 * @param <T> The type of the stored resources.
+	 * @return The double-buffered storage.
+	 */
+	public <T> DoubleBufferedStorage<T> create(Storage<T> backBuffer) {
+		DoubleBufferedStorage<T> storage = new DoubleBufferedStorage<>(backBuffer);
+		// Tag the first front buffer with the current generation, like the other storages.
+		storage.swap(generation);
+		storages.add(storage);
+		return storage;
+	}
+
+	/**
+	 * Stop swapping a storage. Its front buffer is not updated anymore.
+	 *
+	 * @param storage The storage to remove.
+	 * @return True if the storage was swapped by this coordinator, and false otherwise.
+	 */
+	public boolean remove(DoubleBufferedStorage<?> storage) {
+		return storages.removeIf(registered -> registered == storage);
+	}
+
+	/**
+	 * Return the generation of the last swap, that is the number of swaps so far. Can be called from any thread.
+	 *
+	 * @return The generation of the last swap.
+	 */
+	public long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Swap the buffers of all the storages of this coordinator, making the current state of their back buffers
+	 * the new front buffers, and increment the generation.
+	 *
+	 * @throws IllegalStateException If a transaction is open on the current thread.
+	 */
+	public void swap() {
+		if (Transaction.isOpen()) {
+			throw new IllegalStateException("Buffers may not be swapped during a transaction.");
+		}
+
+		long newGeneration = generation + 1;
+
+		for (DoubleBufferedStorage<?> storage : storages) {
+			storage.swap(newGeneration);
+		}
+
+		// Published last, so that readers that see the new generation also see the new front buffers.
+		generation = newGeneration;
+	}
+}
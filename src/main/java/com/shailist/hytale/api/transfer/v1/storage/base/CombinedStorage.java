@@ -19,6 +19,7 @@
 
 package com.shailist.hytale.api.transfer.v1.storage.base;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -26,9 +27,14 @@ import java.util.StringJoiner;
 
 import com.shailist.hytale.api.transfer.v1.storage.Storage;
 import com.shailist.hytale.api.transfer.v1.storage.StoragePreconditions;
+import com.shailist.hytale.api.transfer.v1.storage.StorageReservation;
+import com.shailist.hytale.api.transfer.v1.storage.StorageSnapshot;
 import com.shailist.hytale.api.transfer.v1.storage.StorageView;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
 import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.impl.transfer.VersionAllocator;
 import org.jetbrains.annotations.NotNull;
+import org.jspecify.annotations.Nullable;
 
 /**
  * A {@link Storage} wrapping multiple storages.
@@ -44,6 +50,12 @@ public class CombinedStorage<T, S extends Storage<T>> implements Storage<T> {
 	 */
 	public List<S> parts;
 
+	// Last captured snapshot, returned again while the snapshots of the parts don't change.
+	private @Nullable StorageSnapshot<T> snapshot = null;
+	// Version returned by getVersion() while the parts and their versions are the ones it was allocated for.
+	// Replaced as a whole, so that threads that call getVersion() concurrently never see a partially updated stamp.
+	private volatile VersionStamp versionStamp = VersionStamp.EMPTY;
+
 	/**
 	 * Create a combined storage delegating to the provided parts.
 	 *
@@ -101,11 +113,97 @@ public class CombinedStorage<T, S extends Storage<T>> implements Storage<T> {
 		return amount;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The capacity is reserved in the parts in order, using their own reservations.
+	 */
+	@Override
+	public StorageReservation<T> reserveInsert(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+		StoragePreconditions.notNegative(maxAmount);
+		return new CombinedReservation(resource, true, maxAmount, transaction);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The amount is reserved in the parts in order, using their own reservations.
+	 */
+	@Override
+	public StorageReservation<T> reserveExtract(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+		StoragePreconditions.notNegative(maxAmount);
+		return new CombinedReservation(resource, false, maxAmount, transaction);
+	}
+
 	@Override
 	public @NotNull Iterator<StorageView<T>> iterator() {
 		return new CombinedIterator();
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The version only changes when the parts or their versions changed since the last call.
+	 * Can be called from several threads if the parts allow it.
+	 */
+	@Override
+	public long getVersion() {
+		if (Transaction.isOpen()) {
+			throw new IllegalStateException("getVersion() may not be called during a transaction.");
+		}
+
+		VersionStamp stamp = versionStamp;
+
+		if (!stamp.matches(parts)) {
+			// The new stamp is allocated after reading the part versions, so it is never returned for older contents.
+			stamp = new VersionStamp(parts);
+			versionStamp = stamp;
+		}
+
+		return stamp.version;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The snapshot is made of the snapshots of the parts, and it is only created again if one of them changed.
+	 */
+	@Override
+	public StorageSnapshot<T> captureSnapshot() {
+		if (Transaction.isOpen()) {
+			throw new IllegalStateException("captureSnapshot() may not be called during a transaction.");
+		}
+
+		StorageSnapshot<T> previous = snapshot;
+		List<StorageSnapshot<T>> previousChildren = previous == null ? List.of() : previous.getChildren();
+		// Only allocated once a part is found to have changed.
+		List<StorageSnapshot<T>> children = null;
+
+		for (int i = 0; i < parts.size(); i++) {
+			StorageSnapshot<T> child = parts.get(i).captureSnapshot();
+
+			if (children == null && (i >= previousChildren.size() || previousChildren.get(i) != child)) {
+				children = new ArrayList<>(parts.size());
+				children.addAll(previousChildren.subList(0, i));
+			}
+
+			if (children != null) {
+				children.add(child);
+			}
+		}
+
+		if (children == null) {
+			if (previous != null && previousChildren.size() == parts.size()) {
+				return previous;
+			}
+
+			// Parts were removed from the end.
+			children = previousChildren.subList(0, parts.size());
+		}
+
+		return snapshot = StorageSnapshot.ofChildren(children);
+	}
+
 	@Override
 	public String toString() {
 		StringJoiner partNames = new StringJoiner(", ");
@@ -117,6 +215,75 @@ public class CombinedStorage<T, S extends Storage<T>> implements Storage<T> {
 		return "CombinedStorage[" + partNames + "]";
 	}
 
+	/**
+	 * A reservation made of the non-empty reservations of the parts, in the order of the parts.
+	 */
+	private class CombinedReservation implements StorageReservation<T> {
+		private final T resource;
+		private final List<StorageReservation<T>> partReservations = new ArrayList<>();
+		private long amount = 0;
+
+		CombinedReservation(T resource, boolean insertion, long maxAmount, TransactionContext transaction) {
+			this.resource = resource;
+
+			try {
+				for (S part : parts) {
+					if (amount == maxAmount) break;
+
+					StorageReservation<T> partReservation = insertion
+							? part.reserveInsert(resource, maxAmount - amount, transaction)
+							: part.reserveExtract(resource, maxAmount - amount, transaction);
+
+					if (partReservation.getAmount() > 0) {
+						partReservations.add(partReservation);
+						amount += partReservation.getAmount();
+					}
+				}
+			} catch (RuntimeException | Error exception) {
+				release();
+				throw exception;
+			}
+		}
+
+		@Override
+		public T getResource() {
+			return resource;
+		}
+
+		@Override
+		public long getAmount() {
+			return amount;
+		}
+
+		@Override
+		public long consume(long maxAmount) {
+			StoragePreconditions.notNegative(maxAmount);
+			long consumed = 0;
+
+			// Once enough has been consumed, consuming nothing releases the remaining part reservations.
+			for (StorageReservation<T> partReservation : partReservations) {
+				consumed += partReservation.consume(maxAmount - consumed);
+			}
+
+			clear();
+			return consumed;
+		}
+
+		@Override
+		public void release() {
+			for (StorageReservation<T> partReservation : partReservations) {
+				partReservation.release();
+			}
+
+			clear();
+		}
+
+		private void clear() {
+			partReservations.clear();
+			amount = 0;
+		}
+	}
+
 	/**
 	 * The combined iterator for multiple storages.
 	 */
@@ -160,4 +327,45 @@ public class CombinedStorage<T, S extends Storage<T>> implements Storage<T> {
 			}
 		}
 	}
+
+	/**
+	 * A version, and the parts and part versions it was allocated for. Immutable.
+	 */
+	private static final class VersionStamp {
+		static final VersionStamp EMPTY = new VersionStamp(List.of());
+
+		final Storage<?>[] parts;
+		final long[] partVersions;
+		final long version;
+
+		VersionStamp(List<? extends Storage<?>> parts) {
+			int partCount = parts.size();
+			this.parts = new Storage<?>[partCount];
+			this.partVersions = new long[partCount];
+
+			for (int i = 0; i < partCount; i++) {
+				Storage<?> part = parts.get(i);
+				this.parts[i] = part;
+				this.partVersions[i] = part.getVersion();
+			}
+
+			this.version = VersionAllocator.next();
+		}
+
+		boolean matches(List<? extends Storage<?>> currentParts) {
+			if (currentParts.size() != parts.length) {
+				return false;
+			}
+
+			for (int i = 0; i < parts.length; i++) {
+				Storage<?> part = currentParts.get(i);
+
+				if (part != parts[i] || part.getVersion() != partVersions[i]) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
 }
@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.ToIntFunction;
+
+import com.google.common.collect.Iterators;
+
+import com.shailist.hytale.api.transfer.v1.storage.Storage;
+import com.shailist.hytale.api.transfer.v1.storage.StorageSnapshot;
+import com.shailist.hytale.api.transfer.v1.storage.StorageView;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionConflictException;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.impl.transfer.transaction.TransactionLock;
+import com.shailist.hytale.impl.transfer.transaction.TransactionManagerImpl;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link Storage} wrapper that makes a storage safe to use from the transactions of several threads,
+ * for example a network buffer that is shared by regions ticked in parallel.
+ *
+ * <p>The storage is protected by one or more locks, called stripes. Before an operation is forwarded to the backing storage,
+ * the stripe of the resource is acquired for the outer transaction, and it is only released once the outer transaction is closed
+ * and its outer close callbacks have run. Other threads therefore never observe uncommitted changes,
+ * and operations on resources of different stripes run in parallel.
+ * Operations that are not tied to a single resource, such as {@linkplain #iterator iteration} in a transaction
+ * and the extractions through the views it returns, acquire all the stripes.
+ * {@link #getVersion} and {@link #captureSnapshot} also wait for all the stripes, so they never observe a transaction in progress.
+ *
+ * <p>All locks have a global order, which is the creation order of the storages and then the order of the stripes in each storage.
+ * A transaction blocks when it needs a stripe that comes after all the locks it holds,
+ * and fails with a {@link TransactionConflictException} when it needs a stripe that comes before and is held by another transaction,
+ * so transactions never deadlock, even when moving resources in both directions between two concurrent storages.
+ * Failed transactions can be retried with {@link Transaction#callWithRetries}, or conflicts can be avoided entirely by
+ * acquiring all the needed stripes up front with {@link #lockAll(TransactionContext, ConcurrentStorage[])}.
+ *
+ * <p>Striping by resource is only correct if the backing storage keeps the state of resources of different stripes independent,
+ * for example a {@link CombinedStorage} of parts that each accept a single resource.
+ * Otherwise, a single stripe must be used, which is the default. To lock by slot, each slot can be wrapped separately
+ * and the wrappers can be combined with a {@link CombinedStorage}.
+ *
+ * <p>The backing storage must not be accessed directly, nor through another wrapper, once it is wrapped.
+ * Iterating outside of a transaction doesn't lock anything, so it is only safe if no transaction of another thread
+ * uses the storage at the same time.
+ *
+ * @param <T> The type of the stored resources.
+ */
+public class ConcurrentStorage<T> implements Storage<T> {
+	/**
+	 * Return a wrapper over the passed storage that is protected by a single lock.
+	 *
+	 * @param <T> The resource generic type.
+	 * @param backingStorage The storage to wrap.
+	 * @return A thread-safe wrapper over the backing storage.
+	 */
+	public static <T> ConcurrentStorage<T> of(Storage<T> backingStorage) {
+		return new ConcurrentStorage<>(backingStorage, 1, resource -> 0);
+	}
+
+	/**
+	 * Return a wrapper over the passed storage that is protected by several locks, selected by the hash code of the resource.
+	 * The backing storage must keep the state of resources of different stripes independent.
+	 *
+	 * @param <T> The resource generic type.
+	 * @param backingStorage The storage to wrap.
+	 * @param stripes The number of locks.
+	 * @return A thread-safe wrapper over the backing storage.
+	 */
+	public static <T> ConcurrentStorage<T> stripedByResource(Storage<T> backingStorage, int stripes) {
+		return new ConcurrentStorage<>(backingStorage, stripes, resource -> {
+			int hash = resource.hashCode();
+			// Spread the high bits, so that hash codes that only differ in their high bits use different stripes.
+			return hash ^ (hash >>> 16);
+		});
+	}
+
+	/**
+	 * Lock all the stripes of the passed storages for the outer transaction of the passed transaction,
+	 * in the global order of the locks. Calling this before using the storages in the transaction
+	 * guarantees that using them will not throw a {@link TransactionConflictException},
+	 * if the transaction did not hold any lock yet.
+	 *
+	 * @param transaction The transaction that will use the storages.
+	 * @param storages The storages to lock.
+	 */
+	public static void lockAll(@NotNull TransactionContext transaction, ConcurrentStorage<?>... storages) {
+		List<TransactionLock> locks = new ArrayList<>();
+
+		for (ConcurrentStorage<?> storage : storages) {
+			locks.addAll(List.of(storage.stripes));
+		}
+
+		locks.sort(Comparator.comparingLong(TransactionLock::order));
+
+		for (TransactionLock lock : locks) {
+			lock.lock(transaction);
+		}
+	}
+
+	/**
+	 * The wrapped storage. It must only be accessed while holding the corresponding stripes.
+	 */
+	protected final Storage<T> backingStorage;
+	private final TransactionLock[] stripes;
+	private final ToIntFunction<? super T> stripeFunction;
+
+	/**
+	 * Create a new concurrent storage.
+	 *
+	 * @param backingStorage The storage to wrap.
+	 * @param stripes The number of locks.
+	 * @param stripeFunction The function that maps a resource to its lock. Its result is reduced modulo the number of locks.
+	 */
+	protected ConcurrentStorage(Storage<T> backingStorage, int stripes, ToIntFunction<? super T> stripeFunction) {
+		this.backingStorage = Objects.requireNonNull(backingStorage, "Backing storage may not be null.");
+		this.stripes = TransactionLock.create(stripes);
+		this.stripeFunction = stripeFunction;
+	}
+
+	/**
+	 * Lock the stripe of a resource for the outer transaction of the passed transaction.
+	 *
+	 * @param resource The resource that is about to be accessed.
+	 * @param transaction The transaction that accesses it.
+	 * @throws TransactionConflictException If the stripe is held by another transaction and can't be waited for without risking a deadlock.
+	 */
+	protected void lock(T resource, @NotNull TransactionContext transaction) {
+		if (stripes.length == 1) {
+			stripes[0].lock(transaction);
+		} else {
+			stripes[Math.floorMod(stripeFunction.applyAsInt(resource), stripes.length)].lock(transaction);
+		}
+	}
+
+	/**
+	 * Lock all the stripes of this storage for the outer transaction of the passed transaction, in order.
+	 *
+	 * @param transaction The transaction that accesses this storage.
+	 * @throws TransactionConflictException If a stripe is held by another transaction and can't be waited for without risking a deadlock.
+	 */
+	public void lockAll(@NotNull TransactionContext transaction) {
+		for (TransactionLock stripe : stripes) {
+			stripe.lock(transaction);
+		}
+	}
+
+	@Override
+	public boolean supportsInsertion() {
+		return backingStorage.supportsInsertion();
+	}
+
+	@Override
+	public long insert(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+		lock(resource, transaction);
+		return backingStorage.insert(resource, maxAmount, transaction);
+	}
+
+	@Override
+	public boolean supportsExtraction() {
+		return backingStorage.supportsExtraction();
+	}
+
+	@Override
+	public long extract(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+		lock(resource, transaction);
+		return backingStorage.extract(resource, maxAmount, transaction);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>If a transaction is open on the current thread, all the stripes of this storage are locked for it first,
+	 * so that the views are stable until the outer transaction is closed.
+	 *
+	 * @throws TransactionConflictException If a stripe is held by another transaction and can't be waited for without risking a deadlock.
+	 */
+	@Override
+	public @NotNull Iterator<StorageView<T>> iterator() {
+		TransactionManagerImpl manager = TransactionManagerImpl.current();
+
+		if (manager != null && manager.getLifecycle() == Transaction.Lifecycle.OPEN) {
+			lockAll(manager.getCurrentUnsafe());
+		}
+
+		return Iterators.transform(backingStorage.iterator(), ConcurrentStorageView::new);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>Waits until no transaction holds a stripe of this storage, and holds all of them while the backing storage is queried.
+	 *
+	 * @throws IllegalStateException If a transaction is open on the current thread.
+	 */
+	@Override
+	public long getVersion() {
+		if (Transaction.isOpen()) {
+			throw new IllegalStateException("getVersion() may not be called during a transaction.");
+		}
+
+		lockAllOutsideTransaction();
+
+		try {
+			return backingStorage.getVersion();
+		} finally {
+			unlockAllOutsideTransaction();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>Waits until no transaction holds a stripe of this storage, and holds all of them while the snapshot is captured,
+	 * so the snapshot never contains the changes of a transaction in progress. Can be called from any thread.
+	 *
+	 * @throws IllegalStateException If a transaction is open on the current thread.
+	 */
+	@Override
+	public StorageSnapshot<T> captureSnapshot() {
+		if (Transaction.isOpen()) {
+			throw new IllegalStateException("captureSnapshot() may not be called during a transaction.");
+		}
+
+		lockAllOutsideTransaction();
+
+		try {
+			return backingStorage.captureSnapshot();
+		} finally {
+			unlockAllOutsideTransaction();
+		}
+	}
+
+	private void lockAllOutsideTransaction() {
+		// The current thread holds no lock, so acquiring the stripes in order can't deadlock.
+		for (TransactionLock stripe : stripes) {
+			stripe.lockOutsideTransaction();
+		}
+	}
+
+	private void unlockAllOutsideTransaction() {
+		for (int i = stripes.length - 1; i >= 0; i--) {
+			stripes[i].unlockOutsideTransaction();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ConcurrentStorage[" + stripes.length + " stripes/" + backingStorage + "]";
+	}
+
+	/**
+	 * This is used to ensure extractions through storage views of the backing storage also hold the locks.
+	 */
+	private class ConcurrentStorageView implements StorageView<T> {
+		private final StorageView<T> backingView;
+
+		private ConcurrentStorageView(StorageView<T> backingView) {
+			this.backingView = backingView;
+		}
+
+		@Override
+		public long extract(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+			// The view may not be tied to the stripe of the resource.
+			lockAll(transaction);
+			return backingView.extract(resource, maxAmount, transaction);
+		}
+
+		@Override
+		public boolean isResourceBlank() {
+			return backingView.isResourceBlank();
+		}
+
+		@Override
+		public T getResource() {
+			return backingView.getResource();
+		}
+
+		@Override
+		public long getAmount() {
+			return backingView.getAmount();
+		}
+
+		@Override
+		public long getCapacity() {
+			return backingView.getCapacity();
+		}
+
+		@Override
+		public StorageView<T> getUnderlyingView() {
+			return backingView.getUnderlyingView();
+		}
+	}
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import com.shailist.hytale.api.transfer.v1.storage.SlottedStorage;
+import com.shailist.hytale.api.transfer.v1.storage.Storage;
+import com.shailist.hytale.api.transfer.v1.storage.StorageReservation;
+import com.shailist.hytale.api.transfer.v1.storage.StorageSnapshot;
+import com.shailist.hytale.api.transfer.v1.storage.StorageView;
+import com.shailist.hytale.api.transfer.v1.storage.TransferVariant;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.impl.transfer.VersionAllocator;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A {@link Storage} with two buffers, for simulations that separate a read phase from a write phase.
+ *
+ * <p>The back buffer is the wrapped storage, that receives all the writes: insertions, extractions and reservations,
+ * including extractions from the views of this storage.
+ * The front buffer is an immutable {@link StorageSnapshot} of the back buffer, taken when the buffers are {@linkplain #swap swapped},
+ * usually at the end of every tick by a {@link BufferSwapCoordinator}. All the reads of this storage are served from the front buffer:
+ * {@link #iterator}, {@link #captureSnapshot} and {@link #getVersion} see the state of the previous tick,
+ * on any thread, without any synchronization besides a single volatile read, and never observe a change in the middle of a tick.
+ * Readers on other threads, such as displays or analytics, can also read the front buffer directly from {@link #getFront}.
+ * Code on the tick thread that needs the current state must read the {@linkplain #getBackBuffer back buffer} instead.
+ *
+ * <p>The views of this storage only read the front buffer, so they can be iterated from any thread,
+ * but they may only be extracted from on the tick thread, like the back buffer that they extract from.
+ * A view extracts from the slot with the same index if the back buffer is a {@link SlottedStorage},
+ * and from the whole back buffer otherwise. Since the views show the previous tick, the back buffer decides how much
+ * can actually be extracted: an extraction may move less than the amount of its view, or nothing for a resource
+ * that was extracted during this tick. Snapshots don't record capacities, so the capacity of a view is its amount.
+ *
+ * <p>Swapping is cheap: thanks to the structural sharing of snapshots, only the slots of
+ * {@link SingleVariantStorage}s and {@link CombinedStorage}s that changed since the last swap are copied.
+ *
+ * @param <T> The type of the stored resources.
+ */
+public final class DoubleBufferedStorage<T> implements Storage<T> {
+	private final Storage<T> backBuffer;
+	private volatile Front<T> front;
+	// Changed after the front buffer, when its contents change, so that a version is never read with an older front buffer.
+	private volatile long frontVersion = VersionAllocator.next();
+
+	/**
+	 * Wrap a storage into a double-buffered storage, and take the first front buffer.
+	 * Must be called on the thread that modifies the storage, outside of any transaction.
+	 *
+	 * @param backBuffer The storage that is modified during ticks. It must not be modified directly afterwards.
+	 */
+	public DoubleBufferedStorage(Storage<T> backBuffer) {
+		this.backBuffer = Objects.requireNonNull(backBuffer, "Back buffer may not be null.");
+		this.front = new Front<>(backBuffer.captureSnapshot(), 0);
+	}
+
+	/**
+	 * Return the front buffer: the state of the storage at the last swap. Can be called from any thread.
+	 *
+	 * @return The front buffer.
+	 */
+	public Front<T> getFront() {
+		return front;
+	}
+
+	/**
+	 * Make the current state of the back buffer the new front buffer.
+	 * Must be called on the thread that modifies the storage, outside of any transaction.
+	 *
+	 * @param generation The generation of the new front buffer, usually the number of the tick that just ended.
+	 * @throws IllegalStateException If a transaction is open on the current thread.
+	 */
+	public void swap(long generation) {
+		StorageSnapshot<T> snapshot = backBuffer.captureSnapshot();
+		Front<T> current = front;
+
+		if (snapshot != current.snapshot() || generation != current.generation()) {
+			front = new Front<>(snapshot, generation);
+
+			if (snapshot != current.snapshot()) {
+				frontVersion = VersionAllocator.next();
+			}
+		}
+	}
+
+	/**
+	 * Return the back buffer, that is modified during ticks.
+	 *
+	 * @return The back buffer.
+	 */
+	public Storage<T> getBackBuffer() {
+		return backBuffer;
+	}
+
+	@Override
+	public boolean supportsInsertion() {
+		return backBuffer.supportsInsertion();
+	}
+
+	@Override
+	public long insert(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+		return backBuffer.insert(resource, maxAmount, transaction);
+	}
+
+	@Override
+	public boolean supportsExtraction() {
+		return backBuffer.supportsExtraction();
+	}
+
+	@Override
+	public long extract(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+		return backBuffer.extract(resource, maxAmount, transaction);
+	}
+
+	@Override
+	public StorageReservation<T> reserveInsert(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+		return backBuffer.reserveInsert(resource, maxAmount, transaction);
+	}
+
+	@Override
+	public StorageReservation<T> reserveExtract(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+		return backBuffer.reserveExtract(resource, maxAmount, transaction);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The views show the contents of the front buffer, and extract from the back buffer. Can be called from any thread.
+	 */
+	@Override
+	public @NotNull Iterator<StorageView<T>> iterator() {
+		StorageSnapshot<T> snapshot = front.snapshot();
+		List<StorageView<T>> views = new ArrayList<>(snapshot.getSlotCount());
+
+		snapshot.forEachSlot((resource, amount) -> views.add(new FrontView(resource, amount, views.size())));
+
+		return views.iterator();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The version of the front buffer is returned, which only changes when a swap changes the contents of the front buffer.
+	 * Can be called from any thread.
+	 */
+	@Override
+	public long getVersion() {
+		return frontVersion;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The snapshot of the front buffer is returned. Can be called from any thread.
+	 */
+	@Override
+	public StorageSnapshot<T> captureSnapshot() {
+		return front.snapshot();
+	}
+
+	@Override
+	public String toString() {
+		return "DoubleBufferedStorage[" + backBuffer + "]";
+	}
+
+	/**
+	 * A view of a slot of the front buffer, that extracts from the back buffer.
+	 */
+	private class FrontView implements StorageView<T> {
+		private final T resource;
+		private final long amount;
+		// Index of the slot in the front buffer, which is the index of the matching slot of a slotted back buffer.
+		private final int slot;
+
+		private FrontView(T resource, long amount, int slot) {
+			this.resource = resource;
+			this.amount = amount;
+			this.slot = slot;
+		}
+
+		@Override
+		public long extract(T resource, long maxAmount, @NotNull TransactionContext transaction) {
+			// The back buffer is only looked up now, on the tick thread, since its slots may have changed since the swap.
+			if (backBuffer instanceof SlottedStorage<T> slottedBackBuffer) {
+				return slot < slottedBackBuffer.getSlotCount() ? slottedBackBuffer.getSlot(slot).extract(resource, maxAmount, transaction) : 0;
+			}
+
+			return backBuffer.extract(resource, maxAmount, transaction);
+		}
+
+		@Override
+		public boolean isResourceBlank() {
+			return resource instanceof TransferVariant<?> variant ? variant.isBlank() : amount == 0;
+		}
+
+		@Override
+		public T getResource() {
+			return resource;
+		}
+
+		@Override
+		public long getAmount() {
+			return amount;
+		}
+
+		@Override
+		public long getCapacity() {
+			return amount;
+		}
+	}
+
+	/**
+	 * A front buffer.
+	 *
+	 * @param snapshot The contents of the storage at the swap.
+	 * @param generation The generation passed to {@link #swap}, or 0 for the first front buffer.
+	 * @param <T> The type of the stored resources.
+	 */
+	public record Front<T>(StorageSnapshot<T> snapshot, long generation) {
+		/**
+		 * Return the total amount of the passed resource in the front buffer.
+		 *
+		 * @param resource The resource to count.
+		 * @return The total amount of the resource.
+		 */
+		public long getAmount(T resource) {
+			long[] amount = new long[1];
+
+			snapshot.forEachSlot((slotResource, slotAmount) -> {
+				if (slotResource.equals(resource)) {
+					amount[0] += slotAmount;
+				}
+			});
+
+			return amount[0];
+		}
+	}
+}
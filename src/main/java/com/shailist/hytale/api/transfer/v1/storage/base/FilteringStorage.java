@@ -25,6 +25,7 @@ import java.util.function.Supplier;
 import com.google.common.collect.Iterators;
 
 import com.shailist.hytale.api.transfer.v1.storage.Storage;
+import com.shailist.hytale.api.transfer.v1.storage.StorageSnapshot;
 import com.shailist.hytale.api.transfer.v1.storage.StorageView;
 import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
 import org.jetbrains.annotations.NotNull;
@@ -222,6 +223,11 @@ public abstract class FilteringStorage<T> implements Storage<T> {
 		return backingStorage.get().getVersion();
 	}
 
+	@Override
+	public StorageSnapshot<T> captureSnapshot() {
+		return backingStorage.get().captureSnapshot();
+	}
+
 	@Override
 	public String toString() {
 		return "FilteringStorage[" + backingStorage.get() + "/" + backingStorage + "]";
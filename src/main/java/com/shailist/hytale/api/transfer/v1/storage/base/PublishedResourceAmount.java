@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A resource and an amount that are published by one thread and read consistently by any thread,
+ * such as the committed contents of a {@link SingleVariantStorage}, returned by {@link SingleVariantStorage#getCommittedContents}.
+ *
+ * <p>This is a sequence lock: the sequence is odd while a new value is being written, and even otherwise.
+ * Readers read the sequence, the value and the sequence again, and retry if the sequence was odd or changed in the meantime,
+ * so they never observe a resource with the amount of another publication. Readers never write anything,
+ * so they never delay the publishing thread, and they only retry while a publication is in progress.
+ * Nothing is allocated when publishing.
+ *
+ * @param <T> The type of the resource.
+ */
+public final class PublishedResourceAmount<T> {
+	private static final VarHandle SEQUENCE;
+
+	static {
+		try {
+			SEQUENCE = MethodHandles.lookup().findVarHandle(PublishedResourceAmount.class, "sequence", long.class);
+		} catch (ReflectiveOperationException exception) {
+			throw new ExceptionInInitializerError(exception);
+		}
+	}
+
+	private volatile long sequence = 0;
+	// Only accessed between reads of the sequence.
+	private T resource;
+	private long amount;
+
+	PublishedResourceAmount(T resource, long amount) {
+		this.resource = resource;
+		this.amount = amount;
+	}
+
+	/**
+	 * Publish a new value. Concurrent publications are serialized, but they should be rare.
+	 */
+	void publish(T resource, long amount) {
+		long current;
+
+		// Make the sequence odd, waiting for a concurrent publication to complete if there is one.
+		while (((current = (long) SEQUENCE.getAcquire(this)) & 1) != 0 || !SEQUENCE.compareAndSet(this, current, current + 1)) {
+			Thread.onSpinWait();
+		}
+
+		this.resource = resource;
+		this.amount = amount;
+		SEQUENCE.setRelease(this, current + 2);
+	}
+
+	/**
+	 * Return the last published resource and amount.
+	 *
+	 * @return The last published value.
+	 */
+	public ResourceAmount<T> get() {
+		while (true) {
+			long before = (long) SEQUENCE.getAcquire(this);
+			T resource = this.resource;
+			long amount = this.amount;
+			// Keep the reads of the value before the second read of the sequence.
+			VarHandle.acquireFence();
+
+			if ((before & 1) == 0 && (long) SEQUENCE.getOpaque(this) == before) {
+				return new ResourceAmount<>(resource, amount);
+			}
+
+			Thread.onSpinWait();
+		}
+	}
+
+	/**
+	 * Return the last published resource.
+	 *
+	 * @return The last published resource.
+	 */
+	public T getResource() {
+		return get().resource();
+	}
+
+	/**
+	 * Return the last published amount.
+	 *
+	 * @return The last published amount.
+	 */
+	public long getAmount() {
+		return get().amount();
+	}
+
+	/**
+	 * Return the number of values that were published since this object was created.
+	 * Can be compared with the version of a previous read to detect changes without reading the value.
+	 *
+	 * @return The number of publications.
+	 */
+	public long getVersion() {
+		// Count a publication in progress as done: the reader will see it or a later one.
+		return ((long) SEQUENCE.getAcquire(this) + 1) >>> 1;
+	}
+}
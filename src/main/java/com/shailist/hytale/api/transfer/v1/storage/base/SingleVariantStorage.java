@@ -20,10 +20,16 @@
 package com.shailist.hytale.api.transfer.v1.storage.base;
 
 import com.shailist.hytale.api.transfer.v1.storage.StoragePreconditions;
+import com.shailist.hytale.api.transfer.v1.storage.StorageReservation;
+import com.shailist.hytale.api.transfer.v1.storage.StorageSnapshot;
 import com.shailist.hytale.api.transfer.v1.storage.TransferVariant;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
 import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
-import com.shailist.hytale.api.transfer.v1.transaction.base.SnapshotParticipant;
+import com.shailist.hytale.api.transfer.v1.transaction.base.ResourceAmountSnapshotParticipant;
+import com.shailist.hytale.impl.transfer.VersionAllocator;
+import com.shailist.hytale.impl.transfer.storage.SimulatedReservation;
 import org.jetbrains.annotations.NotNull;
+import org.jspecify.annotations.Nullable;
 
 /**
  * A storage that can store a single transfer variant at any given time.
@@ -31,12 +37,23 @@ import org.jetbrains.annotations.NotNull;
  * @param <T> The transfer variant type handled by this storage.
  * Implementors should at least override {@link #getCapacity(TransferVariant)},
  * and probably {@link #onFinalCommit} as well for {@code markDirty()} and similar calls.
+ * Code that doesn't own the storage can observe its changes with a {@link StorageChangeRegistry} instead.
  *
  * <p>{@link #canInsert} and {@link #canExtract} can be used for more precise control over which variants may be inserted or extracted.
  * If one of these two functions is overridden to always return false, implementors may also wish to override
  * {@link #supportsInsertion} and/or {@link #supportsExtraction}.
+ *
+ * <p>{@linkplain #reserveInsert Reservations} are held with counters of the reserved capacity and amount,
+ * that other insertions and extractions leave alone, so reserving and consuming are O(1) and don't need a simulation.
+ *
+ * <p>Snapshots are saved without allocating, through {@link #getSnapshotResource}, {@link #getSnapshotAmount}
+ * and {@link #readSnapshot(TransferVariant, long)}. Subclasses that used to override {@link #createSnapshot()} or
+ * {@link #readSnapshot(ResourceAmount)} still compile, but must override the latter methods instead for their code to be called.
+ *
+ * <p>{@link #variant} and {@link #amount} may only be read by the thread that modifies the storage.
+ * Other threads, such as UI or network threads, can read the committed contents with {@link #getCommittedContents}.
  */
-public abstract class SingleVariantStorage<T extends TransferVariant<?>> extends SnapshotParticipant<ResourceAmount<T>> implements SingleSlotStorage<T> {
+public abstract class SingleVariantStorage<T extends TransferVariant<?>> extends ResourceAmountSnapshotParticipant<T> implements SingleSlotStorage<T> {
 	/**
 	 * The currently stored variant. May be a blank variant when empty.
 	 */
@@ -47,12 +64,29 @@ public abstract class SingleVariantStorage<T extends TransferVariant<?>> extends
 	 */
 	public long amount;
 
+	// Capacity and amount held by pending reservations, and the variant of the reserved insertions.
+	// They are not part of the snapshots: every reservation adds to them in the transaction it was made in,
+	// and subtracts again when it is consumed, released, or that transaction is closed, whatever its result.
+	// Nested transactions therefore always leave them unchanged, and they are back to 0 once the outer transaction is closed.
+	private long reservedInsertion = 0;
+	private long reservedExtraction = 0;
+	private T reservedVariant;
+	// Only published once requested, since most storages are never read from other threads.
+	private volatile @Nullable PublishedResourceAmount<T> committedContents = null;
+	// Last captured snapshot, returned again while the contents don't change.
+	private @Nullable StorageSnapshot<T> snapshot = null;
+	// Version returned by getVersion(), replaced when an outer transaction that modified this storage is committed.
+	private volatile long version = VersionAllocator.next();
+	// Registry notified of the changes of this storage, if any.
+	private @Nullable StorageChangeRegistry<T> changeRegistry = null;
+
 	/**
 	 * Initializes the storage to a blank variant with zero amount.
 	 */
 	protected SingleVariantStorage() {
 		variant = getBlankVariant();
 		amount = 0;
+		reservedVariant = variant;
 	}
 
 	/**
@@ -94,9 +128,11 @@ public abstract class SingleVariantStorage<T extends TransferVariant<?>> extends
 	@Override
 	public long insert(T insertedVariant, long maxAmount, @NotNull TransactionContext transaction) {
 		StoragePreconditions.notBlankNotNegative(insertedVariant, maxAmount);
+		recordRead(transaction);
+		T acceptedVariant = getAcceptedVariant();
 
-		if ((variant.isBlank() || insertedVariant.equals(variant)) && canInsert(insertedVariant)) {
-			long insertedAmount = Math.min(maxAmount, getCapacity(insertedVariant) - amount);
+		if ((acceptedVariant.isBlank() || insertedVariant.equals(acceptedVariant)) && canInsert(insertedVariant)) {
+			long insertedAmount = Math.min(maxAmount, getCapacity(insertedVariant) - amount - reservedInsertion);
 
 			if (insertedAmount > 0) {
 				updateSnapshots(transaction);
@@ -118,9 +154,10 @@ public abstract class SingleVariantStorage<T extends TransferVariant<?>> extends
 	@Override
 	public long extract(T extractedVariant, long maxAmount, @NotNull TransactionContext transaction) {
 		StoragePreconditions.notBlankNotNegative(extractedVariant, maxAmount);
+		recordRead(transaction);
 
 		if (!variant.isBlank() && extractedVariant.equals(variant) && canExtract(extractedVariant)) {
-			long extractedAmount = Math.min(maxAmount, amount);
+			long extractedAmount = Math.min(maxAmount, amount - reservedExtraction);
 
 			if (extractedAmount > 0) {
 				updateSnapshots(transaction);
@@ -137,6 +174,40 @@ public abstract class SingleVariantStorage<T extends TransferVariant<?>> extends
 		return 0;
 	}
 
+	@Override
+	public StorageReservation<T> reserveInsert(T insertedVariant, long maxAmount, @NotNull TransactionContext transaction) {
+		StoragePreconditions.notBlankNotNegative(insertedVariant, maxAmount);
+		recordRead(transaction);
+		T acceptedVariant = getAcceptedVariant();
+		long reservedAmount = 0;
+
+		if ((acceptedVariant.isBlank() || insertedVariant.equals(acceptedVariant)) && canInsert(insertedVariant)) {
+			reservedAmount = Math.max(0, Math.min(maxAmount, getCapacity(insertedVariant) - amount - reservedInsertion));
+		}
+
+		return new Reservation(insertedVariant, true, reservedAmount, transaction);
+	}
+
+	@Override
+	public StorageReservation<T> reserveExtract(T extractedVariant, long maxAmount, @NotNull TransactionContext transaction) {
+		StoragePreconditions.notBlankNotNegative(extractedVariant, maxAmount);
+		recordRead(transaction);
+		long reservedAmount = 0;
+
+		if (!variant.isBlank() && extractedVariant.equals(variant) && canExtract(extractedVariant)) {
+			reservedAmount = Math.max(0, Math.min(maxAmount, amount - reservedExtraction));
+		}
+
+		return new Reservation(extractedVariant, false, reservedAmount, transaction);
+	}
+
+	/**
+	 * While insertions are reserved, only the reserved variant may be inserted, even if the storage is emptied in the meantime.
+	 */
+	private T getAcceptedVariant() {
+		return reservedInsertion > 0 ? reservedVariant : variant;
+	}
+
 	@Override
 	public boolean isResourceBlank() {
 		return variant.isBlank();
@@ -157,15 +228,115 @@ public abstract class SingleVariantStorage<T extends TransferVariant<?>> extends
 		return getCapacity(variant);
 	}
 
+	/**
+	 * Return the committed contents of this storage, that can be read consistently from any thread without blocking.
+	 * They are published when an outer transaction that modified this storage is committed, before {@link #onFinalCommit}.
+	 *
+	 * <p>The first call must happen on the thread that modifies the storage, outside of any transaction that modifies it.
+	 * Later calls can happen on any thread.
+	 *
+	 * @return The committed contents of this storage.
+	 */
+	public PublishedResourceAmount<T> getCommittedContents() {
+		PublishedResourceAmount<T> contents = committedContents;
+
+		if (contents == null) {
+			contents = new PublishedResourceAmount<>(variant, amount);
+			committedContents = contents;
+		}
+
+		return contents;
+	}
+
+	@Override
+	public StorageSnapshot<T> captureSnapshot() {
+		if (Transaction.isOpen()) {
+			throw new IllegalStateException("captureSnapshot() may not be called during a transaction.");
+		}
+
+		StorageSnapshot<T> snapshot = this.snapshot;
+
+		if (snapshot == null || snapshot.getAmount() != amount || !snapshot.getResource().equals(variant)) {
+			snapshot = StorageSnapshot.ofSlot(variant, amount);
+			this.snapshot = snapshot;
+		}
+
+		return snapshot;
+	}
+
+	@Override
+	public void onClose(@NotNull TransactionContext transaction, Transaction.Result result) {
+		super.onClose(transaction, result);
+		PublishedResourceAmount<T> contents = committedContents;
+
+		// Publish when the outer transaction is closed rather than in onFinalCommit, since outer close callbacks
+		// may run after other transactions were allowed to modify this storage again.
+		if (transaction.nestingDepth() == 0 && result.wasCommitted()) {
+			version = VersionAllocator.next();
+
+			if (contents != null) {
+				contents.publish(variant, amount);
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>If this storage is {@linkplain StorageChangeRegistry#track tracked}, the modification is also recorded by the registry.
+	 */
+	@Override
+	public void updateSnapshots(@NotNull TransactionContext transaction) {
+		StorageChangeRegistry<T> registry = changeRegistry;
+
+		if (registry == null) {
+			super.updateSnapshots(transaction);
+			return;
+		}
+
+		// The registry must register its close callback before this storage, so that it sees the final contents.
+		registry.prepare(transaction);
+		super.updateSnapshots(transaction);
+		registry.enlist(this, transaction);
+	}
+
+	void setChangeRegistry(StorageChangeRegistry<T> caller, @Nullable StorageChangeRegistry<T> registry) {
+		if (changeRegistry != null && changeRegistry != caller) {
+			throw new IllegalStateException("Storage " + this + " is already tracked by another registry.");
+		}
+
+		changeRegistry = registry;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>The version only changes when an outer transaction that modified this storage is committed.
+	 * Direct modifications of {@link #variant} and {@link #amount} don't change it.
+	 */
 	@Override
-	protected @NotNull ResourceAmount<T> createSnapshot() {
-		return new ResourceAmount<>(variant, amount);
+	public long getVersion() {
+		if (Transaction.isOpen()) {
+			throw new IllegalStateException("getVersion() may not be called during a transaction.");
+		}
+
+		return version;
 	}
 
 	@Override
-	protected void readSnapshot(@NotNull ResourceAmount<T> snapshot) {
-		variant = snapshot.resource();
-		amount = snapshot.amount();
+	protected @NotNull T getSnapshotResource() {
+		return variant;
+	}
+
+	@Override
+	protected long getSnapshotAmount() {
+		return amount;
+	}
+
+	@Override
+	protected void readSnapshot(@NotNull T resource, long amount) {
+		this.variant = resource;
+		this.amount = amount;
 	}
 
 	@Override
@@ -173,6 +344,86 @@ public abstract class SingleVariantStorage<T extends TransferVariant<?>> extends
 		return "SingleVariantStorage[%d %s]".formatted(amount, variant);
 	}
 
+	/**
+	 * A pending reservation, counted in {@link #reservedInsertion} or {@link #reservedExtraction} until it is consumed or released.
+	 */
+	private final class Reservation implements StorageReservation<T>, TransactionContext.CloseCallback {
+		private final T resource;
+		private final boolean insertion;
+		private final TransactionContext transaction;
+		private long amount;
+
+		private Reservation(T resource, boolean insertion, long amount, TransactionContext transaction) {
+			this.resource = resource;
+			this.insertion = insertion;
+			this.transaction = transaction;
+			this.amount = amount;
+
+			if (amount > 0) {
+				// Participate in the transaction, so that the reservation counters are also protected by its ownership.
+				updateSnapshots(transaction);
+
+				if (insertion) {
+					reservedInsertion += amount;
+					reservedVariant = resource;
+				} else {
+					reservedExtraction += amount;
+				}
+
+				// Release the reservation if it is still pending when the transaction is closed.
+				transaction.addCloseCallback(this);
+			}
+		}
+
+		@Override
+		public T getResource() {
+			return resource;
+		}
+
+		@Override
+		public long getAmount() {
+			return amount;
+		}
+
+		@Override
+		public long consume(long maxAmount) {
+			StoragePreconditions.notNegative(maxAmount);
+			long consumedAmount = Math.min(maxAmount, amount);
+
+			if (consumedAmount > 0) {
+				SimulatedReservation.validateCurrent(transaction);
+			}
+
+			release();
+
+			if (consumedAmount == 0) {
+				return 0;
+			}
+
+			return insertion ? insert(resource, consumedAmount, transaction) : extract(resource, consumedAmount, transaction);
+		}
+
+		@Override
+		public void release() {
+			if (amount == 0) {
+				return;
+			}
+
+			if (insertion) {
+				reservedInsertion -= amount;
+			} else {
+				reservedExtraction -= amount;
+			}
+
+			amount = 0;
+		}
+
+		@Override
+		public void onClose(@NotNull TransactionContext transaction, TransactionContext.Result result) {
+			release();
+		}
+	}
+
 //    TODO: Encoding
 //	/**
 //	 * Read a {@link SingleVariantStorage} from a {@link ValueInput}.
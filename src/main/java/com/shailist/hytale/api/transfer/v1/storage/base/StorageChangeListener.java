@@ -0,0 +1,39 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.util.List;
+
+/**
+ * A listener of the changes of the storages tracked by a {@link StorageChangeRegistry}.
+ *
+ * @param <T> The type of the stored resources.
+ */
+@FunctionalInterface
+public interface StorageChangeListener<T> {
+	/**
+	 * Called once after an outer transaction that changed some of the tracked slots was committed,
+	 * with the outer close callbacks of the transaction.
+	 *
+	 * @param changes The changed slots, once each, in the order they were first modified in the transaction. Never empty.
+	 */
+	void onChange(List<Change<T>> changes);
+
+	/**
+	 * The change of a slot during an outer transaction.
+	 *
+	 * @param slot The changed slot.
+	 * @param previousResource The resource in the slot before the transaction. May be blank.
+	 * @param previousAmount The amount in the slot before the transaction.
+	 * @param previousCapacity The capacity of the slot before the transaction.
+	 * @param resource The resource in the slot when the transaction was committed. May be blank.
+	 * @param amount The amount in the slot when the transaction was committed.
+	 * @param capacity The capacity of the slot when the transaction was committed.
+	 * @param <T> The type of the stored resources.
+	 */
+	record Change<T>(SingleSlotStorage<T> slot, T previousResource, long previousAmount, long previousCapacity, T resource, long amount, long capacity) {
+	}
+}
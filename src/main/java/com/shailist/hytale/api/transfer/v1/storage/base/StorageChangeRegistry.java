@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.shailist.hytale.api.transfer.v1.storage.SlottedStorage;
+import com.shailist.hytale.api.transfer.v1.storage.Storage;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import org.jetbrains.annotations.NotNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Notifies listeners of the changes of some storages, such as the slots of an inventory,
+ * so that block entities can be marked dirty or clients synced without polling the storages.
+ *
+ * <p>While an outer transaction is open, the registry collects the tracked slots that are modified,
+ * including in nested transactions, with their contents before their first modification.
+ * When the outer transaction is committed, the listeners are called once, with the slots whose contents differ,
+ * each slot appearing once however many times it was modified. Nothing is reported for aborted transactions,
+ * nor for slots whose changes were all aborted or cancelled each other out.
+ *
+ * <p>Only {@link SingleVariantStorage}s, {@link ArraySlottedStorage}s and {@link CombinedStorage}s made of them can be tracked,
+ * and a storage can only be tracked by one registry. Slots that are tracked while a transaction modifies them
+ * are only reported from the next transaction.
+ * Listeners may be added and removed from any thread, and are called on the thread that closes the transaction.
+ *
+ * @param <T> The type of the stored resources.
+ */
+public final class StorageChangeRegistry<T> {
+	private final List<StorageChangeListener<T>> listeners = new CopyOnWriteArrayList<>();
+	// Keyed by outer transaction, removed when it is closed. Transactions are only used by one thread at a time,
+	// but the transactions of several threads may modify the tracked slots in the optimistic concurrency mode.
+	private final Map<TransactionContext, Batch> batches = new ConcurrentHashMap<>();
+
+	/**
+	 * Create a registry that doesn't track any storage yet.
+	 */
+	public StorageChangeRegistry() {
+	}
+
+	/**
+	 * Start tracking the changes of a storage. Must be called on the thread that modifies the storage.
+	 *
+	 * @param storage A {@link SingleVariantStorage}, an {@link ArraySlottedStorage}, or a {@link CombinedStorage} whose parts can be tracked.
+	 * @throws IllegalArgumentException If the storage, or one of its parts, can't be tracked.
+	 * @throws IllegalStateException If the storage, or one of its parts, is already tracked by another registry.
+	 */
+	public void track(Storage<T> storage) {
+		setRegistry(storage, this);
+	}
+
+	/**
+	 * Stop tracking the changes of a storage. Must be called on the thread that modifies the storage.
+	 *
+	 * @param storage A storage previously passed to {@link #track}.
+	 * @throws IllegalArgumentException If the storage, or one of its parts, can't be tracked.
+	 * @throws IllegalStateException If the storage, or one of its parts, is tracked by another registry.
+	 */
+	public void untrack(Storage<T> storage) {
+		setRegistry(storage, null);
+	}
+
+	/**
+	 * Add a listener, that is notified of the changes of the outer transactions committed from now on.
+	 *
+	 * @param listener The listener to add.
+	 */
+	public void addListener(StorageChangeListener<T> listener) {
+		listeners.add(Objects.requireNonNull(listener, "Listener may not be null."));
+	}
+
+	/**
+	 * Remove a listener.
+	 *
+	 * @param listener The listener to remove.
+	 * @return True if the listener was registered, and false otherwise.
+	 */
+	public boolean removeListener(StorageChangeListener<T> listener) {
+		return listeners.remove(listener);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void setRegistry(Storage<T> storage, @Nullable StorageChangeRegistry<T> registry) {
+		if (storage instanceof SingleVariantStorage<?> singleVariantStorage) {
+			((SingleVariantStorage) singleVariantStorage).setChangeRegistry(this, registry);
+		} else if (storage instanceof ArraySlottedStorage<?> arraySlottedStorage) {
+			((ArraySlottedStorage) arraySlottedStorage).setChangeRegistry(this, registry);
+		} else if (storage instanceof CombinedStorage<T, ?> combinedStorage) {
+			for (Storage<T> part : combinedStorage.parts) {
+				setRegistry(part, registry);
+			}
+		} else {
+			throw new IllegalArgumentException("Changes of storage " + storage + " can't be tracked.");
+		}
+	}
+
+	/**
+	 * Return the slots of a storage that can be tracked, in iteration order.
+	 *
+	 * @throws IllegalArgumentException If the storage, or one of its parts, can't be tracked.
+	 */
+	static <T> List<SingleSlotStorage<T>> getTrackableSlots(Storage<T> storage) {
+		List<SingleSlotStorage<T>> slots = new ArrayList<>();
+		addTrackableSlots(storage, slots);
+		return slots;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void addTrackableSlots(Storage<T> storage, List<SingleSlotStorage<T>> slots) {
+		if (storage instanceof SingleVariantStorage<?> singleVariantStorage) {
+			slots.add((SingleSlotStorage<T>) singleVariantStorage);
+		} else if (storage instanceof ArraySlottedStorage<?> arraySlottedStorage) {
+			slots.addAll(((SlottedStorage<T>) arraySlottedStorage).getSlots());
+		} else if (storage instanceof CombinedStorage<T, ?> combinedStorage) {
+			for (Storage<T> part : combinedStorage.parts) {
+				addTrackableSlots(part, slots);
+			}
+		} else {
+			throw new IllegalArgumentException("Changes of storage " + storage + " can't be tracked.");
+		}
+	}
+
+	/**
+	 * Make sure that the outer transaction of the passed transaction has a batch.
+	 * Must be called before a tracked slot takes its snapshot, so that the batch is closed after the slot.
+	 */
+	void prepare(@NotNull TransactionContext transaction) {
+		TransactionContext outer = transaction.getOpenTransaction(0);
+
+		if (!batches.containsKey(outer)) {
+			Batch batch = new Batch(outer);
+			batches.put(outer, batch);
+			outer.addCloseCallback(batch);
+		}
+	}
+
+	/**
+	 * Record that a tracked slot is about to be modified in a transaction, once the slot took its snapshot
+	 * and, in the optimistic concurrency mode, became owned by the transaction.
+	 */
+	void enlist(SingleSlotStorage<T> slot, @NotNull TransactionContext transaction) {
+		Batch batch = batches.get(transaction.getOpenTransaction(0));
+
+		// Null if the slot was tracked while this transaction was already open.
+		if (batch != null) {
+			batch.enlist(slot);
+		}
+	}
+
+	/**
+	 * The contents of a slot before its first modification in an outer transaction.
+	 */
+	private record Enlisted<T>(SingleSlotStorage<T> slot, T previousResource, long previousAmount, long previousCapacity) {
+	}
+
+	/**
+	 * The slots modified during an outer transaction, and then their changes once it is committed.
+	 */
+	private final class Batch implements Transaction.CloseCallback, Transaction.OuterCloseCallback {
+		private final TransactionContext outer;
+		private final Map<SingleSlotStorage<T>, Enlisted<T>> enlistedSlots = new IdentityHashMap<>();
+		// Same as the values of enlistedSlots, in the order the slots were enlisted.
+		private final List<Enlisted<T>> enlisted = new ArrayList<>();
+		private final List<StorageChangeListener.Change<T>> changes = new ArrayList<>();
+
+		Batch(TransactionContext outer) {
+			this.outer = outer;
+		}
+
+		void enlist(SingleSlotStorage<T> slot) {
+			if (!enlistedSlots.containsKey(slot)) {
+				Enlisted<T> entry = new Enlisted<>(slot, slot.getResource(), slot.getAmount(), slot.getCapacity());
+				enlistedSlots.put(slot, entry);
+				enlisted.add(entry);
+			}
+		}
+
+		@Override
+		public void onClose(@NotNull TransactionContext transaction, Transaction.Result result) {
+			batches.remove(outer);
+
+			if (result.wasAborted()) {
+				return;
+			}
+
+			// The slots were closed before this batch, so they already hold their committed contents.
+			for (Enlisted<T> entry : enlisted) {
+				T resource = entry.slot().getResource();
+				long amount = entry.slot().getAmount();
+
+				if (amount != entry.previousAmount() || !resource.equals(entry.previousResource())) {
+					changes.add(new StorageChangeListener.Change<>(
+							entry.slot(), entry.previousResource(), entry.previousAmount(), entry.previousCapacity(),
+							resource, amount, entry.slot().getCapacity()));
+				}
+			}
+
+			if (!changes.isEmpty()) {
+				transaction.addOuterCloseCallback(this);
+			}
+		}
+
+		@Override
+		public void afterOuterClose(Transaction.Result result) {
+			List<StorageChangeListener.Change<T>> changes = List.copyOf(this.changes);
+
+			for (StorageChangeListener<T> listener : listeners) {
+				listener.onChange(changes);
+			}
+		}
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
+
+import org.jspecify.annotations.Nullable;
+
+import com.shailist.hytale.api.transfer.v1.storage.Storage;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionConflictException;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.impl.transfer.storage.MpscMailbox;
+
+/**
+ * The thread that owns some storages, such as the thread that ticks a world.
+ * Other threads access the storages of an owner through {@link AsyncStorage}s, that send their operations to the owner.
+ *
+ * <p>Operations submitted from any thread are appended to the mailbox of the owner, a lock-free queue,
+ * and the owner drains the queued operations in batches of up to {@link #MAX_BATCH_SIZE} operations:
+ * a single outer transaction, in which every operation runs in its own nested transaction, in submission order.
+ * Thousands of small operations therefore cost one outer transaction, and one round of outer close callbacks.
+ * An operation that throws only aborts its own nested transaction.
+ * Once the outer transaction is committed, and its outer close callbacks have run, the futures of the operations are completed
+ * on the owner thread. Dependent actions that should not run on the owner thread must use the {@code *Async} methods
+ * of {@link CompletableFuture}.
+ *
+ * <p>The mailbox is drained either by the owner thread calling {@link #drain} once per tick,
+ * or, if the owner was created with an executor, by a drain that is scheduled on the executor
+ * when an operation is submitted and no drain is pending, and again after a full batch if operations are left.
+ */
+public final class StorageOwner {
+	/**
+	 * The maximum number of operations run by one {@linkplain #drain drain},
+	 * so that a burst of submissions doesn't keep the owner thread busy for a whole tick.
+	 */
+	public static final int MAX_BATCH_SIZE = 4096;
+
+	private final @Nullable Executor executor;
+	private final MpscMailbox<Operation> mailbox = new MpscMailbox<>();
+	private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+	/**
+	 * Create an owner whose mailbox is drained by calling {@link #drain} on the owner thread, usually once per tick.
+	 */
+	public StorageOwner() {
+		this.executor = null;
+	}
+
+	/**
+	 * Create an owner whose mailbox is drained by the passed executor.
+	 *
+	 * @param executor An executor that runs tasks on the thread that owns the storages, outside of any transaction,
+	 *                 for example the task queue of a world.
+	 */
+	public StorageOwner(Executor executor) {
+		this.executor = Objects.requireNonNull(executor, "Executor may not be null.");
+	}
+
+	/**
+	 * Return an asynchronous view of a storage that is owned by this owner.
+	 *
+	 * @param storage The storage, which must only be accessed from the owner thread.
+	 * @param <T> The type of the stored resources.
+	 * @return An asynchronous view of the storage.
+	 */
+	public <T> AsyncStorage<T> wrap(Storage<T> storage) {
+		return new AsyncStorage<>(storage, this);
+	}
+
+	/**
+	 * Submit an operation, that is run in the next drain of this owner, in its own nested transaction.
+	 * The nested transaction is committed unless the operation throws. Can be called from any thread.
+	 *
+	 * @param operation The operation, that may only access the storages of this owner, and returns an amount.
+	 * @return A future that is completed with the amount returned by the operation once the drain is committed,
+	 * or exceptionally if the operation failed or the drain was rolled back.
+	 */
+	public CompletableFuture<Long> submit(ToLongFunction<TransactionContext> operation) {
+		Operation queuedOperation = new Operation(Objects.requireNonNull(operation, "Operation may not be null."));
+		mailbox.offer(queuedOperation);
+
+		try {
+			scheduleDrain();
+		} catch (RuntimeException exception) {
+			// The executor is probably shut down: fail the operation instead of leaving it pending forever,
+			// unless a drain already took it. A cancelled operation is skipped by the next drain, if any,
+			// which also runs the other operations.
+			if (queuedOperation.cancel()) {
+				queuedOperation.future.completeExceptionally(exception);
+			}
+		}
+
+		return queuedOperation.future;
+	}
+
+	/**
+	 * Schedule a drain on the executor, if this owner has one and no drain is pending.
+	 *
+	 * @throws RuntimeException If the executor rejected the drain.
+	 */
+	private void scheduleDrain() {
+		if (executor != null && drainScheduled.compareAndSet(false, true)) {
+			try {
+				executor.execute(this::drain);
+			} catch (RuntimeException exception) {
+				drainScheduled.set(false);
+				throw exception;
+			}
+		}
+	}
+
+	/**
+	 * Run the operations in the mailbox, up to {@link #MAX_BATCH_SIZE}, in a single outer transaction,
+	 * and then complete their futures. May only be called on the owner thread, outside of any transaction.
+	 *
+	 * <p>If the commit of the outer transaction throws because a close callback failed, the changes were still applied:
+	 * the futures are completed with the results of the operations, and the exception is then rethrown.
+	 * If the outer transaction was rolled back instead, for example because of a
+	 * {@linkplain TransactionConflictException conflict}, the futures fail with the exception, which is also rethrown.
+	 *
+	 * @return The number of operations that were run.
+	 * @throws IllegalStateException If a transaction is open on the current thread.
+	 */
+	public int drain() {
+		if (Transaction.isOpen()) {
+			throw new IllegalStateException("Storage owners may only be drained outside of transactions.");
+		}
+
+		// Clear the flag first, so that operations submitted during the drain schedule the next one.
+		drainScheduled.set(false);
+		// Local, since completing the futures may run actions that drain again.
+		List<Operation> batch = pollBatch();
+
+		if (batch.isEmpty()) {
+			return 0;
+		}
+
+		RuntimeException commitException = null;
+		boolean committed = true;
+
+		try (Transaction transaction = Transaction.openOuter()) {
+			// Failures of the operations are caught by their nested transactions.
+			for (Operation operation : batch) {
+				operation.run(transaction);
+			}
+
+			// Committed separately, so that a failure of the commit is not mistaken for a failure of the operations.
+			try {
+				transaction.commit();
+			} catch (TransactionConflictException exception) {
+				commitException = exception;
+				committed = false;
+			} catch (RuntimeException exception) {
+				// A close callback failed, after the changes were applied.
+				commitException = exception;
+			}
+		} catch (RuntimeException | Error exception) {
+			for (Operation operation : batch) {
+				operation.future.completeExceptionally(exception);
+			}
+
+			throw exception;
+		}
+
+		for (Operation operation : batch) {
+			if (committed) {
+				operation.complete();
+			} else {
+				operation.future.completeExceptionally(commitException);
+			}
+		}
+
+		if (batch.size() == MAX_BATCH_SIZE && !mailbox.isEmpty()) {
+			// Run the operations that are left in another drain, instead of keeping the owner thread busy.
+			try {
+				scheduleDrain();
+			} catch (RuntimeException exception) {
+				// They are run by the next drain, if any.
+				if (commitException == null) {
+					throw exception;
+				}
+
+				commitException.addSuppressed(exception);
+			}
+		}
+
+		if (commitException != null) {
+			throw commitException;
+		}
+
+		return batch.size();
+	}
+
+	private List<Operation> pollBatch() {
+		List<Operation> batch = new ArrayList<>();
+		Operation operation;
+
+		while (batch.size() < MAX_BATCH_SIZE && (operation = mailbox.poll()) != null) {
+			// Operations that were cancelled by their submitter stay in the mailbox until they are polled.
+			if (operation.claim()) {
+				batch.add(operation);
+			}
+		}
+
+		return batch;
+	}
+
+	private static final class Operation extends MpscMailbox.Node<Operation> {
+		private static final int PENDING = 0;
+		private static final int CLAIMED = 1;
+		private static final int CANCELLED = 2;
+		private static final VarHandle STATE;
+
+		static {
+			try {
+				STATE = MethodHandles.lookup().findVarHandle(Operation.class, "state", int.class);
+			} catch (ReflectiveOperationException exception) {
+				throw new ExceptionInInitializerError(exception);
+			}
+		}
+
+		@Nullable ToLongFunction<TransactionContext> function;
+		final CompletableFuture<Long> future = new CompletableFuture<>();
+		long result;
+		@Nullable RuntimeException failure;
+		// Claimed by the drain that runs the operation, or cancelled by the submitter if no drain could be scheduled.
+		private volatile int state = PENDING;
+
+		Operation(ToLongFunction<TransactionContext> function) {
+			this.function = function;
+		}
+
+		boolean claim() {
+			return STATE.compareAndSet(this, PENDING, CLAIMED);
+		}
+
+		boolean cancel() {
+			if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+				return false;
+			}
+
+			// The operation may stay referenced by the mailbox until the next one is polled.
+			function = null;
+			return true;
+		}
+
+		void run(Transaction transaction) {
+			try (Transaction nested = transaction.openNested()) {
+				result = function.applyAsLong(nested);
+				nested.commit();
+			} catch (RuntimeException exception) {
+				failure = exception;
+			}
+
+			// The operation may stay referenced by the mailbox until the next one is polled.
+			function = null;
+		}
+
+		void complete() {
+			if (failure != null) {
+				future.completeExceptionally(failure);
+			} else {
+				future.complete(result);
+			}
+		}
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.shailist.hytale.api.transfer.v1.storage.Storage;
+
+/**
+ * Aggregate statistics of a storage, such as the total amount of every resource or how full the storage is,
+ * that are kept up-to-date as the storage changes, so that reading them costs O(1) whatever the number of slots.
+ *
+ * <p>The storage is scanned once when the statistics are created, and then the statistics are updated
+ * with the changes of every committed outer transaction, reported by a {@link StorageChangeRegistry}.
+ * Aborted transactions are never reported, so rollbacks don't need to be undone.
+ * Modifications made outside of transactions, such as direct assignments of {@link SingleVariantStorage#amount},
+ * are not seen: {@link #recompute} must be called afterwards.
+ *
+ * <p>The registry of the statistics can also be used to listen to the changes of the storage.
+ * Statistics can be read from any thread, while they are updated by the threads that commit transactions.
+ *
+ * @param <T> The type of the stored resources.
+ */
+public final class StorageStatistics<T> {
+	/**
+	 * The fill ratio of a slot is counted as a fixed-point number with this scale, so that adding and removing
+	 * the fill ratios of slots is exact, and the sum doesn't drift from the value {@link #recompute} would find.
+	 */
+	private static final long FILL_SCALE = 1L << 30;
+
+	private final StorageChangeRegistry<T> changeRegistry = new StorageChangeRegistry<>();
+	private final List<SingleSlotStorage<T>> slots;
+	private final Map<T, Long> amounts = new HashMap<>();
+	private long totalAmount;
+	private long totalFill;
+	private int nonEmptySlotCount;
+
+	/**
+	 * Compute the statistics of a storage, and start tracking its changes.
+	 * Must be called on the thread that modifies the storage, outside of any transaction that modifies it.
+	 *
+	 * @param storage A {@link SingleVariantStorage}, an {@link ArraySlottedStorage}, or a {@link CombinedStorage} made of them, such as an inventory.
+	 * @throws IllegalArgumentException If the storage, or one of its parts, can't be tracked by a {@link StorageChangeRegistry}.
+	 * @throws IllegalStateException If the storage, or one of its parts, is already tracked by another registry.
+	 */
+	public StorageStatistics(Storage<T> storage) {
+		this.slots = StorageChangeRegistry.getTrackableSlots(storage);
+		changeRegistry.track(storage);
+		changeRegistry.addListener(this::onChange);
+		recompute();
+	}
+
+	/**
+	 * Return the registry that reports the changes of the storage to these statistics.
+	 * Other listeners may be added to it.
+	 *
+	 * @return The change registry of the storage.
+	 */
+	public StorageChangeRegistry<T> getChangeRegistry() {
+		return changeRegistry;
+	}
+
+	/**
+	 * Return the total amount of a resource in the storage.
+	 *
+	 * @param resource The resource to count.
+	 * @return The total amount of the resource.
+	 */
+	public synchronized long getAmount(T resource) {
+		return amounts.getOrDefault(resource, 0L);
+	}
+
+	/**
+	 * Return the total amount of all the resources in the storage.
+	 *
+	 * @return The total amount of all the resources.
+	 */
+	public synchronized long getTotalAmount() {
+		return totalAmount;
+	}
+
+	/**
+	 * Return the number of slots of the storage.
+	 *
+	 * @return The number of slots.
+	 */
+	public int getSlotCount() {
+		return slots.size();
+	}
+
+	/**
+	 * Return the number of slots of the storage that are not empty.
+	 *
+	 * @return The number of non-empty slots.
+	 */
+	public synchronized int getNonEmptySlotCount() {
+		return nonEmptySlotCount;
+	}
+
+	/**
+	 * Return how full the storage is: the average over all the slots of the amount in the slot divided by its capacity.
+	 *
+	 * @return The fill ratio of the storage, usually between 0 and 1, or 0 if the storage has no slots.
+	 */
+	public synchronized double getFillRatio() {
+		return slots.isEmpty() ? 0 : (double) totalFill / FILL_SCALE / slots.size();
+	}
+
+	/**
+	 * Return the comparator output of the storage: 0 if the storage is empty,
+	 * and otherwise 1 plus the {@linkplain #getFillRatio fill ratio} scaled to 14.
+	 *
+	 * @return An integer between 0 and 15 (inclusive): the comparator output for the storage.
+	 */
+	public synchronized int getComparatorOutput() {
+		if (nonEmptySlotCount == 0) {
+			return 0;
+		}
+
+		return (int) Math.min(14, Math.floor(getFillRatio() * 14)) + 1;
+	}
+
+	/**
+	 * Compute the statistics from the current contents of the storage again.
+	 * Must be called on the thread that modifies the storage, outside of any transaction that modifies it.
+	 */
+	public synchronized void recompute() {
+		amounts.clear();
+		totalAmount = 0;
+		totalFill = 0;
+		nonEmptySlotCount = 0;
+
+		for (SingleSlotStorage<T> slot : slots) {
+			add(slot.getResource(), slot.getAmount(), slot.getCapacity(), 1);
+		}
+	}
+
+	private synchronized void onChange(List<StorageChangeListener.Change<T>> changes) {
+		// Changes are applied as differences, that don't depend on the order of the batches:
+		// in the optimistic concurrency mode, the batches of different threads may be reported in any order.
+		for (StorageChangeListener.Change<T> change : changes) {
+			add(change.previousResource(), change.previousAmount(), change.previousCapacity(), -1);
+			add(change.resource(), change.amount(), change.capacity(), 1);
+		}
+	}
+
+	/**
+	 * Add the contents of a slot to the statistics if {@code sign} is 1, or remove them if it is -1.
+	 */
+	private void add(T resource, long amount, long capacity, int sign) {
+		if (amount == 0) {
+			return;
+		}
+
+		// Remove the entries of the resources that are not stored anymore, so that they don't accumulate.
+		amounts.merge(resource, sign * amount, (total, added) -> total + added == 0 ? null : total + added);
+		totalAmount += sign * amount;
+		totalFill += sign * getFill(amount, capacity);
+		nonEmptySlotCount += sign;
+	}
+
+	private static long getFill(long amount, long capacity) {
+		return capacity <= 0 ? FILL_SCALE : Math.round((double) amount / capacity * FILL_SCALE);
+	}
+}
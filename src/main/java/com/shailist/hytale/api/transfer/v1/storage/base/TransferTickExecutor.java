@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.storage.base;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.jspecify.annotations.Nullable;
+
+import com.shailist.hytale.api.transfer.v1.storage.Storage;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.impl.transfer.transaction.OuterCloseCallbackBuffer;
+import com.shailist.hytale.impl.transfer.transaction.TransactionManagerImpl;
+
+/**
+ * Runs transfer tasks, such as the machines and pipes of a world, every tick,
+ * ticking groups of tasks that don't share any storage in parallel.
+ *
+ * <p>Every task declares the storages it accesses when it is {@linkplain #addTask added}.
+ * Tasks that share a storage, directly or through other tasks, form a group. The groups are independent,
+ * so each of them is run on a worker of a {@link ForkJoinPool}, with the transactions of that worker.
+ * The tasks of a group run one after the other, in the order they were added, each in its own outer transaction.
+ *
+ * <p>The outer close callbacks of these transactions, such as {@link com.shailist.hytale.api.transfer.v1.transaction.base.SnapshotParticipant#onFinalCommit},
+ * are not invoked on the workers. Once all the groups are done, they are invoked on the thread that called {@link #tick},
+ * group by group in the order of their first task, and for each group in the order they would have been invoked.
+ * Hence the callbacks run in the same order every tick, regardless of how the groups were scheduled,
+ * and they may safely access state that is not thread-safe.
+ *
+ * <p>Storages are compared by identity: a task must declare the storages it accesses,
+ * and not only wrappers or views of them that other tasks don't declare.
+ * A storage must not be accessed by anything else while the executor is ticking.
+ *
+ * <p>Tasks are added and removed from a single thread, that is also the one that calls {@link #tick}.
+ */
+public final class TransferTickExecutor {
+	private final ForkJoinPool pool;
+	private final List<Task> tasks = new ArrayList<>();
+	private final List<Storage<?>[]> taskStorages = new ArrayList<>();
+	// Null if the groups must be computed again.
+	private @Nullable List<Group> groups = null;
+
+	/**
+	 * Create an executor that runs the groups on the {@linkplain ForkJoinPool#commonPool() common pool}.
+	 */
+	public TransferTickExecutor() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Create an executor that runs the groups on the passed pool.
+	 *
+	 * @param pool The pool to run the groups on.
+	 */
+	public TransferTickExecutor(ForkJoinPool pool) {
+		this.pool = Objects.requireNonNull(pool, "Pool may not be null.");
+	}
+
+	/**
+	 * Add a task that is run every tick.
+	 *
+	 * @param storages All the storages accessed by the task.
+	 * @param task The task.
+	 */
+	public void addTask(Collection<? extends Storage<?>> storages, Task task) {
+		Objects.requireNonNull(task, "Task may not be null.");
+		Storage<?>[] storageArray = storages.toArray(new Storage<?>[0]);
+
+		for (Storage<?> storage : storageArray) {
+			Objects.requireNonNull(storage, "Storages may not be null.");
+		}
+
+		tasks.add(task);
+		taskStorages.add(storageArray);
+		groups = null;
+	}
+
+	/**
+	 * Remove a task that was added before. Does nothing if the task was not added.
+	 *
+	 * @param task The task to remove.
+	 * @return True if the task was removed, and false otherwise.
+	 */
+	public boolean removeTask(Task task) {
+		for (int i = 0; i < tasks.size(); i++) {
+			if (tasks.get(i) == task) {
+				tasks.remove(i);
+				taskStorages.remove(i);
+				groups = null;
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Return the number of groups that are ticked in parallel, that is the number of groups of tasks that don't share any storage.
+	 *
+	 * @return The number of groups.
+	 */
+	public int getGroupCount() {
+		return getGroups().size();
+	}
+
+	/**
+	 * Run all the tasks once, and then invoke the outer close callbacks of their transactions on the current thread.
+	 *
+	 * <p>An exception thrown by a task aborts its transaction, but does not prevent the other tasks from running.
+	 * Once all the callbacks have been invoked, the first exception thrown by a task or a callback is rethrown,
+	 * with the other ones suppressed.
+	 *
+	 * @throws IllegalStateException If a transaction is open on the current thread.
+	 */
+	public void tick() {
+		if (Transaction.isOpen()) {
+			throw new IllegalStateException("Transfer tasks may not be ticked while a transaction is open on the current thread.");
+		}
+
+		List<Group> groups = getGroups();
+
+		if (groups.size() == 1) {
+			// Nothing to run in parallel.
+			groups.get(0).call();
+		} else if (!groups.isEmpty()) {
+			runInParallel(groups);
+		}
+
+		RuntimeException exception = null;
+
+		for (Group group : groups) {
+			exception = merge(exception, group.exception);
+			exception = merge(exception, group.callbacks.invokeAll());
+			group.exception = null;
+		}
+
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	private void runInParallel(List<Group> groups) {
+		List<Future<Void>> futures = pool.invokeAll(groups);
+
+		for (Future<Void> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException exception) {
+				// Unreachable: invokeAll only returns once all the groups are done.
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while ticking transfer tasks.", exception);
+			} catch (ExecutionException exception) {
+				// Groups catch exceptions, so this can only be an error.
+				if (exception.getCause() instanceof Error error) {
+					throw error;
+				}
+
+				throw new RuntimeException("Encountered an exception while ticking transfer tasks.", exception.getCause());
+			}
+		}
+	}
+
+	private static @Nullable RuntimeException merge(@Nullable RuntimeException exception, @Nullable RuntimeException newException) {
+		if (exception == null) {
+			return newException;
+		} else if (newException != null) {
+			exception.addSuppressed(newException);
+		}
+
+		return exception;
+	}
+
+	private List<Group> getGroups() {
+		if (groups == null) {
+			groups = computeGroups();
+		}
+
+		return groups;
+	}
+
+	/**
+	 * Partition the tasks into the connected components of the graph of tasks and storages, with a union-find over the storages.
+	 */
+	private List<Group> computeGroups() {
+		Map<Storage<?>, Integer> storageIndices = new IdentityHashMap<>();
+
+		for (Storage<?>[] storages : taskStorages) {
+			for (Storage<?> storage : storages) {
+				storageIndices.putIfAbsent(storage, storageIndices.size());
+			}
+		}
+
+		int[] parents = new int[storageIndices.size()];
+
+		for (int i = 0; i < parents.length; i++) {
+			parents[i] = i;
+		}
+
+		for (Storage<?>[] storages : taskStorages) {
+			for (int i = 1; i < storages.length; i++) {
+				int firstRoot = find(parents, storageIndices.get(storages[0]));
+				int root = find(parents, storageIndices.get(storages[i]));
+				// Keep the smaller index as the root, so that the result doesn't depend on the order of the unions.
+				parents[Math.max(firstRoot, root)] = Math.min(firstRoot, root);
+			}
+		}
+
+		// Groups are created in the order of their first task.
+		Group[] groupsByRoot = new Group[parents.length];
+		List<Group> groups = new ArrayList<>();
+
+		for (int i = 0; i < tasks.size(); i++) {
+			Storage<?>[] storages = taskStorages.get(i);
+			Group group;
+
+			if (storages.length == 0) {
+				// Tasks without storages are independent of everything.
+				group = new Group();
+				groups.add(group);
+			} else {
+				int root = find(parents, storageIndices.get(storages[0]));
+				group = groupsByRoot[root];
+
+				if (group == null) {
+					group = groupsByRoot[root] = new Group();
+					groups.add(group);
+				}
+			}
+
+			group.tasks.add(tasks.get(i));
+		}
+
+		return groups;
+	}
+
+	private static int find(int[] parents, int index) {
+		while (parents[index] != index) {
+			// Path halving.
+			parents[index] = parents[parents[index]];
+			index = parents[index];
+		}
+
+		return index;
+	}
+
+	/**
+	 * A transfer task, that is run every tick in its own outer transaction.
+	 */
+	@FunctionalInterface
+	public interface Task {
+		/**
+		 * Run the task. The changes are only kept if the task commits the transaction,
+		 * and the task must only access the storages that it was added with.
+		 *
+		 * @param transaction The outer transaction of the task.
+		 */
+		void run(Transaction transaction);
+	}
+
+	private static final class Group implements Callable<Void> {
+		final List<Task> tasks = new ArrayList<>();
+		final OuterCloseCallbackBuffer callbacks = new OuterCloseCallbackBuffer();
+		// Only written by the worker and read by the ticking thread after the worker is done.
+		@Nullable RuntimeException exception = null;
+
+		@Override
+		public Void call() {
+			for (Task task : tasks) {
+				try (Transaction transaction = Transaction.openOuter()) {
+					TransactionManagerImpl.deferOuterCloseCallbacks(transaction, callbacks);
+					task.run(transaction);
+				} catch (RuntimeException taskException) {
+					exception = merge(exception, taskException);
+				}
+			}
+
+			return null;
+		}
+	}
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.transaction;
+
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * An outer transaction that was {@linkplain Transaction#detach detached} from the thread it was opened on,
+ * and that can be attached to another thread to be continued there.
+ *
+ * <p>The detached transaction keeps all its state: the changes of its participants, and its close and outer close callbacks.
+ * The handle may be passed to any thread, but can only be attached once.
+ */
+@ApiStatus.NonExtendable
+public interface DetachedTransaction {
+	/**
+	 * Attach the transaction to the current thread. It becomes the current transaction of this thread,
+	 * and must then be committed, aborted or detached again on this thread.
+	 *
+	 * @return The attached transaction, which is the same object that was detached.
+	 * @throws IllegalStateException If a transaction is already open on the current thread.
+	 * @throws IllegalStateException If this transaction was already attached.
+	 */
+	Transaction attach();
+}
@@ -19,6 +19,8 @@
 
 package com.shailist.hytale.api.transfer.v1.transaction;
 
+import java.util.function.Function;
+
 import org.jetbrains.annotations.ApiStatus;
 import org.jspecify.annotations.Nullable;
 
@@ -76,9 +78,42 @@ import com.shailist.hytale.impl.transfer.transaction.TransactionManagerImpl;
  * <p>Every transaction is only valid on the thread it was opened on,
  * and attempts to use it on another thread will throw an exception.
  * Consequently, transactions can be concurrent across multiple threads, as long as they don't share any state.
+ * An outer transaction can be explicitly handed off to another thread with {@link #detach}.
+ *
+ * <p>How much of the above is checked at runtime is controlled by the {@linkplain Validation validation level},
+ * selected once at startup with the {@value #VALIDATION_PROPERTY} system property.
+ * How the transaction state is attached to threads is controlled by the {@linkplain ContextMode context mode},
+ * selected once at startup with the {@value #CONTEXT_MODE_PROPERTY} system property.
+ * Whether transactions of different threads may share participants is controlled by the {@linkplain Concurrency concurrency mode},
+ * selected once at startup with the {@value #CONCURRENCY_PROPERTY} system property.
  */
 @ApiStatus.NonExtendable
 public interface Transaction extends AutoCloseable, TransactionContext {
+	/**
+	 * Name of the system property that selects the {@linkplain Validation validation level} of transactions,
+	 * for example {@code -Dhytale.transfer.transaction.validation=light}. Defaults to {@link Validation#FULL}.
+	 *
+	 * <p>The property is read once, when transactions are first used, and cannot be changed afterwards.
+	 * This allows the JIT compiler to remove the disabled checks entirely.
+	 */
+	String VALIDATION_PROPERTY = "hytale.transfer.transaction.validation";
+
+	/**
+	 * Name of the system property that selects the {@linkplain ContextMode context mode} of transactions,
+	 * for example {@code -Dhytale.transfer.transaction.context=pooled}. Defaults to {@link ContextMode#THREAD_LOCAL}.
+	 *
+	 * <p>The property is read once, when transactions are first used, and cannot be changed afterwards.
+	 */
+	String CONTEXT_MODE_PROPERTY = "hytale.transfer.transaction.context";
+
+	/**
+	 * Name of the system property that selects the {@linkplain Concurrency concurrency mode} of transactions,
+	 * for example {@code -Dhytale.transfer.transaction.concurrency=optimistic}. Defaults to {@link Concurrency#CONFINED}.
+	 *
+	 * <p>The property is read once, when transactions are first used, and cannot be changed afterwards.
+	 */
+	String CONCURRENCY_PROPERTY = "hytale.transfer.transaction.concurrency";
+
 	/**
 	 * Open a new outer transaction.
 	 *
@@ -86,7 +121,7 @@ public interface Transaction extends AutoCloseable, TransactionContext {
 	 * @throws IllegalStateException If a transaction is already active on the current thread.
 	 */
 	static Transaction openOuter() {
-		return TransactionManagerImpl.MANAGERS.get().openOuter();
+		return TransactionManagerImpl.openOuterForCurrentThread();
 	}
 
 	/**
@@ -104,7 +139,68 @@ public interface Transaction extends AutoCloseable, TransactionContext {
 	 * @return The current lifecycle of the transaction stack on this thread.
 	 */
 	static Lifecycle getLifecycle() {
-		return TransactionManagerImpl.MANAGERS.get().getLifecycle();
+		TransactionManagerImpl manager = TransactionManagerImpl.current();
+		return manager == null ? Lifecycle.NONE : manager.getLifecycle();
+	}
+
+	/**
+	 * Get the validation level of transactions, selected by the {@value #VALIDATION_PROPERTY} system property.
+	 *
+	 * @return The validation level of transactions.
+	 */
+	static Validation getValidation() {
+		return TransactionManagerImpl.VALIDATION;
+	}
+
+	/**
+	 * Get the context mode of transactions, selected by the {@value #CONTEXT_MODE_PROPERTY} system property.
+	 *
+	 * @return The context mode of transactions.
+	 */
+	static ContextMode getContextMode() {
+		return TransactionManagerImpl.CONTEXT_MODE;
+	}
+
+	/**
+	 * Get the concurrency mode of transactions, selected by the {@value #CONCURRENCY_PROPERTY} system property.
+	 *
+	 * @return The concurrency mode of transactions.
+	 */
+	static Concurrency getConcurrency() {
+		return TransactionManagerImpl.CONCURRENCY;
+	}
+
+	/**
+	 * Run an action in a new outer transaction, and run it again in a fresh outer transaction
+	 * every time it fails with a {@link TransactionConflictException}.
+	 * The action is responsible for committing the transaction: if it returns without committing it, the transaction is aborted.
+	 * Conflicts happen in the {@link Concurrency#OPTIMISTIC} concurrency mode, and when the locks of
+	 * {@linkplain com.shailist.hytale.api.transfer.v1.storage.base.ConcurrentStorage concurrent storages} are acquired out of order.
+	 *
+	 * @param maxAttempts The maximum number of times the action is run, at least 1.
+	 * @param action The action to run. It may run several times, so it must not have side effects outside of the transaction.
+	 * @param <R> The type of the result of the action.
+	 * @return The result of the first run of the action that did not conflict.
+	 * @throws TransactionConflictException If the last allowed run of the action conflicted too.
+	 * @throws IllegalStateException If a transaction is already active on the current thread.
+	 */
+	static <R> R callWithRetries(int maxAttempts, Function<? super Transaction, ? extends R> action) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("At least one attempt is required, got " + maxAttempts);
+		}
+
+		for (int attempt = 1; ; attempt++) {
+			try (Transaction transaction = openOuter()) {
+				return action.apply(transaction);
+			} catch (TransactionConflictException exception) {
+				if (attempt == maxAttempts) {
+					throw exception;
+				}
+
+				// Give the conflicting transaction a chance to finish before trying again.
+				Thread.yield();
+			}
+		}
 	}
 
 	/**
@@ -132,7 +228,8 @@ public interface Transaction extends AutoCloseable, TransactionContext {
 	@Deprecated
 	@Nullable
 	static TransactionContext getCurrentUnsafe() {
-		return TransactionManagerImpl.MANAGERS.get().getCurrentUnsafe();
+		TransactionManagerImpl manager = TransactionManagerImpl.current();
+		return manager == null ? null : manager.getCurrentUnsafe();
 	}
 
 	/**
@@ -155,11 +252,32 @@ public interface Transaction extends AutoCloseable, TransactionContext {
 	 * @throws IllegalStateException If this function is not called on the thread this transaction was opened in.
 	 * @throws IllegalStateException If this transaction is not the current transaction.
 	 * @throws IllegalStateException If this transaction was closed.
+	 * @throws TransactionConflictException If this is an outer transaction in the {@link Concurrency#OPTIMISTIC} concurrency mode,
+	 * and a participant it read was modified by another transaction. The transaction is then aborted instead.
 	 */
 	void commit();
 
+	/**
+	 * Detach this outer transaction from the current thread, so that it can be {@linkplain DetachedTransaction#attach attached}
+	 * to another thread and continued there, for example to prepare a transfer on a worker thread and finish it on the tick thread.
+	 * All the state of the transaction is kept, but participants must not be used by two threads at once:
+	 * until the transaction is closed, the participants it touched belong to whichever thread it is attached to.
+	 *
+	 * <p>After this call, the current thread has no open transaction, and this transaction must not be used until it is attached again.
+	 * {@linkplain #close Closing} it from the thread that detached it does nothing, so it is safe to detach a transaction
+	 * that was opened in a try-with-resources block.
+	 *
+	 * @return A handle that can attach this transaction to another thread.
+	 * @throws IllegalStateException If this function is not called on the thread this transaction was opened in.
+	 * @throws IllegalStateException If this transaction is not the current transaction, in particular if a nested transaction is open.
+	 * @throws IllegalStateException If this transaction is not an outer transaction.
+	 * @throws IllegalStateException If this transaction was closed.
+	 */
+	DetachedTransaction detach();
+
 	/**
 	 * Abort the current transaction if it was not closed already.
+	 * Does nothing if called from another thread after this transaction was {@linkplain #detach detached}.
 	 */
 	@Override
 	void close();
@@ -185,4 +303,66 @@ public interface Transaction extends AutoCloseable, TransactionContext {
 		 */
 		OUTER_CLOSING
 	}
+
+	/**
+	 * How thoroughly transactions check that they are used correctly.
+	 * Using a transaction incorrectly with disabled checks corrupts the transaction state of the thread,
+	 * so lower levels should only be used for code that was tested with {@link #FULL}.
+	 */
+	enum Validation {
+		/**
+		 * Every check is performed: the thread, the nesting depth and the lifecycle of transactions.
+		 */
+		FULL,
+		/**
+		 * Only the nesting depth is checked, for example that only the current transaction is committed or aborted.
+		 * Thread and lifecycle checks are skipped.
+		 */
+		LIGHT,
+		/**
+		 * No check is performed, except when opening outer transactions and {@linkplain #detach detaching} transactions,
+		 * which are rare enough to always be checked.
+		 */
+		NONE
+	}
+
+	/**
+	 * How the transaction state is attached to threads.
+	 */
+	enum ContextMode {
+		/**
+		 * Every thread that uses transactions creates its own transaction state, and keeps it for its whole life.
+		 * This is the fastest mode for a fixed set of long-lived threads, such as a server tick thread.
+		 */
+		THREAD_LOCAL,
+		/**
+		 * Threads lease a transaction state from a shared pool when they open an outer transaction,
+		 * and return it when the outer transaction is closed.
+		 * This avoids creating a transaction state for each of many short-lived threads, such as virtual threads:
+		 * such a thread only pays for a thread-local entry, and the pooled states keep their already grown arrays.
+		 */
+		POOLED
+	}
+
+	/**
+	 * Whether transactions of different threads may share participants.
+	 */
+	enum Concurrency {
+		/**
+		 * Every participant must only be used by one thread at a time, for example because all transfers of a world happen on its tick thread.
+		 * Nothing is checked, and participants don't pay for any synchronization.
+		 */
+		CONFINED,
+		/**
+		 * Outer transactions of different threads may run concurrently against shared participants,
+		 * with software transactional memory semantics.
+		 * A participant is owned by the first outer transaction that modifies it until that transaction is closed,
+		 * and other transactions that access it fail with a {@link TransactionConflictException}.
+		 * The versions of the participants read by a transaction are validated when it commits,
+		 * so the commit fails with a {@link TransactionConflictException} if any of them was modified in the meantime.
+		 * Transactions that touch disjoint participants never conflict, and commit in parallel.
+		 * See {@link SnapshotParticipant} for what participants must do to support this mode.
+		 */
+		OPTIMISTIC
+	}
 }
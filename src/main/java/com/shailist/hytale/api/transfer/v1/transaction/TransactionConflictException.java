@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.transaction;
+
+/**
+ * Thrown when a transaction conflicts with a transaction of another thread.
+ *
+ * <p>In the {@linkplain Transaction.Concurrency#OPTIMISTIC optimistic concurrency mode}, it is thrown either when a participant
+ * that is already modified by another transaction is accessed,
+ * or by {@link Transaction#commit} when a participant that was read has been modified by another transaction since.
+ * In any mode, it is also thrown when a {@link com.shailist.hytale.api.transfer.v1.storage.base.ConcurrentStorage}
+ * can't acquire a lock without risking a deadlock.
+ * In both cases the outer transaction is, or will be once it is closed, rolled back entirely,
+ * and the whole operation can be retried, for example with {@link Transaction#callWithRetries}.
+ */
+public class TransactionConflictException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Create a new conflict exception.
+	 *
+	 * @param message The detail message.
+	 */
+	public TransactionConflictException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ *
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.shailist.hytale.api.transfer.v1.transaction.base;
+
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.impl.transfer.transaction.ParticipantVersion;
+import org.jetbrains.annotations.NotNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The transaction lifecycle shared by all snapshot participants, independent of how their snapshots are stored.
+ *
+ * <p>Subclasses keep one snapshot per nesting depth, and this class decides when they are saved, restored and committed.
+ * Most participants should extend {@link SnapshotParticipant}, which saves its snapshots as objects.
+ * Participants that need a more compact representation, such as {@link LongSnapshotParticipant} or
+ * {@link ResourceAmountSnapshotParticipant}, implement the depth-indexed hooks of this class directly:
+ * <ul>
+ *     <li>{@link #hasSnapshot}: whether a snapshot is saved at a depth,</li>
+ *     <li>{@link #saveSnapshot}: save the current state at a depth that has no snapshot,</li>
+ *     <li>{@link #restoreSnapshot}: revert to the snapshot of an aborted transaction, and forget it,</li>
+ *     <li>{@link #commitSnapshot}: keep or merge the snapshot of a committed transaction in its parent, or forget it at depth 0.</li>
+ * </ul>
+ *
+ * <p>See {@link SnapshotParticipant} for the lifecycle, and for the rules of the
+ * {@linkplain Transaction.Concurrency#OPTIMISTIC optimistic concurrency mode}, which apply to all subclasses.
+ */
+public abstract class AbstractSnapshotParticipant implements Transaction.CloseCallback, Transaction.OuterCloseCallback {
+	// Only used in the optimistic concurrency mode.
+	private final @Nullable ParticipantVersion participantVersion = ParticipantVersion.createIfOptimistic();
+
+	/**
+	 * Protected no-arg constructor to satisfy doclint requirements for default constructors.
+	 */
+	protected AbstractSnapshotParticipant() {
+	}
+
+	/**
+	 * Return whether a snapshot is saved for the passed nesting depth.
+	 * Must return false for depths that were never used.
+	 *
+	 * @param nestingDepth The nesting depth of a transaction.
+	 * @return True if a snapshot is saved for that depth, and false otherwise.
+	 */
+	protected abstract boolean hasSnapshot(int nestingDepth);
+
+	/**
+	 * Save the current state of this participant as the snapshot of the passed nesting depth, which has none yet.
+	 *
+	 * @param nestingDepth The nesting depth of the transaction that is about to modify the state.
+	 */
+	protected abstract void saveSnapshot(int nestingDepth);
+
+	/**
+	 * Revert to the snapshot of the passed nesting depth, whose transaction was aborted, and forget that snapshot.
+	 *
+	 * @param nestingDepth The nesting depth of the aborted transaction.
+	 */
+	protected abstract void restoreSnapshot(int nestingDepth);
+
+	/**
+	 * Forget the snapshot of the passed nesting depth, whose transaction was committed.
+	 * If the depth is not 0, the snapshot must become the snapshot of the parent depth if the parent has none,
+	 * and otherwise be merged into the snapshot of the parent depth.
+	 *
+	 * @param nestingDepth The nesting depth of the committed transaction.
+	 */
+	protected abstract void commitSnapshot(int nestingDepth);
+
+	/**
+	 * Called after an outer transaction succeeded,
+	 * to perform irreversible actions such as {@code markDirty()} or neighbor updates.
+	 */
+	protected void onFinalCommit() {
+	}
+
+	/**
+	 * Update the stored snapshots so that the changes happening as part of the passed transaction can be correctly
+	 * committed or rolled back.
+	 * This function should be called every time the participant is about to change its internal state as part of a transaction.
+	 *
+	 * @param transaction The transaction during which the state will change.
+	 */
+	public void updateSnapshots(@NotNull TransactionContext transaction) {
+		int nestingDepth = transaction.nestingDepth();
+
+		// If there is no snapshot at this depth, we need to save one, and we need to register a callback.
+		if (!hasSnapshot(nestingDepth)) {
+			if (participantVersion != null) {
+				// First modification in this transaction: become the owner of this participant before reading its state.
+				participantVersion.claim(transaction);
+			}
+
+			saveSnapshot(nestingDepth);
+			transaction.addCloseCallback(this);
+		}
+	}
+
+	/**
+	 * Record that the state of this participant is about to be read as part of the passed transaction,
+	 * to decide how to modify it or what to return.
+	 * This only matters in the {@linkplain Transaction.Concurrency#OPTIMISTIC optimistic concurrency mode}, and does nothing otherwise.
+	 *
+	 * @param transaction The transaction during which the state will be read.
+	 * @throws com.shailist.hytale.api.transfer.v1.transaction.TransactionConflictException If another transaction is modifying this participant.
+	 */
+	public void recordRead(@NotNull TransactionContext transaction) {
+		if (participantVersion != null) {
+			participantVersion.recordRead(transaction);
+		}
+	}
+
+	@Override
+	public void onClose(@NotNull TransactionContext transaction, Transaction.Result result) {
+		int nestingDepth = transaction.nestingDepth();
+
+		if (result.wasAborted()) {
+			// If the transaction was aborted, we just revert to the state of the snapshot.
+			restoreSnapshot(nestingDepth);
+		} else if (nestingDepth > 0) {
+			boolean parentHasSnapshot = hasSnapshot(nestingDepth - 1);
+			// Move the snapshot one nesting level up, or merge it into the older snapshot at the nesting level above.
+			commitSnapshot(nestingDepth);
+
+			if (!parentHasSnapshot) {
+				// This is the first snapshot at this level: we need to call addCloseCallback.
+				transaction.getOpenTransaction(nestingDepth - 1).addCloseCallback(this);
+			}
+		} else {
+			commitSnapshot(nestingDepth);
+			transaction.addOuterCloseCallback(this);
+		}
+	}
+
+	@Override
+	public void afterOuterClose(Transaction.Result result) {
+		// The result is guaranteed to be COMMITTED,
+		// as this is only scheduled during onClose() when the outer transaction is successful.
+		onFinalCommit();
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ *
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.shailist.hytale.api.transfer.v1.transaction.base;
+
+import java.util.Arrays;
+
+/**
+ * A snapshot participant whose whole state fits in a {@code long},
+ * such as the primitive cells of {@link com.shailist.hytale.api.transfer.v1.transaction.types}.
+ *
+ * <p>Snapshots are saved in a depth-indexed {@code long} array instead of boxed objects.
+ * Once the array is large enough for the deepest transaction that modified this participant,
+ * taking, committing and reverting snapshots does not allocate anything.
+ *
+ * <h2>How to use from subclasses</h2>
+ * <ul>
+ *     <li>Call {@link #updateSnapshots} right before the state of your subclass is modified in a transaction.</li>
+ *     <li>Override {@link #createSnapshot}: it is called when necessary to encode the state of your subclass in a {@code long}.</li>
+ *     <li>Override {@link #readSnapshot}: it is called when necessary to revert to a previous state of your subclass.</li>
+ *     <li>You may optionally override {@link #onFinalCommit}: it is called at the end of a transaction that modified the state.
+ *     For example, it could contain a call to {@code markDirty()}.</li>
+ * </ul>
+ *
+ * <p>The lifecycle is the one of {@link AbstractSnapshotParticipant}, shared with {@link SnapshotParticipant},
+ * including the support for the {@linkplain com.shailist.hytale.api.transfer.v1.transaction.Transaction.Concurrency#OPTIMISTIC optimistic concurrency mode}.
+ */
+public abstract class LongSnapshotParticipant extends AbstractSnapshotParticipant {
+	private static final long[] NO_SNAPSHOTS = new long[0];
+	private static final boolean[] NO_PRESENCE = new boolean[0];
+
+	// Both arrays are indexed by nesting depth.
+	private long[] snapshots = NO_SNAPSHOTS;
+	private boolean[] hasSnapshot = NO_PRESENCE;
+
+	/**
+	 * Protected no-arg constructor to satisfy doclint requirements for default constructors.
+	 */
+	protected LongSnapshotParticipant() {
+	}
+
+	/**
+	 * Return the current state of this participant, encoded in a {@code long}.
+	 *
+	 * @return The encoded state of this participant.
+	 */
+	protected abstract long createSnapshot();
+
+	/**
+	 * Roll back to a state previously encoded by {@link #createSnapshot}.
+	 *
+	 * @param snapshot The encoded state.
+	 */
+	protected abstract void readSnapshot(long snapshot);
+
+	@Override
+	protected boolean hasSnapshot(int nestingDepth) {
+		return nestingDepth < hasSnapshot.length && hasSnapshot[nestingDepth];
+	}
+
+	@Override
+	protected void saveSnapshot(int nestingDepth) {
+		// Make sure we have enough storage for snapshots
+		if (snapshots.length <= nestingDepth) {
+			int newLength = Math.max(nestingDepth + 1, snapshots.length * 2);
+			snapshots = Arrays.copyOf(snapshots, newLength);
+			hasSnapshot = Arrays.copyOf(hasSnapshot, newLength);
+		}
+
+		snapshots[nestingDepth] = createSnapshot();
+		hasSnapshot[nestingDepth] = true;
+	}
+
+	@Override
+	protected void restoreSnapshot(int nestingDepth) {
+		hasSnapshot[nestingDepth] = false;
+		readSnapshot(snapshots[nestingDepth]);
+	}
+
+	@Override
+	protected void commitSnapshot(int nestingDepth) {
+		if (nestingDepth > 0 && !hasSnapshot[nestingDepth - 1]) {
+			// No snapshot yet, so move the snapshot one nesting level up.
+			snapshots[nestingDepth - 1] = snapshots[nestingDepth];
+			hasSnapshot[nestingDepth - 1] = true;
+		}
+
+		// Otherwise, there is already an older snapshot at the nesting level above, and the newer one is simply dropped.
+		hasSnapshot[nestingDepth] = false;
+	}
+}
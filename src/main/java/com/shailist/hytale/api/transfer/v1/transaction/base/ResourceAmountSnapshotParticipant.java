@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ *
+ * Copyright (c) 2016, 2017, 2018, 2019 FabricMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.shailist.hytale.api.transfer.v1.transaction.base;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import com.shailist.hytale.api.transfer.v1.storage.base.ResourceAmount;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A specialization of {@link SnapshotParticipant} for participants whose whole state is a resource and an amount,
+ * such as {@link com.shailist.hytale.api.transfer.v1.storage.base.SingleVariantStorage SingleVariantStorage}.
+ *
+ * <p>Instead of creating a {@link ResourceAmount} snapshot for every nesting depth, the resource and the amount are saved in
+ * two depth-indexed arrays. Once the arrays are large enough for the deepest transaction that modified this participant,
+ * taking, committing and reverting snapshots does not allocate anything.
+ *
+ * <h2>How to use from subclasses</h2>
+ * <ul>
+ *     <li>Call {@link #updateSnapshots} right before the state of your subclass is modified in a transaction.</li>
+ *     <li>Override {@link #getSnapshotResource} and {@link #getSnapshotAmount}:
+ *     they are called when necessary to save the state of your subclass.</li>
+ *     <li>Override {@link #readSnapshot(Object, long)}: it is called when necessary to revert to a previous state of your subclass.</li>
+ *     <li>You may optionally override {@link #onFinalCommit}: it is called at the end of a transaction that modified the state.
+ *     For example, it could contain a call to {@code markDirty()}.</li>
+ * </ul>
+ *
+ * <p>The lifecycle is the one of {@link AbstractSnapshotParticipant}, shared with all other snapshot participants.
+ * The snapshot objects of {@link SnapshotParticipant} are not used: {@link #createSnapshot()} and
+ * {@link #readSnapshot(ResourceAmount)} are only kept for compatibility, and overriding them has no effect on the lifecycle.
+ *
+ * @param <T> The type of the resource saved in the snapshots.
+ */
+public abstract class ResourceAmountSnapshotParticipant<T> extends SnapshotParticipant<ResourceAmount<T>> {
+	private static final Object[] NO_RESOURCES = new Object[0];
+	private static final long[] NO_AMOUNTS = new long[0];
+
+	// Both arrays are indexed by nesting depth, a null resource means that no snapshot was taken at that depth.
+	private Object[] snapshotResources = NO_RESOURCES;
+	private long[] snapshotAmounts = NO_AMOUNTS;
+
+	/**
+	 * Protected no-arg constructor to satisfy doclint requirements for default constructors.
+	 */
+	protected ResourceAmountSnapshotParticipant() {
+	}
+
+	/**
+	 * Return the resource that is currently stored by this participant, to be saved in a snapshot.
+	 *
+	 * @return The non-null resource currently stored by this participant.
+	 */
+	protected abstract @NotNull T getSnapshotResource();
+
+	/**
+	 * Return the amount that is currently stored by this participant, to be saved in a snapshot.
+	 *
+	 * @return The amount currently stored by this participant.
+	 */
+	protected abstract long getSnapshotAmount();
+
+	/**
+	 * Roll back to a state previously saved from {@link #getSnapshotResource} and {@link #getSnapshotAmount}.
+	 *
+	 * @param resource The saved resource.
+	 * @param amount The saved amount.
+	 */
+	protected abstract void readSnapshot(@NotNull T resource, long amount);
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>Not used by the lifecycle of this participant, see the class javadoc.
+	 */
+	@Override
+	protected @NotNull ResourceAmount<T> createSnapshot() {
+		return new ResourceAmount<>(getSnapshotResource(), getSnapshotAmount());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * <p>Not used by the lifecycle of this participant, see the class javadoc.
+	 */
+	@Override
+	protected void readSnapshot(@NotNull ResourceAmount<T> snapshot) {
+		readSnapshot(snapshot.resource(), snapshot.amount());
+	}
+
+	@Override
+	protected boolean hasSnapshot(int nestingDepth) {
+		return nestingDepth < snapshotResources.length && snapshotResources[nestingDepth] != null;
+	}
+
+	@Override
+	protected void saveSnapshot(int nestingDepth) {
+		// Make sure we have enough storage for snapshots
+		if (snapshotResources.length <= nestingDepth) {
+			int newLength = Math.max(nestingDepth + 1, snapshotResources.length * 2);
+			snapshotResources = Arrays.copyOf(snapshotResources, newLength);
+			snapshotAmounts = Arrays.copyOf(snapshotAmounts, newLength);
+		}
+
+		snapshotResources[nestingDepth] = Objects.requireNonNull(getSnapshotResource(), "Snapshot resource may not be null!");
+		snapshotAmounts[nestingDepth] = getSnapshotAmount();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void restoreSnapshot(int nestingDepth) {
+		T resource = (T) snapshotResources[nestingDepth];
+		snapshotResources[nestingDepth] = null;
+		readSnapshot(resource, snapshotAmounts[nestingDepth]);
+	}
+
+	@Override
+	protected void commitSnapshot(int nestingDepth) {
+		if (nestingDepth > 0 && snapshotResources[nestingDepth - 1] == null) {
+			// No snapshot yet, so move the snapshot one nesting level up.
+			snapshotResources[nestingDepth - 1] = snapshotResources[nestingDepth];
+			snapshotAmounts[nestingDepth - 1] = snapshotAmounts[nestingDepth];
+		}
+
+		// Otherwise, there is already an older snapshot at the nesting level above, and the newer one is simply dropped.
+		snapshotResources[nestingDepth] = null;
+	}
+}
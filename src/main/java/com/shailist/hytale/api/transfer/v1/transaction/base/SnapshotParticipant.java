@@ -19,8 +19,7 @@
 
 package com.shailist.hytale.api.transfer.v1.transaction.base;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Objects;
 
 import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
@@ -40,6 +39,8 @@ import org.jetbrains.annotations.NotNull;
  *     For example, it could contain a call to {@code markDirty()}.</li>
  *     <li>(Advanced!) You may optionally override {@link #releaseSnapshot}: it is called once a snapshot object will not be used,
  *     for example you may wish to pool expensive state objects.</li>
+ *     <li>(Advanced!) You may optionally override {@link #mergeSnapshot}: it is called when a nested transaction is committed
+ *     and its parent transaction already has a snapshot. This is required for undo logs, see below.</li>
  * </ul>
  *
  * <h2>More technical explanation</h2>
@@ -54,15 +55,46 @@ import org.jetbrains.annotations.NotNull;
  * is retained. {@link #releaseSnapshot} will be called because the snapshot is not necessary anymore,
  * and {@link #onFinalCommit} will be called after the transaction is closed.
  *
+ * <h2>Undo logs</h2>
+ *
+ * <p>Copying the whole state is wasteful for large participants such as collections.
+ * Such participants can instead use the snapshot of each transaction as an undo log:
+ * <ul>
+ *     <li>{@link #createSnapshot} returns an empty log,</li>
+ *     <li>modifications call {@link #updateAndGetSnapshot} and record how to undo themselves in the returned log,</li>
+ *     <li>{@link #readSnapshot} undoes the recorded modifications, last to first,</li>
+ *     <li>{@link #mergeSnapshot} appends the log of a committed nested transaction to the log of its parent.</li>
+ * </ul>
+ * The cost of a transaction is then proportional to the number of modifications, and not to the size of the state.
+ *
+ * <h2>Optimistic concurrency</h2>
+ *
+ * <p>In the {@linkplain Transaction.Concurrency#OPTIMISTIC optimistic concurrency mode}, participants may be shared by
+ * the transactions of several threads. {@link #updateSnapshots} makes the outer transaction the owner of the participant
+ * until it is closed, and subclasses must call {@link #recordRead} before reading their state as part of a transaction,
+ * so that the read can be validated when the transaction is committed.
+ * Both throw a {@link com.shailist.hytale.api.transfer.v1.transaction.TransactionConflictException} if another transaction owns the participant.
+ *
+ * <h2>Other snapshot representations</h2>
+ *
+ * <p>The lifecycle itself is implemented by {@link AbstractSnapshotParticipant}, and this class stores the snapshot objects
+ * in its depth-indexed hooks. Subclasses may override these hooks to store their snapshots differently,
+ * in which case {@link #createSnapshot}, {@link #readSnapshot}, {@link #mergeSnapshot}, {@link #releaseSnapshot}
+ * and {@link #updateAndGetSnapshot} are not used anymore.
+ *
  * @param <T> The objects that this participant uses to save its state snapshots.
  */
-public abstract class SnapshotParticipant<T> implements Transaction.CloseCallback, Transaction.OuterCloseCallback {
+public abstract class SnapshotParticipant<T> extends AbstractSnapshotParticipant {
 	/**
 	 * Protected no-arg constructor to satisfy doclint requirements for default constructors.
 	 */
 	protected SnapshotParticipant() {
 	}
-	private final List<T> snapshots = new ArrayList<>();
+
+	private static final Object[] NO_SNAPSHOTS = new Object[0];
+
+	// Indexed by nesting depth, a null entry means that no snapshot was taken at that depth.
+	private Object[] snapshots = NO_SNAPSHOTS;
 
 	/**
 	 * Return a clone of the current state of this participant. In practice, the pattern that needs to be implemented in
@@ -100,64 +132,77 @@ public abstract class SnapshotParticipant<T> implements Transaction.CloseCallbac
 	}
 
 	/**
-	 * Called after an outer transaction succeeded,
-	 * to perform irreversible actions such as {@code markDirty()} or neighbor updates.
+	 * Merge the snapshot of a committed nested transaction into the snapshot of its parent transaction.
+	 * This is only called if the parent transaction already has a snapshot, and {@code snapshot} is
+	 * {@linkplain #releaseSnapshot released} right after.
+	 *
+	 * <p>By default, this does nothing: the snapshot of the parent transaction is older, and already describes the state
+	 * that should be restored if the parent transaction is aborted.
+	 * Participants that use their snapshots as undo logs must override this to append the log of the nested transaction
+	 * to the log of the parent transaction.
+	 *
+	 * @param parentSnapshot The snapshot of the parent transaction, that will be kept.
+	 * @param snapshot The snapshot of the committed nested transaction.
 	 */
-	protected void onFinalCommit() {
+	protected void mergeSnapshot(@NotNull T parentSnapshot, @NotNull T snapshot) {
 	}
 
 	/**
-	 * Update the stored snapshots so that the changes happening as part of the passed transaction can be correctly
-	 * committed or rolled back.
-	 * This function should be called every time the participant is about to change its internal state as part of a transaction.
+	 * Same as {@link #updateSnapshots}, but also return the snapshot of the passed transaction.
+	 * This is mostly useful for participants that record their modifications in their snapshots, see the class javadoc.
 	 *
 	 * @param transaction The transaction during which the state will change.
+	 * @return The snapshot associated with the passed transaction.
 	 */
-	public void updateSnapshots(@NotNull TransactionContext transaction) {
+	@SuppressWarnings("unchecked")
+	protected final @NotNull T updateAndGetSnapshot(@NotNull TransactionContext transaction) {
+		updateSnapshots(transaction);
+		return (T) snapshots[transaction.nestingDepth()];
+	}
+
+	@Override
+	protected boolean hasSnapshot(int nestingDepth) {
+		return nestingDepth < snapshots.length && snapshots[nestingDepth] != null;
+	}
+
+	@Override
+	protected void saveSnapshot(int nestingDepth) {
 		// Make sure we have enough storage for snapshots
-		while (snapshots.size() <= transaction.nestingDepth()) {
-			snapshots.add(null);
+		if (snapshots.length <= nestingDepth) {
+			snapshots = Arrays.copyOf(snapshots, Math.max(nestingDepth + 1, snapshots.length * 2));
 		}
 
-		// If the snapshot is null, we need to create it, and we need to register a callback.
-		if (snapshots.get(transaction.nestingDepth()) == null) {
-			T snapshot = createSnapshot();
-			Objects.requireNonNull(snapshot, "Snapshot may not be null!");
+		snapshots[nestingDepth] = Objects.requireNonNull(createSnapshot(), "Snapshot may not be null!");
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected void restoreSnapshot(int nestingDepth) {
+		// Get and remove the relevant snapshot.
+		T snapshot = (T) snapshots[nestingDepth];
+		snapshots[nestingDepth] = null;
 
-			snapshots.set(transaction.nestingDepth(), snapshot);
-			transaction.addCloseCallback(this);
-		}
+		readSnapshot(snapshot);
+		releaseSnapshot(snapshot);
 	}
 
 	@Override
-	public void onClose(@NotNull TransactionContext transaction, Transaction.Result result) {
+	@SuppressWarnings("unchecked")
+	protected void commitSnapshot(int nestingDepth) {
 		// Get and remove the relevant snapshot.
-		T snapshot = snapshots.set(transaction.nestingDepth(), null);
+		T snapshot = (T) snapshots[nestingDepth];
+		snapshots[nestingDepth] = null;
 
-		if (result.wasAborted()) {
-			// If the transaction was aborted, we just revert to the state of the snapshot.
-			readSnapshot(snapshot);
-			releaseSnapshot(snapshot);
-		} else if (transaction.nestingDepth() > 0) {
-			if (snapshots.get(transaction.nestingDepth() - 1) == null) {
-				// No snapshot yet, so move the snapshot one nesting level up.
-				snapshots.set(transaction.nestingDepth() - 1, snapshot);
-				// This is the first snapshot at this level: we need to call addCloseCallback.
-				transaction.getOpenTransaction(transaction.nestingDepth() - 1).addCloseCallback(this);
-			} else {
-				// There is already an older snapshot at the nesting level above, just release the newer one.
-				releaseSnapshot(snapshot);
-			}
+		if (nestingDepth > 0 && snapshots[nestingDepth - 1] == null) {
+			// No snapshot yet, so move the snapshot one nesting level up.
+			snapshots[nestingDepth - 1] = snapshot;
 		} else {
+			if (nestingDepth > 0) {
+				// There is already an older snapshot at the nesting level above, merge the newer one into it.
+				mergeSnapshot((T) snapshots[nestingDepth - 1], snapshot);
+			}
+
 			releaseSnapshot(snapshot);
-			transaction.addOuterCloseCallback(this);
 		}
 	}
-
-	@Override
-	public void afterOuterClose(Transaction.Result result) {
-		// The result is guaranteed to be COMMITTED,
-		// as this is only scheduled during onClose() when the outer transaction is successful.
-		onFinalCommit();
-	}
 }
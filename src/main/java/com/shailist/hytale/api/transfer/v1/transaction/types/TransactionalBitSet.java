@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.transaction.types;
+
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.api.transfer.v1.transaction.base.AbstractSnapshotParticipant;
+import com.shailist.hytale.impl.transfer.transaction.UndoLog;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Helper class that implements a transactional fixed-size set of bits,
+ * for example the occupancy or dirty flags of the slots of a storage.
+ *
+ * <p>The bits are packed in {@code long} words. Only the words modified during a transaction are saved in an undo log,
+ * each word being recorded at most once per transaction, so aborting a transaction costs time proportional
+ * to the number of words touched, not to the size of the set.
+ * Committing a nested transaction appends its log to the log of the parent transaction.
+ */
+public class TransactionalBitSet extends AbstractSnapshotParticipant {
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final long WORD_MASK = 0xFFFFFFFFFFFFFFFFL;
+    // Undo operations, stored in the undo log entries.
+    private static final int UNDO_SET_WORD = 0;
+
+    private final UndoLog.Stack undoLogs = new UndoLog.Stack();
+    private final int size;
+    private final long[] words;
+    // For every word, the tag of the last undo log that recorded its previous value.
+    // Every undo log gets a different tag, so that stale entries never match.
+    private final long[] recordedIn;
+
+    /**
+     * Create a new transactional bit set with the given number of bits, all cleared.
+     *
+     * @param size The number of bits of the set.
+     */
+    public TransactionalBitSet(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Size may not be negative, got " + size);
+        }
+
+        this.size = size;
+        this.words = new long[(size + Long.SIZE - 1) >>> ADDRESS_BITS_PER_WORD];
+        this.recordedIn = new long[words.length];
+    }
+
+    /**
+     * Return the number of bits of this set.
+     *
+     * @return The number of bits of this set.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return the value of a bit.
+     *
+     * @param index The index of the bit.
+     * @return true if the bit is set.
+     */
+    public boolean get(int index) {
+        checkIndex(index);
+        return (words[index >>> ADDRESS_BITS_PER_WORD] & (1L << index)) != 0;
+    }
+
+    /**
+     * Set a bit to {@code true} using the provided transaction.
+     *
+     * @param index The index of the bit.
+     * @param transaction The transaction to use.
+     * @return true if the bit was previously cleared.
+     */
+    public boolean set(int index, @NotNull TransactionContext transaction) {
+        checkIndex(index);
+        recordRead(transaction);
+        int wordIndex = index >>> ADDRESS_BITS_PER_WORD;
+        return setWord(wordIndex, words[wordIndex] | (1L << index), transaction);
+    }
+
+    /**
+     * Set a bit to {@code false} using the provided transaction.
+     *
+     * @param index The index of the bit.
+     * @param transaction The transaction to use.
+     * @return true if the bit was previously set.
+     */
+    public boolean clear(int index, @NotNull TransactionContext transaction) {
+        checkIndex(index);
+        recordRead(transaction);
+        int wordIndex = index >>> ADDRESS_BITS_PER_WORD;
+        return setWord(wordIndex, words[wordIndex] & ~(1L << index), transaction);
+    }
+
+    /**
+     * Set a bit to the given value using the provided transaction.
+     *
+     * @param index The index of the bit.
+     * @param value The new value of the bit.
+     * @param transaction The transaction to use.
+     * @return true if the bit changed as a result.
+     */
+    public boolean set(int index, boolean value, @NotNull TransactionContext transaction) {
+        return value ? set(index, transaction) : clear(index, transaction);
+    }
+
+    /**
+     * Clear all bits using the provided transaction. Only the words that had bits set are saved.
+     *
+     * @param transaction The transaction to use.
+     */
+    public void clear(@NotNull TransactionContext transaction) {
+        recordRead(transaction);
+
+        for (int wordIndex = 0; wordIndex < words.length; wordIndex++) {
+            setWord(wordIndex, 0, transaction);
+        }
+    }
+
+    /**
+     * Return the number of bits that are set.
+     *
+     * @return The number of bits that are set.
+     */
+    public int cardinality() {
+        int cardinality = 0;
+
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+
+        return cardinality;
+    }
+
+    /**
+     * Return the index of the first set bit at or after the given index.
+     *
+     * @param fromIndex The index to start searching from, inclusive.
+     * @return The index of the next set bit, or {@code -1} if there is no such bit.
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        }
+
+        if (fromIndex >= size) {
+            return -1;
+        }
+
+        int wordIndex = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        long word = words[wordIndex] & (WORD_MASK << fromIndex);
+
+        while (true) {
+            if (word != 0) {
+                // Bits past the size are never set, so the result is always in range.
+                return (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+            }
+
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+
+            word = words[wordIndex];
+        }
+    }
+
+    /**
+     * Return the index of the first cleared bit at or after the given index.
+     *
+     * @param fromIndex The index to start searching from, inclusive.
+     * @return The index of the next cleared bit, or {@code -1} if there is no such bit within the size of this set.
+     */
+    public int nextClearBit(int fromIndex) {
+        if (fromIndex < 0) {
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        }
+
+        if (fromIndex >= size) {
+            return -1;
+        }
+
+        int wordIndex = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        long word = ~words[wordIndex] & (WORD_MASK << fromIndex);
+
+        while (true) {
+            if (word != 0) {
+                int index = (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+                // The unused bits of the last word are cleared, and must not be returned.
+                return index < size ? index : -1;
+            }
+
+            if (++wordIndex == words.length) {
+                return -1;
+            }
+
+            word = ~words[wordIndex];
+        }
+    }
+
+    private boolean setWord(int wordIndex, long newWord, TransactionContext transaction) {
+        long previousWord = words[wordIndex];
+
+        if (previousWord == newWord) {
+            return false;
+        }
+
+        UndoLog undoLog = undoLog(transaction);
+
+        // Only the oldest value of the word in this transaction needs to be restored on abort.
+        if (recordedIn[wordIndex] != undoLog.tag()) {
+            recordedIn[wordIndex] = undoLog.tag();
+            undoLog.record(UNDO_SET_WORD, wordIndex, previousWord, null, null);
+        }
+
+        words[wordIndex] = newWord;
+        return true;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Bit index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    private UndoLog undoLog(@NotNull TransactionContext transaction) {
+        updateSnapshots(transaction);
+        return undoLogs.get(transaction.nestingDepth());
+    }
+
+    @Override
+    protected boolean hasSnapshot(int nestingDepth) {
+        return undoLogs.has(nestingDepth);
+    }
+
+    @Override
+    protected void saveSnapshot(int nestingDepth) {
+        undoLogs.open(nestingDepth);
+    }
+
+    @Override
+    protected void restoreSnapshot(int nestingDepth) {
+        UndoLog undoLog = undoLogs.take(nestingDepth);
+
+        // Undo the modifications in reverse order.
+        for (int entry = undoLog.size() - 1; entry >= 0; entry--) {
+            if (undoLog.operation(entry) != UNDO_SET_WORD) {
+                throw new IllegalStateException("Unknown undo operation: " + undoLog.operation(entry));
+            }
+
+            words[undoLog.index(entry)] = undoLog.number(entry);
+        }
+
+        undoLogs.release(undoLog);
+    }
+
+    @Override
+    protected void commitSnapshot(int nestingDepth) {
+        undoLogs.commit(nestingDepth);
+    }
+}
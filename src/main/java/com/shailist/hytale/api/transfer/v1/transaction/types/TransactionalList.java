@@ -1,16 +1,35 @@
 package com.shailist.hytale.api.transfer.v1.transaction.types;
 
 import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.impl.transfer.transaction.UndoLog;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
 
 /**
  * Helper class that implements a transactional {@link List}.
- * Extends {@link TransactionalValue} and provides transaction aware implementations for all modifying methods of {@link List}.
+ * Provides transaction aware implementations for all modifying methods of {@link List}.
+ *
+ * <p>Instead of copying the backing list for every transaction, every modification records how to undo itself
+ * in an undo log. Committing a nested transaction appends its log to the log of the parent transaction,
+ * and aborting a transaction replays its log backwards. Transactions therefore cost time proportional to the number of
+ * modifications, not to the size of the list, except for {@link #clear}, {@link #removeAll} and {@link #retainAll}
+ * which save the previous contents of the list.
+ *
+ * <p>The list returned by {@link #getValue()} must not be modified directly, or the modifications can't be rolled back.
  * @param <T> The type of the list's elements.
  */
 public class TransactionalList<T> extends TransactionalValue<List<T>> {
+    // Undo operations, stored in the undo log entries.
+    private static final int UNDO_REMOVE_AT = 0;
+    private static final int UNDO_REMOVE_RANGE = 1;
+    private static final int UNDO_INSERT_AT = 2;
+    private static final int UNDO_SET = 3;
+    private static final int UNDO_RESTORE_CONTENTS = 4;
+    private static final int UNDO_REPLACE_LIST = 5;
+
+    private final UndoLog.Stack undoLogs = new UndoLog.Stack();
+
     /**
      * Create a new transactional list with the given starting value.
      *
@@ -20,10 +39,15 @@ public class TransactionalList<T> extends TransactionalValue<List<T>> {
         super(startingValue);
     }
 
+    /**
+     * Replaces the backing list using the given transaction.
+     * @param newValue The new backing list.
+     * @param transaction Transaction to use.
+     */
     @Override
-    protected @NotNull List<T> createSnapshot() {
-        // Since List<T> is mutable, we must return a clone, or at least a new list
-        return new ArrayList<>(value);
+    public void assignValue(@NotNull List<T> newValue, @NotNull TransactionContext transaction) {
+        undoLog(transaction).record(UNDO_REPLACE_LIST, 0, 0, value, null);
+        value = newValue;
     }
 
     /**
@@ -34,8 +58,15 @@ public class TransactionalList<T> extends TransactionalValue<List<T>> {
      * @return true if the list changed as a result of the call.
      */
     public boolean add(T t, @NotNull TransactionContext transaction) {
-        updateSnapshots(transaction);
-        return value.add(t);
+        UndoLog undoLog = undoLog(transaction);
+        int index = value.size();
+        boolean changed = value.add(t);
+
+        if (changed) {
+            undoLog.record(UNDO_REMOVE_AT, index, 0, null, null);
+        }
+
+        return changed;
     }
 
     /**
@@ -46,8 +77,15 @@ public class TransactionalList<T> extends TransactionalValue<List<T>> {
      * @return true if the list contained the specified element
      */
     public boolean remove(T o, @NotNull TransactionContext transaction) {
-        updateSnapshots(transaction);
-        return value.remove(o);
+        recordRead(transaction);
+        int index = value.indexOf(o);
+
+        if (index < 0) {
+            return false;
+        }
+
+        remove(index, transaction);
+        return true;
     }
 
 
@@ -59,8 +97,7 @@ public class TransactionalList<T> extends TransactionalValue<List<T>> {
      * @return true if the list changed as a result
      */
     public boolean addAll(@NotNull Collection<? extends T> c, @NotNull TransactionContext transaction) {
-        updateSnapshots(transaction);
-        return value.addAll(c);
+        return addAll(value.size(), c, transaction);
     }
 
     /**
@@ -72,8 +109,15 @@ public class TransactionalList<T> extends TransactionalValue<List<T>> {
      * @return true if the list changed as a result
      */
     public boolean addAll(int index, @NotNull Collection<? extends T> c, @NotNull TransactionContext transaction) {
-        updateSnapshots(transaction);
-        return value.addAll(index, c);
+        UndoLog undoLog = undoLog(transaction);
+        int sizeBefore = value.size();
+        boolean changed = value.addAll(index, c);
+
+        if (changed) {
+            undoLog.record(UNDO_REMOVE_RANGE, index, value.size() - sizeBefore, null, null);
+        }
+
+        return changed;
     }
 
     /**
@@ -84,8 +128,15 @@ public class TransactionalList<T> extends TransactionalValue<List<T>> {
      * @return true if the list changed as a result
      */
     public boolean removeAll(@NotNull Collection<? extends T> c, @NotNull TransactionContext transaction) {
-        updateSnapshots(transaction);
-        return value.removeAll(c);
+        UndoLog undoLog = undoLog(transaction);
+        Object[] previousContents = value.toArray();
+        boolean changed = value.removeAll(c);
+
+        if (changed) {
+            undoLog.record(UNDO_RESTORE_CONTENTS, 0, 0, previousContents, null);
+        }
+
+        return changed;
     }
 
     /**
@@ -96,8 +147,15 @@ public class TransactionalList<T> extends TransactionalValue<List<T>> {
      * @return true if the list changed as a result
      */
     public boolean retainAll(@NotNull Collection<? extends T> c, @NotNull TransactionContext transaction) {
-        updateSnapshots(transaction);
-        return value.retainAll(c);
+        UndoLog undoLog = undoLog(transaction);
+        Object[] previousContents = value.toArray();
+        boolean changed = value.retainAll(c);
+
+        if (changed) {
+            undoLog.record(UNDO_RESTORE_CONTENTS, 0, 0, previousContents, null);
+        }
+
+        return changed;
     }
 
     /**
@@ -106,7 +164,13 @@ public class TransactionalList<T> extends TransactionalValue<List<T>> {
      * @param transaction transaction to use
      */
     public void clear(@NotNull TransactionContext transaction) {
-        updateSnapshots(transaction);
+        recordRead(transaction);
+
+        if (value.isEmpty()) {
+            return;
+        }
+
+        undoLog(transaction).record(UNDO_RESTORE_CONTENTS, 0, 0, value.toArray(), null);
         value.clear();
     }
 
@@ -119,8 +183,10 @@ public class TransactionalList<T> extends TransactionalValue<List<T>> {
      * @return the element previously at the specified position
      */
     public T set(int index, T element, @NotNull TransactionContext transaction) {
-        updateSnapshots(transaction);
-        return value.set(index, element);
+        UndoLog undoLog = undoLog(transaction);
+        T previous = value.set(index, element);
+        undoLog.record(UNDO_SET, index, 0, previous, null);
+        return previous;
     }
 
     /**
@@ -131,8 +197,9 @@ public class TransactionalList<T> extends TransactionalValue<List<T>> {
      * @param transaction transaction to use
      */
     public void add(int index, T element, @NotNull TransactionContext transaction) {
-        updateSnapshots(transaction);
+        UndoLog undoLog = undoLog(transaction);
         value.add(index, element);
+        undoLog.record(UNDO_REMOVE_AT, index, 0, null, null);
     }
 
     /**
@@ -143,7 +210,55 @@ public class TransactionalList<T> extends TransactionalValue<List<T>> {
      * @return the element previously at the specified position
      */
     public T remove(int index, @NotNull TransactionContext transaction) {
+        UndoLog undoLog = undoLog(transaction);
+        T previous = value.remove(index);
+        undoLog.record(UNDO_INSERT_AT, index, 0, previous, null);
+        return previous;
+    }
+
+    private UndoLog undoLog(@NotNull TransactionContext transaction) {
         updateSnapshots(transaction);
-        return value.remove(index);
+        return undoLogs.get(transaction.nestingDepth());
+    }
+
+    @Override
+    protected boolean hasSnapshot(int nestingDepth) {
+        return undoLogs.has(nestingDepth);
+    }
+
+    @Override
+    protected void saveSnapshot(int nestingDepth) {
+        undoLogs.open(nestingDepth);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void restoreSnapshot(int nestingDepth) {
+        UndoLog undoLog = undoLogs.take(nestingDepth);
+
+        // Undo the modifications in reverse order.
+        for (int entry = undoLog.size() - 1; entry >= 0; entry--) {
+            int index = undoLog.index(entry);
+
+            switch (undoLog.operation(entry)) {
+                case UNDO_REMOVE_AT -> value.remove(index);
+                case UNDO_REMOVE_RANGE -> value.subList(index, index + (int) undoLog.number(entry)).clear();
+                case UNDO_INSERT_AT -> value.add(index, (T) undoLog.first(entry));
+                case UNDO_SET -> value.set(index, (T) undoLog.first(entry));
+                case UNDO_RESTORE_CONTENTS -> {
+                    value.clear();
+                    value.addAll((List<T>) Arrays.asList((Object[]) undoLog.first(entry)));
+                }
+                case UNDO_REPLACE_LIST -> value = (List<T>) Objects.requireNonNull(undoLog.first(entry));
+                default -> throw new IllegalStateException("Unknown undo operation: " + undoLog.operation(entry));
+            }
+        }
+
+        undoLogs.release(undoLog);
+    }
+
+    @Override
+    protected void commitSnapshot(int nestingDepth) {
+        undoLogs.commit(nestingDepth);
     }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.transaction.types;
+
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.api.transfer.v1.transaction.base.LongSnapshotParticipant;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Helper class that implements a transactional {@code long}.
+ * Stores a {@code long}, and provides the {@link #getValue()} and {@link #assignValue(long, TransactionContext)} methods
+ * for accessing and updating the stored value.
+ *
+ * <p>Unlike a {@link TransactionalValue} of {@link Long}, the value and its snapshots are never boxed.
+ */
+public class TransactionalLong extends LongSnapshotParticipant {
+    /** The current value stored by this transactional long. */
+    protected long value;
+
+    /**
+     * Create a new transactional long with the value {@code 0}.
+     */
+    public TransactionalLong() {
+        this(0);
+    }
+
+    /**
+     * Create a new transactional long with the provided starting value.
+     *
+     * @param startingValue The initial stored value.
+     */
+    public TransactionalLong(long startingValue) {
+        this.value = startingValue;
+    }
+
+    /**
+     * Fetches the current stored value.
+     * @return The current value.
+     */
+    public long getValue() {
+        return this.value;
+    }
+
+    /**
+     * Stores a new value using the given transaction.
+     * @param newValue The new value to store.
+     * @param transaction Transaction to use.
+     */
+    public void assignValue(long newValue, @NotNull TransactionContext transaction) {
+        updateSnapshots(transaction);
+        value = newValue;
+    }
+
+    @Override
+    protected long createSnapshot() {
+        return value;
+    }
+
+    @Override
+    protected void readSnapshot(long snapshot) {
+        value = snapshot;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.transaction.types;
+
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.api.transfer.v1.transaction.base.AbstractSnapshotParticipant;
+import com.shailist.hytale.impl.transfer.transaction.UndoLog;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Helper class that implements a transactional fixed-length array of {@code long}s,
+ * for example the amounts of the slots of a storage.
+ *
+ * <p>Instead of copying the whole array for every transaction, only the modified indices are saved in an undo log.
+ * The previous value of an index is recorded the first time the index is modified in a transaction,
+ * so modifying the same index many times in one transaction does not grow the log.
+ * Committing a nested transaction appends its log to the log of the parent transaction,
+ * and aborting a transaction restores the recorded values. None of this boxes the values.
+ */
+public class TransactionalLongArray extends AbstractSnapshotParticipant {
+    // Undo operations, stored in the undo log entries.
+    private static final int UNDO_SET = 0;
+    private static final int UNDO_RESTORE_RANGE = 1;
+
+    private final UndoLog.Stack undoLogs = new UndoLog.Stack();
+    private final long[] values;
+    // For every index, the tag of the last undo log that recorded its previous value.
+    // Every undo log gets a different tag, so that stale entries never match.
+    private final long[] recordedIn;
+
+    /**
+     * Create a new transactional array of the given length, filled with zeros.
+     *
+     * @param length The length of the array.
+     */
+    public TransactionalLongArray(int length) {
+        this(new long[length]);
+    }
+
+    /**
+     * Create a new transactional array with the given starting values.
+     *
+     * @param startingValues Initial backing array. It must not be modified directly afterwards.
+     */
+    public TransactionalLongArray(long @NotNull [] startingValues) {
+        this.values = Objects.requireNonNull(startingValues, "Starting values may not be null.");
+        this.recordedIn = new long[startingValues.length];
+    }
+
+    /**
+     * Return the length of this array.
+     *
+     * @return The length of this array.
+     */
+    public int length() {
+        return values.length;
+    }
+
+    /**
+     * Return the current value at an index.
+     *
+     * @param index The index to read.
+     * @return The current value at that index.
+     */
+    public long get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Set the value at an index using the provided transaction.
+     *
+     * @param index The index to modify.
+     * @param value The new value.
+     * @param transaction The transaction to use.
+     * @return The previous value at that index.
+     */
+    public long set(int index, long value, @NotNull TransactionContext transaction) {
+        recordPreviousValue(index, undoLog(transaction));
+        long previous = values[index];
+        values[index] = value;
+        return previous;
+    }
+
+    /**
+     * Add a delta to the value at an index using the provided transaction.
+     *
+     * @param index The index to modify.
+     * @param delta The value to add, may be negative.
+     * @param transaction The transaction to use.
+     * @return The new value at that index.
+     */
+    public long add(int index, long delta, @NotNull TransactionContext transaction) {
+        recordPreviousValue(index, undoLog(transaction));
+        return values[index] += delta;
+    }
+
+    /**
+     * Set all values in a range using the provided transaction.
+     * The previous values of the range are saved as a whole.
+     *
+     * @param fromIndex The first index to modify, inclusive.
+     * @param toIndex The last index to modify, exclusive.
+     * @param value The new value.
+     * @param transaction The transaction to use.
+     */
+    public void fill(int fromIndex, int toIndex, long value, @NotNull TransactionContext transaction) {
+        Objects.checkFromToIndex(fromIndex, toIndex, values.length);
+
+        if (fromIndex == toIndex) {
+            return;
+        }
+
+        undoLog(transaction).record(UNDO_RESTORE_RANGE, fromIndex, 0, Arrays.copyOfRange(values, fromIndex, toIndex), null);
+        Arrays.fill(values, fromIndex, toIndex, value);
+    }
+
+    private void recordPreviousValue(int index, UndoLog undoLog) {
+        // Only the oldest value of the index in this transaction needs to be restored on abort.
+        if (recordedIn[index] != undoLog.tag()) {
+            recordedIn[index] = undoLog.tag();
+            undoLog.record(UNDO_SET, index, values[index], null, null);
+        }
+    }
+
+    private UndoLog undoLog(@NotNull TransactionContext transaction) {
+        updateSnapshots(transaction);
+        return undoLogs.get(transaction.nestingDepth());
+    }
+
+    @Override
+    protected boolean hasSnapshot(int nestingDepth) {
+        return undoLogs.has(nestingDepth);
+    }
+
+    @Override
+    protected void saveSnapshot(int nestingDepth) {
+        undoLogs.open(nestingDepth);
+    }
+
+    @Override
+    protected void restoreSnapshot(int nestingDepth) {
+        UndoLog undoLog = undoLogs.take(nestingDepth);
+
+        // Undo the modifications in reverse order.
+        for (int entry = undoLog.size() - 1; entry >= 0; entry--) {
+            int index = undoLog.index(entry);
+
+            switch (undoLog.operation(entry)) {
+                case UNDO_SET -> values[index] = undoLog.number(entry);
+                case UNDO_RESTORE_RANGE -> {
+                    long[] previousValues = (long[]) Objects.requireNonNull(undoLog.first(entry));
+                    System.arraycopy(previousValues, 0, values, index, previousValues.length);
+                }
+                default -> throw new IllegalStateException("Unknown undo operation: " + undoLog.operation(entry));
+            }
+        }
+
+        undoLogs.release(undoLog);
+    }
+
+    @Override
+    protected void commitSnapshot(int nestingDepth) {
+        undoLogs.commit(nestingDepth);
+    }
+}
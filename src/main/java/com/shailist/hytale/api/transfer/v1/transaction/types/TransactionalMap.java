@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.transaction.types;
+
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.impl.transfer.transaction.UndoLog;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Helper class that implements a transactional {@link Map}.
+ * Provides transaction aware implementations for the modifying methods of {@link Map}.
+ *
+ * <p>Every modification records the previous value of the modified key in an undo log,
+ * so aborting a transaction only restores the keys that were touched during that transaction.
+ * Committing a nested transaction appends its log to the log of the parent transaction.
+ * Transactions therefore cost time proportional to the number of modifications, not to the size of the map,
+ * except for {@link #clear} which saves the previous contents of the map.
+ *
+ * <p>Rolling back a transaction restores the mappings of the map, but not necessarily the iteration order
+ * of ordered maps such as {@link LinkedHashMap}.
+ *
+ * <p>The map returned by {@link #getValue()} must not be modified directly, or the modifications can't be rolled back.
+ * @param <K> The type of the map's keys.
+ * @param <V> The type of the map's values.
+ */
+public class TransactionalMap<K, V> extends TransactionalValue<Map<K, V>> {
+    // Undo operations, stored in the undo log entries.
+    private static final int UNDO_PUT = 0;
+    private static final int UNDO_REMOVE = 1;
+    private static final int UNDO_RESTORE_CONTENTS = 2;
+    private static final int UNDO_REPLACE_MAP = 3;
+
+    private final UndoLog.Stack undoLogs = new UndoLog.Stack();
+
+    /**
+     * Create a new transactional map, backed by an empty {@link HashMap}.
+     */
+    public TransactionalMap() {
+        this(new HashMap<>());
+    }
+
+    /**
+     * Create a new transactional map with the given starting value.
+     *
+     * @param startingValue Initial backing map.
+     */
+    public TransactionalMap(@NotNull Map<K, V> startingValue) {
+        super(startingValue);
+    }
+
+    /**
+     * Replaces the backing map using the given transaction.
+     * @param newValue The new backing map.
+     * @param transaction Transaction to use.
+     */
+    @Override
+    public void assignValue(@NotNull Map<K, V> newValue, @NotNull TransactionContext transaction) {
+        undoLog(transaction).record(UNDO_REPLACE_MAP, 0, 0, value, null);
+        value = newValue;
+    }
+
+    /**
+     * Associate a value with a key using the provided transaction.
+     *
+     * @param key key with which the value is to be associated
+     * @param newValue value to be associated with the key
+     * @param transaction transaction to use
+     * @return the previous value associated with the key, or {@code null} if there was none
+     */
+    public V put(K key, V newValue, @NotNull TransactionContext transaction) {
+        UndoLog undoLog = undoLog(transaction);
+        recordPreviousMapping(undoLog, key);
+        return value.put(key, newValue);
+    }
+
+    /**
+     * Associate a value with a key if it is not already associated with a value, using the provided transaction.
+     *
+     * @param key key with which the value is to be associated
+     * @param newValue value to be associated with the key
+     * @param transaction transaction to use
+     * @return the current value associated with the key, or {@code null} if there was none and the value was associated
+     */
+    public V putIfAbsent(K key, V newValue, @NotNull TransactionContext transaction) {
+        recordRead(transaction);
+        V current = value.get(key);
+
+        if (current == null) {
+            current = put(key, newValue, transaction);
+        }
+
+        return current;
+    }
+
+    /**
+     * Copy all the mappings of another map using the provided transaction.
+     *
+     * @param m mappings to be stored
+     * @param transaction transaction to use
+     */
+    public void putAll(@NotNull Map<? extends K, ? extends V> m, @NotNull TransactionContext transaction) {
+        if (m.isEmpty()) {
+            return;
+        }
+
+        UndoLog undoLog = undoLog(transaction);
+
+        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
+            recordPreviousMapping(undoLog, entry.getKey());
+            value.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Remove the mapping of a key using the provided transaction.
+     *
+     * @param key key whose mapping is to be removed
+     * @param transaction transaction to use
+     * @return the previous value associated with the key, or {@code null} if there was none
+     */
+    public V remove(K key, @NotNull TransactionContext transaction) {
+        recordRead(transaction);
+
+        if (!value.containsKey(key)) {
+            return null;
+        }
+
+        V previous = value.remove(key);
+        undoLog(transaction).record(UNDO_PUT, 0, 0, key, previous);
+        return previous;
+    }
+
+    /**
+     * Remove all mappings using the provided transaction.
+     *
+     * @param transaction transaction to use
+     */
+    public void clear(@NotNull TransactionContext transaction) {
+        recordRead(transaction);
+
+        if (value.isEmpty()) {
+            return;
+        }
+
+        undoLog(transaction).record(UNDO_RESTORE_CONTENTS, 0, 0, new LinkedHashMap<>(value), null);
+        value.clear();
+    }
+
+    private void recordPreviousMapping(UndoLog undoLog, K key) {
+        V previous = value.get(key);
+
+        if (previous != null || value.containsKey(key)) {
+            undoLog.record(UNDO_PUT, 0, 0, key, previous);
+        } else {
+            undoLog.record(UNDO_REMOVE, 0, 0, key, null);
+        }
+    }
+
+    private UndoLog undoLog(@NotNull TransactionContext transaction) {
+        updateSnapshots(transaction);
+        return undoLogs.get(transaction.nestingDepth());
+    }
+
+    @Override
+    protected boolean hasSnapshot(int nestingDepth) {
+        return undoLogs.has(nestingDepth);
+    }
+
+    @Override
+    protected void saveSnapshot(int nestingDepth) {
+        undoLogs.open(nestingDepth);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void restoreSnapshot(int nestingDepth) {
+        UndoLog undoLog = undoLogs.take(nestingDepth);
+
+        // Undo the modifications in reverse order.
+        for (int entry = undoLog.size() - 1; entry >= 0; entry--) {
+            switch (undoLog.operation(entry)) {
+                case UNDO_PUT -> value.put((K) undoLog.first(entry), (V) undoLog.second(entry));
+                case UNDO_REMOVE -> value.remove((K) undoLog.first(entry));
+                case UNDO_RESTORE_CONTENTS -> {
+                    value.clear();
+                    value.putAll((Map<K, V>) Objects.requireNonNull(undoLog.first(entry)));
+                }
+                case UNDO_REPLACE_MAP -> value = (Map<K, V>) Objects.requireNonNull(undoLog.first(entry));
+                default -> throw new IllegalStateException("Unknown undo operation: " + undoLog.operation(entry));
+            }
+        }
+
+        undoLogs.release(undoLog);
+    }
+
+    @Override
+    protected void commitSnapshot(int nestingDepth) {
+        undoLogs.commit(nestingDepth);
+    }
+}
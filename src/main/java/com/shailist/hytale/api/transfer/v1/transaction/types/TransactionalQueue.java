@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.transaction.types;
+
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.api.transfer.v1.transaction.base.AbstractSnapshotParticipant;
+import com.shailist.hytale.impl.transfer.transaction.UndoLog;
+import org.jetbrains.annotations.NotNull;
+import org.jspecify.annotations.Nullable;
+
+import java.util.Objects;
+
+/**
+ * Helper class that implements a transactional first-in first-out queue, backed by a ring buffer.
+ * For example, it can hold the resources in transit in a pipe or a conveyor.
+ *
+ * <p>Every enqueue and dequeue records how to undo itself in an undo log: an enqueue only needs to be forgotten,
+ * and a dequeue saves the element that it removed from the buffer.
+ * Committing a nested transaction appends its log to the log of the parent transaction,
+ * so both operations stay O(1) amortized inside nested transactions, and a snapshot never copies the queue.
+ * When the ring buffer is full it is replaced by a larger one, and the old buffer is kept in the log until the transaction closes.
+ *
+ * <p>The queue does not accept {@code null} elements.
+ * @param <T> The type of the queue's elements.
+ */
+public class TransactionalQueue<T> extends AbstractSnapshotParticipant {
+    private static final int DEFAULT_CAPACITY = 16;
+    // Undo operations, stored in the undo log entries.
+    private static final int UNDO_OFFER = 0;
+    private static final int UNDO_POLL = 1;
+    private static final int UNDO_REPLACE_BUFFER = 2;
+
+    private final UndoLog.Stack undoLogs = new UndoLog.Stack();
+    // The length of the buffer is always a power of two, so that indices can be wrapped with a mask.
+    private @Nullable Object[] elements;
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Create a new empty transactional queue.
+     */
+    public TransactionalQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new empty transactional queue, that can hold the given number of elements before growing.
+     *
+     * @param initialCapacity The initial capacity of the queue.
+     */
+    public TransactionalQueue(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Initial capacity may not be negative, got " + initialCapacity);
+        }
+
+        this.elements = new Object[capacityFor(initialCapacity)];
+    }
+
+    /**
+     * Return the number of elements in this queue.
+     *
+     * @return The number of elements in this queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether this queue is empty.
+     *
+     * @return true if this queue contains no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return the element at the head of this queue, without removing it.
+     *
+     * @return The head of this queue, or {@code null} if it is empty.
+     */
+    public @Nullable T peek() {
+        return size == 0 ? null : elementAt(head);
+    }
+
+    /**
+     * Return the element at the given position, counting from the head of this queue.
+     *
+     * @param index The position of the element, {@code 0} being the head.
+     * @return The element at that position.
+     */
+    public @NotNull T get(int index) {
+        Objects.checkIndex(index, size);
+        return Objects.requireNonNull(elementAt((head + index) & (elements.length - 1)));
+    }
+
+    /**
+     * Add an element at the tail of this queue using the provided transaction.
+     *
+     * @param element The element to add.
+     * @param transaction The transaction to use.
+     */
+    public void offer(@NotNull T element, @NotNull TransactionContext transaction) {
+        Objects.requireNonNull(element, "Element may not be null.");
+        UndoLog undoLog = undoLog(transaction);
+
+        if (size == elements.length) {
+            // The old buffer is not modified anymore, so restoring it is enough to undo everything up to this point.
+            undoLog.record(UNDO_REPLACE_BUFFER, head, size, elements, null);
+            elements = copyElements(capacityFor(size + 1));
+            head = 0;
+        }
+
+        elements[(head + size) & (elements.length - 1)] = element;
+        size++;
+        undoLog.record(UNDO_OFFER, 0, 0, null, null);
+    }
+
+    /**
+     * Remove the element at the head of this queue using the provided transaction.
+     *
+     * @param transaction The transaction to use.
+     * @return The removed element, or {@code null} if this queue is empty.
+     */
+    public @Nullable T poll(@NotNull TransactionContext transaction) {
+        recordRead(transaction);
+
+        if (size == 0) {
+            return null;
+        }
+
+        T element = elementAt(head);
+        undoLog(transaction).record(UNDO_POLL, 0, 0, element, null);
+        elements[head] = null;
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return element;
+    }
+
+    /**
+     * Remove all elements from this queue using the provided transaction.
+     *
+     * @param transaction The transaction to use.
+     */
+    public void clear(@NotNull TransactionContext transaction) {
+        recordRead(transaction);
+
+        if (size == 0) {
+            return;
+        }
+
+        undoLog(transaction).record(UNDO_REPLACE_BUFFER, head, size, elements, null);
+        elements = new Object[elements.length];
+        head = 0;
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private @Nullable T elementAt(int bufferIndex) {
+        return (T) elements[bufferIndex];
+    }
+
+    private @Nullable Object[] copyElements(int capacity) {
+        Object[] copy = new Object[capacity];
+        int firstPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, copy, 0, firstPart);
+        System.arraycopy(elements, 0, copy, firstPart, size - firstPart);
+        return copy;
+    }
+
+    private static int capacityFor(int minCapacity) {
+        if (minCapacity > 1 << 30) {
+            throw new IllegalStateException("Queue capacity overflow: " + minCapacity);
+        }
+
+        return Integer.highestOneBit(Math.max(1, minCapacity - 1)) << 1;
+    }
+
+    private UndoLog undoLog(@NotNull TransactionContext transaction) {
+        updateSnapshots(transaction);
+        return undoLogs.get(transaction.nestingDepth());
+    }
+
+    @Override
+    protected boolean hasSnapshot(int nestingDepth) {
+        return undoLogs.has(nestingDepth);
+    }
+
+    @Override
+    protected void saveSnapshot(int nestingDepth) {
+        undoLogs.open(nestingDepth);
+    }
+
+    @Override
+    protected void restoreSnapshot(int nestingDepth) {
+        UndoLog undoLog = undoLogs.take(nestingDepth);
+
+        // Undo the modifications in reverse order.
+        for (int entry = undoLog.size() - 1; entry >= 0; entry--) {
+            switch (undoLog.operation(entry)) {
+                case UNDO_OFFER -> {
+                    size--;
+                    elements[(head + size) & (elements.length - 1)] = null;
+                }
+                case UNDO_POLL -> {
+                    head = (head - 1) & (elements.length - 1);
+                    elements[head] = undoLog.first(entry);
+                    size++;
+                }
+                case UNDO_REPLACE_BUFFER -> {
+                    elements = (Object[]) Objects.requireNonNull(undoLog.first(entry));
+                    head = undoLog.index(entry);
+                    size = (int) undoLog.number(entry);
+                }
+                default -> throw new IllegalStateException("Unknown undo operation: " + undoLog.operation(entry));
+            }
+        }
+
+        undoLogs.release(undoLog);
+    }
+
+    @Override
+    protected void commitSnapshot(int nestingDepth) {
+        undoLogs.commit(nestingDepth);
+    }
+}
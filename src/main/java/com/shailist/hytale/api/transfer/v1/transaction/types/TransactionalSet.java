@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.api.transfer.v1.transaction.types;
+
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.impl.transfer.transaction.UndoLog;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Helper class that implements a transactional {@link Set}.
+ * Provides transaction aware implementations for all modifying methods of {@link Set}.
+ *
+ * <p>Every added or removed element is recorded in an undo log,
+ * so aborting a transaction only restores the elements that were touched during that transaction.
+ * Committing a nested transaction appends its log to the log of the parent transaction.
+ * Transactions therefore cost time proportional to the number of modifications, not to the size of the set,
+ * except for {@link #clear} and {@link #retainAll} which need to look at every element.
+ *
+ * <p>Rolling back a transaction restores the elements of the set, but not necessarily the iteration order
+ * of ordered sets such as {@link LinkedHashSet}.
+ *
+ * <p>The set returned by {@link #getValue()} must not be modified directly, or the modifications can't be rolled back.
+ * @param <T> The type of the set's elements.
+ */
+public class TransactionalSet<T> extends TransactionalValue<Set<T>> {
+    // Undo operations, stored in the undo log entries.
+    private static final int UNDO_ADD = 0;
+    private static final int UNDO_REMOVE = 1;
+    private static final int UNDO_RESTORE_CONTENTS = 2;
+    private static final int UNDO_REPLACE_SET = 3;
+
+    private final UndoLog.Stack undoLogs = new UndoLog.Stack();
+
+    /**
+     * Create a new transactional set, backed by an empty {@link HashSet}.
+     */
+    public TransactionalSet() {
+        this(new HashSet<>());
+    }
+
+    /**
+     * Create a new transactional set with the given starting value.
+     *
+     * @param startingValue Initial backing set.
+     */
+    public TransactionalSet(@NotNull Set<T> startingValue) {
+        super(startingValue);
+    }
+
+    /**
+     * Replaces the backing set using the given transaction.
+     * @param newValue The new backing set.
+     * @param transaction Transaction to use.
+     */
+    @Override
+    public void assignValue(@NotNull Set<T> newValue, @NotNull TransactionContext transaction) {
+        undoLog(transaction).record(UNDO_REPLACE_SET, 0, 0, value, null);
+        value = newValue;
+    }
+
+    /**
+     * Add an element using the provided transaction.
+     *
+     * @param t element to add
+     * @param transaction transaction to use
+     * @return true if the set did not already contain the element
+     */
+    public boolean add(T t, @NotNull TransactionContext transaction) {
+        recordRead(transaction);
+
+        if (value.contains(t)) {
+            return false;
+        }
+
+        undoLog(transaction).record(UNDO_REMOVE, 0, 0, t, null);
+        return value.add(t);
+    }
+
+    /**
+     * Remove an element using the provided transaction.
+     *
+     * @param o element to remove
+     * @param transaction transaction to use
+     * @return true if the set contained the element
+     */
+    public boolean remove(T o, @NotNull TransactionContext transaction) {
+        recordRead(transaction);
+
+        if (!value.contains(o)) {
+            return false;
+        }
+
+        undoLog(transaction).record(UNDO_ADD, 0, 0, o, null);
+        return value.remove(o);
+    }
+
+    /**
+     * Add all elements from the collection using the provided transaction.
+     *
+     * @param c collection to add
+     * @param transaction transaction to use
+     * @return true if the set changed as a result
+     */
+    public boolean addAll(@NotNull Collection<? extends T> c, @NotNull TransactionContext transaction) {
+        boolean changed = false;
+
+        for (T t : c) {
+            changed |= add(t, transaction);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Remove all elements in the collection using the provided transaction.
+     *
+     * @param c collection to remove
+     * @param transaction transaction to use
+     * @return true if the set changed as a result
+     */
+    public boolean removeAll(@NotNull Collection<? extends T> c, @NotNull TransactionContext transaction) {
+        boolean changed = false;
+
+        for (T t : c) {
+            changed |= remove(t, transaction);
+        }
+
+        return changed;
+    }
+
+    /**
+     * Retain only the elements in the specified collection, using the provided transaction.
+     *
+     * @param c collection to retain
+     * @param transaction transaction to use
+     * @return true if the set changed as a result
+     */
+    public boolean retainAll(@NotNull Collection<? extends T> c, @NotNull TransactionContext transaction) {
+        recordRead(transaction);
+        UndoLog undoLog = null;
+
+        for (Iterator<T> iterator = value.iterator(); iterator.hasNext(); ) {
+            T t = iterator.next();
+
+            if (!c.contains(t)) {
+                if (undoLog == null) {
+                    undoLog = undoLog(transaction);
+                }
+
+                undoLog.record(UNDO_ADD, 0, 0, t, null);
+                iterator.remove();
+            }
+        }
+
+        return undoLog != null;
+    }
+
+    /**
+     * Clear the set using the provided transaction.
+     *
+     * @param transaction transaction to use
+     */
+    public void clear(@NotNull TransactionContext transaction) {
+        recordRead(transaction);
+
+        if (value.isEmpty()) {
+            return;
+        }
+
+        undoLog(transaction).record(UNDO_RESTORE_CONTENTS, 0, 0, value.toArray(), null);
+        value.clear();
+    }
+
+    private UndoLog undoLog(@NotNull TransactionContext transaction) {
+        updateSnapshots(transaction);
+        return undoLogs.get(transaction.nestingDepth());
+    }
+
+    @Override
+    protected boolean hasSnapshot(int nestingDepth) {
+        return undoLogs.has(nestingDepth);
+    }
+
+    @Override
+    protected void saveSnapshot(int nestingDepth) {
+        undoLogs.open(nestingDepth);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void restoreSnapshot(int nestingDepth) {
+        UndoLog undoLog = undoLogs.take(nestingDepth);
+
+        // Undo the modifications in reverse order.
+        for (int entry = undoLog.size() - 1; entry >= 0; entry--) {
+            switch (undoLog.operation(entry)) {
+                case UNDO_ADD -> value.add((T) undoLog.first(entry));
+                case UNDO_REMOVE -> value.remove((T) undoLog.first(entry));
+                case UNDO_RESTORE_CONTENTS -> {
+                    value.clear();
+                    value.addAll((List<T>) Arrays.asList((Object[]) undoLog.first(entry)));
+                }
+                case UNDO_REPLACE_SET -> value = (Set<T>) Objects.requireNonNull(undoLog.first(entry));
+                default -> throw new IllegalStateException("Unknown undo operation: " + undoLog.operation(entry));
+            }
+        }
+
+        undoLogs.release(undoLog);
+    }
+
+    @Override
+    protected void commitSnapshot(int nestingDepth) {
+        undoLogs.commit(nestingDepth);
+    }
+}
@@ -24,7 +24,6 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
@@ -45,8 +44,6 @@ import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
 public class TransferApiImpl {
     /** Logger for transfer API implementation internals. */
     public static final Logger LOGGER = LoggerFactory.getLogger("transfer-api-v1");
-    /** Monotonic version counter used by internal storages. */
-    public static final AtomicLong version = new AtomicLong();
 
     /**
      * Internal empty storage instance used as a placeholder where no storage is available.
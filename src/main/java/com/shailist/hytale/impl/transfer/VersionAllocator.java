@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.impl.transfer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocator of globally unique version stamps, used by {@link com.shailist.hytale.api.transfer.v1.storage.Storage#getVersion} implementations.
+ *
+ * <p>Every thread reserves a range of stamps from a shared counter and hands them out locally,
+ * so the shared counter is only touched once every {@value #RANGE_SIZE} stamps, and threads don't contend on it.
+ * Stamps are unique across all threads, and increasing on each thread, but not ordered between threads.
+ * This class is internal to the implementation and not part of the public API surface.
+ */
+public final class VersionAllocator {
+	/**
+	 * Number of stamps reserved by a thread at once.
+	 */
+	public static final int RANGE_SIZE = 1024;
+
+	private static final AtomicLong NEXT_RANGE = new AtomicLong();
+	private static final ThreadLocal<Range> RANGES = ThreadLocal.withInitial(Range::new);
+
+	private VersionAllocator() {
+	}
+
+	/**
+	 * Return a new stamp, that was never returned before on any thread.
+	 *
+	 * @return A new stamp.
+	 */
+	public static long next() {
+		Range range = RANGES.get();
+
+		if (range.next == range.end) {
+			range.next = NEXT_RANGE.getAndAdd(RANGE_SIZE);
+			range.end = range.next + RANGE_SIZE;
+		}
+
+		return range.next++;
+	}
+
+	private static final class Range {
+		// Empty until the first stamp is requested.
+		long next = 0;
+		long end = 0;
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.impl.transfer.storage;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A lock-free, unbounded, multi-producer single-consumer queue of intrusive nodes.
+ * Any thread may {@linkplain #offer offer} nodes, but only one thread at a time may {@linkplain #poll poll} them.
+ *
+ * <p>Producers append a node with a single atomic swap of the head and then link the previous head to it,
+ * so offering never waits for other producers, and nothing is allocated besides the nodes themselves.
+ * A node that was swapped in but not linked yet is not visible to the consumer until its producer links it.
+ *
+ * @param <N> The type of the nodes.
+ */
+public final class MpscMailbox<N extends MpscMailbox.Node<N>> {
+	// Last node, swapped in by producers.
+	private final AtomicReference<Node<N>> head;
+	// Node before the first node to poll, only accessed by the consumer.
+	private Node<N> tail;
+
+	/**
+	 * Create an empty mailbox.
+	 */
+	public MpscMailbox() {
+		Node<N> stub = new Node<>();
+		this.head = new AtomicReference<>(stub);
+		this.tail = stub;
+	}
+
+	/**
+	 * Append a node at the end of the mailbox. Can be called from any thread.
+	 * A node may only be offered once.
+	 *
+	 * @param node The node to append.
+	 */
+	public void offer(N node) {
+		Node<N> previous = head.getAndSet(node);
+		previous.next = node;
+	}
+
+	/**
+	 * Remove the first node of the mailbox. May only be called by the consumer thread.
+	 *
+	 * @return The first node, or {@code null} if the mailbox is empty.
+	 */
+	public @Nullable N poll() {
+		N next = tail.next;
+
+		if (next == null) {
+			return null;
+		}
+
+		// The polled node becomes the new stub, release the reference to the previous one.
+		tail.next = null;
+		tail = next;
+		return next;
+	}
+
+	/**
+	 * Return whether the mailbox has no node to poll. May only be called by the consumer thread.
+	 * Nodes whose producer didn't link them yet are not counted.
+	 *
+	 * @return True if {@link #poll} would return {@code null}, and false otherwise.
+	 */
+	public boolean isEmpty() {
+		return tail.next == null;
+	}
+
+	/**
+	 * Base class of the nodes of a mailbox.
+	 *
+	 * @param <N> The type of the nodes.
+	 */
+	public static class Node<N extends Node<N>> {
+		volatile @Nullable N next;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.impl.transfer.storage;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.shailist.hytale.api.transfer.v1.storage.Storage;
+import com.shailist.hytale.api.transfer.v1.storage.StoragePreconditions;
+import com.shailist.hytale.api.transfer.v1.storage.StorageReservation;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.impl.transfer.transaction.TransactionManagerImpl;
+
+/**
+ * Default {@link StorageReservation} implementation, that works with any storage:
+ * the operation is simulated in a nested transaction to find the reserved amount, and performed again when consumed.
+ * Nothing is held in the meantime.
+ *
+ * @param <T> The type of the reserved resource.
+ */
+public final class SimulatedReservation<T> implements StorageReservation<T> {
+	private final Storage<T> storage;
+	private final T resource;
+	private final boolean insertion;
+	private final TransactionContext transaction;
+	private long amount;
+
+	private SimulatedReservation(Storage<T> storage, T resource, boolean insertion, TransactionContext transaction, long maxAmount) {
+		this.storage = storage;
+		this.resource = resource;
+		this.insertion = insertion;
+		this.transaction = transaction;
+
+		try (Transaction simulation = transaction.openNested()) {
+			this.amount = perform(maxAmount, simulation);
+		}
+	}
+
+	/**
+	 * Simulate an insertion into a storage.
+	 *
+	 * @param storage The storage to insert into.
+	 * @param resource The resource to insert.
+	 * @param maxAmount The maximum amount to reserve.
+	 * @param transaction The transaction the reservation is part of.
+	 * @param <T> The type of the reserved resource.
+	 * @return The reservation.
+	 */
+	public static <T> StorageReservation<T> reserveInsert(Storage<T> storage, T resource, long maxAmount, @NotNull TransactionContext transaction) {
+		StoragePreconditions.notNegative(maxAmount);
+		return new SimulatedReservation<>(storage, resource, true, transaction, maxAmount);
+	}
+
+	/**
+	 * Simulate an extraction from a storage.
+	 *
+	 * @param storage The storage to extract from.
+	 * @param resource The resource to extract.
+	 * @param maxAmount The maximum amount to reserve.
+	 * @param transaction The transaction the reservation is part of.
+	 * @param <T> The type of the reserved resource.
+	 * @return The reservation.
+	 */
+	public static <T> StorageReservation<T> reserveExtract(Storage<T> storage, T resource, long maxAmount, @NotNull TransactionContext transaction) {
+		StoragePreconditions.notNegative(maxAmount);
+		return new SimulatedReservation<>(storage, resource, false, transaction, maxAmount);
+	}
+
+	/**
+	 * Make sure that a reservation is consumed in the transaction it was made in, while it is the current transaction.
+	 *
+	 * @param transaction The transaction the reservation was made in.
+	 * @throws IllegalStateException If that transaction is not the current transaction.
+	 */
+	public static void validateCurrent(TransactionContext transaction) {
+		if (!TransactionManagerImpl.isCurrentTransaction(transaction)) {
+			throw new IllegalStateException("Reservations must be consumed while the transaction they were made in is the current transaction.");
+		}
+	}
+
+	private long perform(long maxAmount, TransactionContext transaction) {
+		return insertion ? storage.insert(resource, maxAmount, transaction) : storage.extract(resource, maxAmount, transaction);
+	}
+
+	@Override
+	public T getResource() {
+		return resource;
+	}
+
+	@Override
+	public long getAmount() {
+		return amount;
+	}
+
+	@Override
+	public long consume(long maxAmount) {
+		StoragePreconditions.notNegative(maxAmount);
+		long consumedAmount = Math.min(maxAmount, amount);
+
+		if (consumedAmount > 0) {
+			validateCurrent(transaction);
+		}
+
+		amount = 0;
+		return consumedAmount == 0 ? 0 : perform(consumedAmount, transaction);
+	}
+
+	@Override
+	public void release() {
+		amount = 0;
+	}
+
+	@Override
+	public String toString() {
+		return "SimulatedReservation[%s %d %s in %s]".formatted(insertion ? "insert" : "extract", amount, resource, storage);
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.impl.transfer.transaction;
+
+import java.util.Arrays;
+
+import org.jspecify.annotations.Nullable;
+
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+
+/**
+ * Outer close callbacks that were not invoked when their outer transaction was closed,
+ * but collected to be invoked later, possibly on another thread, in the order they would have been invoked.
+ * Callbacks are collected with {@link TransactionManagerImpl#deferOuterCloseCallbacks}.
+ * This class is internal to the implementation and not part of the public API surface.
+ */
+public final class OuterCloseCallbackBuffer {
+	private static final Transaction.Result[] RESULTS = Transaction.Result.values();
+
+	private TransactionContext.OuterCloseCallback[] callbacks = new TransactionContext.OuterCloseCallback[8];
+	// Ordinal of the result of the transaction of every callback.
+	private byte[] results = new byte[8];
+	private int size = 0;
+
+	/**
+	 * Return the number of collected callbacks.
+	 *
+	 * @return The number of collected callbacks.
+	 */
+	public int size() {
+		return size;
+	}
+
+	void add(TransactionContext.OuterCloseCallback callback, Transaction.Result result) {
+		if (size == callbacks.length) {
+			callbacks = Arrays.copyOf(callbacks, size * 2);
+			results = Arrays.copyOf(results, size * 2);
+		}
+
+		callbacks[size] = callback;
+		results[size] = (byte) result.ordinal();
+		size++;
+	}
+
+	/**
+	 * Invoke the collected callbacks in order on the current thread, and clear this buffer.
+	 * Every callback is invoked even if some of them throw.
+	 *
+	 * @return The exception thrown by the callbacks, with the exceptions of the following callbacks suppressed,
+	 * or {@code null} if none of them threw.
+	 */
+	public @Nullable RuntimeException invokeAll() {
+		RuntimeException exception = null;
+
+		for (int i = 0; i < size; i++) {
+			TransactionContext.OuterCloseCallback callback = callbacks[i];
+			callbacks[i] = null;
+
+			try {
+				callback.afterOuterClose(RESULTS[results[i]]);
+			} catch (Exception callbackException) {
+				if (exception == null) {
+					exception = new RuntimeException("Encountered an exception while invoking a deferred transaction outer close callback.", callbackException);
+				} else {
+					exception.addSuppressed(callbackException);
+				}
+			}
+		}
+
+		size = 0;
+		return exception;
+	}
+}
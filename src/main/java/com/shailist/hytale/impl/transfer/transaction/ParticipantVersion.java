@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.impl.transfer.transaction;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import org.jetbrains.annotations.NotNull;
+import org.jspecify.annotations.Nullable;
+
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+
+/**
+ * Internal ownership and version state of a transaction participant,
+ * used in the {@linkplain Transaction.Concurrency#OPTIMISTIC optimistic concurrency mode}.
+ *
+ * <p>A participant is owned by the manager of the outer transaction that modifies it, until that transaction is closed.
+ * Its version is incremented every time an owner releases it, whether the changes were committed or rolled back,
+ * so that transactions that read the participant in the meantime can detect that they may have seen uncommitted state.
+ * This class is internal to the implementation and not part of the public API surface.
+ */
+public final class ParticipantVersion {
+	private static final VarHandle OWNER;
+
+	static {
+		try {
+			OWNER = MethodHandles.lookup().findVarHandle(ParticipantVersion.class, "owner", TransactionManagerImpl.class);
+		} catch (ReflectiveOperationException exception) {
+			throw new ExceptionInInitializerError(exception);
+		}
+	}
+
+	private volatile @Nullable TransactionManagerImpl owner;
+	private volatile long version;
+
+	private ParticipantVersion() {
+	}
+
+	/**
+	 * Create the state of a new participant, or return {@code null} if transactions are not in the optimistic concurrency mode.
+	 *
+	 * @return The state of a new participant, or {@code null}.
+	 */
+	public static @Nullable ParticipantVersion createIfOptimistic() {
+		return TransactionManagerImpl.CONCURRENCY == Transaction.Concurrency.OPTIMISTIC ? new ParticipantVersion() : null;
+	}
+
+	/**
+	 * Record that the participant is about to be read as part of a transaction.
+	 *
+	 * @param transaction The transaction that reads the participant.
+	 * @throws com.shailist.hytale.api.transfer.v1.transaction.TransactionConflictException If another transaction owns the participant.
+	 */
+	public void recordRead(@NotNull TransactionContext transaction) {
+		TransactionManagerImpl.managerOf(transaction).recordRead(this);
+	}
+
+	/**
+	 * Make the outer transaction the owner of the participant, before it is modified as part of a transaction.
+	 *
+	 * @param transaction The transaction that modifies the participant.
+	 * @throws com.shailist.hytale.api.transfer.v1.transaction.TransactionConflictException If another transaction owns the participant.
+	 */
+	public void claim(@NotNull TransactionContext transaction) {
+		TransactionManagerImpl.managerOf(transaction).claim(this);
+	}
+
+	@Nullable TransactionManagerImpl owner() {
+		return owner;
+	}
+
+	long version() {
+		return version;
+	}
+
+	boolean tryClaim(TransactionManagerImpl manager) {
+		return OWNER.compareAndSet(this, null, manager);
+	}
+
+	void release() {
+		// Bump the version before clearing the owner: a reader that sees no owner is guaranteed to see the new version.
+		version = version + 1;
+		owner = null;
+	}
+}
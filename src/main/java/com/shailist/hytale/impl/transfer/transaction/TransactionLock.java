@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.impl.transfer.transaction;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+import org.jspecify.annotations.Nullable;
+
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+
+/**
+ * Exclusive lock that is held by an outer transaction rather than by a thread, from the moment it is first acquired
+ * in the transaction until the outer transaction is closed and all its outer close callbacks have run.
+ * Since it is held by the transaction, it follows the transaction if it is {@linkplain com.shailist.hytale.api.transfer.v1.transaction.Transaction#detach handed off}.
+ *
+ * <p>Every lock has a global order, and a transaction may only block on a lock that comes after all the locks it already holds.
+ * A lock that comes before is only tried, and the transaction fails with a
+ * {@link com.shailist.hytale.api.transfer.v1.transaction.TransactionConflictException} if it is not available,
+ * so transactions can never deadlock on each other.
+ * This class is internal to the implementation and not part of the public API surface.
+ */
+public final class TransactionLock {
+	private static final AtomicLong NEXT_ORDER = new AtomicLong();
+
+	private final long order;
+	private final Semaphore permit = new Semaphore(1);
+	private volatile @Nullable TransactionManagerImpl owner;
+
+	private TransactionLock(long order) {
+		this.order = order;
+	}
+
+	/**
+	 * Create new locks, that come after all previously created locks and are ordered among themselves by index.
+	 *
+	 * @param count The number of locks to create.
+	 * @return The new locks.
+	 */
+	public static TransactionLock @NotNull [] create(int count) {
+		if (count < 1) {
+			throw new IllegalArgumentException("At least one lock must be created, got " + count);
+		}
+
+		long firstOrder = NEXT_ORDER.getAndAdd(count);
+		TransactionLock[] locks = new TransactionLock[count];
+
+		for (int i = 0; i < count; i++) {
+			locks[i] = new TransactionLock(firstOrder + i);
+		}
+
+		return locks;
+	}
+
+	/**
+	 * Return the global order of this lock: locks should be acquired in increasing order.
+	 *
+	 * @return The global order of this lock.
+	 */
+	public long order() {
+		return order;
+	}
+
+	/**
+	 * Acquire this lock for the outer transaction of the passed transaction, unless it already holds it.
+	 *
+	 * @param transaction The transaction that needs the lock.
+	 * @throws com.shailist.hytale.api.transfer.v1.transaction.TransactionConflictException If the lock comes before a lock
+	 * that the transaction already holds, and another transaction holds it.
+	 */
+	public void lock(@NotNull TransactionContext transaction) {
+		TransactionManagerImpl.managerOf(transaction).lock(this);
+	}
+
+	/**
+	 * Acquire this lock outside of any transaction, waiting until no transaction holds it.
+	 * The current thread must not hold any lock that comes after this one, and must release it with {@link #unlockOutsideTransaction}.
+	 */
+	public void lockOutsideTransaction() {
+		permit.acquireUninterruptibly();
+	}
+
+	/**
+	 * Release this lock after {@link #lockOutsideTransaction}.
+	 */
+	public void unlockOutsideTransaction() {
+		permit.release();
+	}
+
+	@Nullable TransactionManagerImpl owner() {
+		return owner;
+	}
+
+	void acquire(TransactionManagerImpl manager) {
+		permit.acquireUninterruptibly();
+		owner = manager;
+	}
+
+	boolean tryAcquire(TransactionManagerImpl manager) {
+		if (!permit.tryAcquire()) {
+			return false;
+		}
+
+		owner = manager;
+		return true;
+	}
+
+	void release() {
+		owner = null;
+		permit.release();
+	}
+}
@@ -19,22 +19,72 @@
 
 package com.shailist.hytale.impl.transfer.transaction;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.jspecify.annotations.Nullable;
 
+import com.shailist.hytale.api.transfer.v1.transaction.DetachedTransaction;
 import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionConflictException;
 import com.shailist.hytale.api.transfer.v1.transaction.TransactionContext;
+import com.shailist.hytale.impl.transfer.TransferApiImpl;
 
 /**
  * Internal transaction manager implementation.
  *
  * <p>Manages per-thread transaction stacks for the transfer API. This class is internal to the implementation
  * and not part of the public API surface.
+ *
+ * <p>Depending on the {@linkplain Transaction.ContextMode context mode}, every thread either owns a manager for its whole life,
+ * or leases a manager from a shared pool when it opens an outer transaction, and returns it when the outer transaction is closed.
+ * In both modes, a manager with an open outer transaction can be handed off to another thread with {@link Transaction#detach}.
+ *
+ * <p>In the {@linkplain Transaction.Concurrency#OPTIMISTIC optimistic concurrency mode}, the manager also keeps the
+ * {@linkplain ParticipantVersion participants} claimed and read by its outer transaction,
+ * validates the read versions when the outer transaction is committed, and releases the claimed participants when it is closed.
+ *
+ * <p>The manager also keeps the {@linkplain TransactionLock locks} held by its outer transaction,
+ * and releases them once the outer transaction is closed and its outer close callbacks have run.
+ *
+ * <p>Opening and closing transactions is the hottest path of the transfer API, so all the state is kept in flat arrays
+ * that are only grown, never shrunk: once a thread has reached its deepest nesting and registered its largest number of
+ * callbacks, opening, committing and aborting transactions does not allocate anything.
  */
 public class TransactionManagerImpl {
-	/** Per-thread manager instance. */
+	/** Validation level, read once from {@link Transaction#VALIDATION_PROPERTY}. */
+	public static final Transaction.Validation VALIDATION = readProperty(Transaction.VALIDATION_PROPERTY, Transaction.Validation.FULL);
+	// Static final flags, so that the JIT can fold the disabled checks away.
+	private static final boolean CHECK_THREAD = VALIDATION == Transaction.Validation.FULL;
+	private static final boolean CHECK_LIFECYCLE = VALIDATION == Transaction.Validation.FULL;
+	private static final boolean CHECK_DEPTH = VALIDATION != Transaction.Validation.NONE;
+
+	/** Context mode, read once from {@link Transaction#CONTEXT_MODE_PROPERTY}. */
+	public static final Transaction.ContextMode CONTEXT_MODE = readProperty(Transaction.CONTEXT_MODE_PROPERTY, Transaction.ContextMode.THREAD_LOCAL);
+	private static final boolean POOLED = CONTEXT_MODE == Transaction.ContextMode.POOLED;
+
+	/** Concurrency mode, read once from {@link Transaction#CONCURRENCY_PROPERTY}. */
+	public static final Transaction.Concurrency CONCURRENCY = readProperty(Transaction.CONCURRENCY_PROPERTY, Transaction.Concurrency.CONFINED);
+	private static final boolean OPTIMISTIC = CONCURRENCY == Transaction.Concurrency.OPTIMISTIC;
+	private static final ParticipantVersion[] NO_PARTICIPANTS = new ParticipantVersion[0];
+	private static final long[] NO_VERSIONS = new long[0];
+	private static final TransactionLock[] NO_LOCKS = new TransactionLock[0];
+
+	/** Per-thread manager instance, used in the {@link Transaction.ContextMode#THREAD_LOCAL} context mode. */
 	public static final ThreadLocal<TransactionManagerImpl> MANAGERS = ThreadLocal.withInitial(TransactionManagerImpl::new);
+	// Managers leased by threads with an open outer transaction, used in the POOLED context mode.
+	private static final ThreadLocal<TransactionManagerImpl> LEASED_MANAGERS = new ThreadLocal<>();
+	private static final @Nullable TransactionManagerPool POOL = POOLED ? new TransactionManagerPool(4 * Runtime.getRuntime().availableProcessors()) : null;
+
+	// Primitive lifecycle codes, matching the ordinals of Transaction.Lifecycle.
+	private static final int NONE = 0;
+	private static final int OPEN = 1;
+	private static final int CLOSING = 2;
+	private static final int OUTER_CLOSING = 3;
+	private static final Transaction.Lifecycle[] LIFECYCLES = Transaction.Lifecycle.values();
+	private static final int INITIAL_DEPTH_CAPACITY = 8;
+	private static final int INITIAL_CALLBACK_CAPACITY = 4;
 
 	/**
 	 * Create a new transaction manager for the current thread.
@@ -42,10 +92,119 @@ public class TransactionManagerImpl {
 	public TransactionManagerImpl() {
 	}
 
-	private final Thread thread = Thread.currentThread();
-	private final ArrayList<TransactionImpl> stack = new ArrayList<>();
-	private final ArrayList<Transaction.OuterCloseCallback> outerCloseCallbacks = new ArrayList<>();
+	// Rebound to the leasing thread in the POOLED context mode, and null while the manager is in the pool.
+	private @Nullable Thread thread = Thread.currentThread();
+	// Transactions are reused: the transaction at index i is used for every transaction of nesting depth i.
+	private TransactionImpl[] stack = new TransactionImpl[INITIAL_DEPTH_CAPACITY];
+	private Transaction.OuterCloseCallback[] outerCloseCallbacks = new Transaction.OuterCloseCallback[INITIAL_CALLBACK_CAPACITY];
+	private int outerCloseCallbackCount = 0;
 	private int currentDepth = -1;
+	// Set once this manager has been detached from a thread, to make closing a detached transaction from its old thread a no-op.
+	private boolean handedOff = false;
+	// Participants read and claimed by the current outer transaction, in the OPTIMISTIC concurrency mode.
+	private ParticipantVersion[] readParticipants = NO_PARTICIPANTS;
+	private long[] readVersions = NO_VERSIONS;
+	private int readCount = 0;
+	private ParticipantVersion[] claimedParticipants = NO_PARTICIPANTS;
+	private int claimedCount = 0;
+	// Locks held by the current outer transaction, in acquisition order, and the highest order among them.
+	private TransactionLock[] heldLocks = NO_LOCKS;
+	private int heldLockCount = 0;
+	private long highestHeldLockOrder = -1;
+	// If set, the outer close callbacks of the current outer transaction are collected here instead of being invoked.
+	private @Nullable OuterCloseCallbackBuffer outerCloseCallbackBuffer = null;
+
+	/**
+	 * Return the manager of the current thread, or {@code null} if the current thread has no manager.
+	 * In the {@link Transaction.ContextMode#POOLED} context mode, only threads with an open outer transaction have a manager.
+	 *
+	 * @return The manager of the current thread, or {@code null} if there is none.
+	 */
+	public static @Nullable TransactionManagerImpl current() {
+		return POOLED ? LEASED_MANAGERS.get() : MANAGERS.get();
+	}
+
+	/**
+	 * Return whether a transaction is the innermost open transaction of the current thread.
+	 * Unlike {@link #getCurrentUnsafe}, this may be called from close callbacks, where the closing transactions are not open anymore.
+	 *
+	 * @param transaction The transaction to check.
+	 * @return True if the transaction is open and no nested transaction is open, and false otherwise.
+	 */
+	public static boolean isCurrentTransaction(TransactionContext transaction) {
+		TransactionManagerImpl manager = current();
+
+		if (manager == null || manager.currentDepth == -1) {
+			return false;
+		}
+
+		TransactionImpl current = manager.stack[manager.currentDepth];
+		return current == transaction && current.lifecycle == OPEN;
+	}
+
+	/**
+	 * Open a new outer transaction for the current thread, leasing a manager first if necessary.
+	 *
+	 * @return A new outer {@link com.shailist.hytale.api.transfer.v1.transaction.Transaction}.
+	 */
+	public static Transaction openOuterForCurrentThread() {
+		if (!POOLED) {
+			return MANAGERS.get().openOuter();
+		}
+
+		TransactionManagerImpl manager = LEASED_MANAGERS.get();
+
+		if (manager != null) {
+			// Throws, because a leased manager always has an open transaction.
+			return manager.openOuter();
+		}
+
+		manager = POOL.lease();
+		manager.thread = Thread.currentThread();
+		LEASED_MANAGERS.set(manager);
+		return manager.open();
+	}
+
+	/**
+	 * Unbind this manager from its thread and return it to the pool, once its outer transaction is closed.
+	 */
+	private void releaseLease() {
+		// Clear rather than remove the entry, so that the next lookup on this thread does not create a new one.
+		LEASED_MANAGERS.set(null);
+		thread = null;
+		POOL.release(this);
+	}
+
+	/**
+	 * Unbind this manager from the current thread, which is left without a manager.
+	 */
+	private DetachedTransaction detachFromCurrentThread() {
+		if (POOLED) {
+			LEASED_MANAGERS.set(null);
+		} else {
+			// The current thread will lazily create a new manager if it uses transactions again.
+			MANAGERS.remove();
+		}
+
+		thread = null;
+		handedOff = true;
+		return new DetachedTransactionImpl(this);
+	}
+
+	/**
+	 * Bind this manager to the current thread, replacing the idle manager of the current thread if there is one.
+	 */
+	private Transaction attachToCurrentThread() {
+		thread = Thread.currentThread();
+
+		if (POOLED) {
+			LEASED_MANAGERS.set(this);
+		} else {
+			MANAGERS.set(this);
+		}
+
+		return stack[0];
+	}
 
 	/**
 	 * Check whether the current thread has an open transaction.
@@ -78,8 +237,8 @@ public class TransactionManagerImpl {
 	public TransactionContext getCurrentUnsafe() {
 		if (currentDepth == -1) {
 			return null;
-		} else if (stack.get(currentDepth).lifecycle == Transaction.Lifecycle.OPEN) {
-			return stack.get(currentDepth);
+		} else if (stack[currentDepth].lifecycle == OPEN) {
+			return stack[currentDepth];
 		} else {
 			throw new IllegalStateException("May not call getCurrentUnsafe() from a close callback.");
 		}
@@ -91,21 +250,46 @@ public class TransactionManagerImpl {
 	Transaction open() {
 		currentDepth++;
 
-		if (stack.size() == currentDepth) {
-			stack.add(new TransactionImpl(currentDepth));
+		if (currentDepth == stack.length) {
+			stack = Arrays.copyOf(stack, stack.length * 2);
+		}
+
+		TransactionImpl current = stack[currentDepth];
+
+		if (current == null) {
+			current = stack[currentDepth] = new TransactionImpl(currentDepth);
 		}
 
-		TransactionImpl current = stack.get(currentDepth);
-		current.lifecycle = Transaction.Lifecycle.OPEN;
+		current.lifecycle = OPEN;
 		return current;
 	}
 
+	private static <E extends Enum<E>> E readProperty(String name, E defaultValue) {
+		String property = System.getProperty(name);
+
+		if (property == null) {
+			return defaultValue;
+		}
+
+		try {
+			return Enum.valueOf(defaultValue.getDeclaringClass(), property.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException exception) {
+			TransferApiImpl.LOGGER.warn("Unknown value {} for system property {}, defaulting to {}.", property, name, defaultValue);
+			return defaultValue;
+		}
+	}
+
+	private String threadName() {
+		Thread thread = this.thread;
+		return thread == null ? "<none>" : thread.getName();
+	}
+
 	void validateCurrentThread() {
-		if (Thread.currentThread() != thread) {
+		if (CHECK_THREAD && Thread.currentThread() != thread) {
 			String errorMessage = String.format(
 					"Attempted to access transaction state from thread %s, but this transaction is only valid on thread %s.",
 					Thread.currentThread().getName(),
-					thread.getName());
+					threadName());
 			throw new IllegalStateException(errorMessage);
 		}
 	}
@@ -119,23 +303,188 @@ public class TransactionManagerImpl {
 		if (currentDepth == -1) {
 			return Transaction.Lifecycle.NONE;
 		} else {
-			return stack.get(currentDepth).lifecycle;
+			return LIFECYCLES[stack[currentDepth].lifecycle];
+		}
+	}
+
+	static TransactionManagerImpl managerOf(TransactionContext transaction) {
+		return ((TransactionImpl) transaction).manager();
+	}
+
+	void recordRead(ParticipantVersion participant) {
+		TransactionManagerImpl owner = participant.owner();
+
+		if (owner == this) {
+			// Nobody else can modify the participant until this transaction is closed.
+			return;
+		}
+
+		// Read the version before checking the owner, so that a concurrent claim is always detected when validating.
+		long version = participant.version();
+
+		if (participant.owner() != null) {
+			throw new TransactionConflictException("Participant is being modified by another transaction.");
+		}
+
+		if (readCount == readParticipants.length) {
+			int newLength = Math.max(INITIAL_CALLBACK_CAPACITY, readCount * 2);
+			readParticipants = Arrays.copyOf(readParticipants, newLength);
+			readVersions = Arrays.copyOf(readVersions, newLength);
+		}
+
+		readParticipants[readCount] = participant;
+		readVersions[readCount] = version;
+		readCount++;
+	}
+
+	void claim(ParticipantVersion participant) {
+		if (participant.owner() == this) {
+			return;
+		}
+
+		if (!participant.tryClaim(this)) {
+			throw new TransactionConflictException("Participant is being modified by another transaction.");
+		}
+
+		if (claimedCount == claimedParticipants.length) {
+			claimedParticipants = Arrays.copyOf(claimedParticipants, Math.max(INITIAL_CALLBACK_CAPACITY, claimedCount * 2));
+		}
+
+		claimedParticipants[claimedCount++] = participant;
+	}
+
+	/**
+	 * Check that no participant read by the outer transaction was modified by another transaction since it was read.
+	 */
+	private boolean validateReads() {
+		for (int i = 0; i < readCount; i++) {
+			ParticipantVersion participant = readParticipants[i];
+			TransactionManagerImpl owner = participant.owner();
+
+			if ((owner != null && owner != this) || participant.version() != readVersions[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void releaseParticipants() {
+		for (int i = 0; i < claimedCount; i++) {
+			claimedParticipants[i].release();
+		}
+
+		Arrays.fill(claimedParticipants, 0, claimedCount, null);
+		claimedCount = 0;
+		Arrays.fill(readParticipants, 0, readCount, null);
+		readCount = 0;
+	}
+
+	void lock(TransactionLock lock) {
+		if (lock.owner() == this) {
+			return;
+		}
+
+		if (lock.order() > highestHeldLockOrder) {
+			// Waiting can't deadlock: every transaction only ever waits for locks in increasing order.
+			lock.acquire(this);
+			highestHeldLockOrder = lock.order();
+		} else if (!lock.tryAcquire(this)) {
+			throw new TransactionConflictException("Lock was acquired out of order and is held by another transaction.");
+		}
+
+		if (heldLockCount == heldLocks.length) {
+			heldLocks = Arrays.copyOf(heldLocks, Math.max(INITIAL_CALLBACK_CAPACITY, heldLockCount * 2));
+		}
+
+		heldLocks[heldLockCount++] = lock;
+	}
+
+	private void releaseLocks() {
+		for (int i = heldLockCount - 1; i >= 0; i--) {
+			heldLocks[i].release();
+			heldLocks[i] = null;
+		}
+
+		heldLockCount = 0;
+		highestHeldLockOrder = -1;
+	}
+
+	/**
+	 * Collect the outer close callbacks of an open outer transaction in a buffer when it is closed, instead of invoking them,
+	 * so that they can be invoked later, for example on another thread.
+	 * The callbacks are added to the buffer in the order they would have been invoked.
+	 *
+	 * @param outerTransaction The open outer transaction.
+	 * @param buffer The buffer that collects the callbacks.
+	 * @throws IllegalArgumentException If the transaction is not an outer transaction.
+	 */
+	public static void deferOuterCloseCallbacks(Transaction outerTransaction, OuterCloseCallbackBuffer buffer) {
+		if (outerTransaction.nestingDepth() != 0) {
+			throw new IllegalArgumentException("Only the outer close callbacks of an outer transaction can be deferred.");
+		}
+
+		((TransactionImpl) outerTransaction).validateCurrentTransaction();
+		managerOf(outerTransaction).outerCloseCallbackBuffer = buffer;
+	}
+
+	private void addOuterCloseCallback(Transaction.OuterCloseCallback outerCloseCallback) {
+		if (outerCloseCallbackCount == outerCloseCallbacks.length) {
+			outerCloseCallbacks = Arrays.copyOf(outerCloseCallbacks, outerCloseCallbacks.length * 2);
+		}
+
+		outerCloseCallbacks[outerCloseCallbackCount++] = outerCloseCallback;
+	}
+
+	private @Nullable RuntimeException invokeOuterCloseCallbacks(Transaction.Result result, @Nullable RuntimeException closeException) {
+		// Invoke outer close callbacks in reverse order
+		for (int i = outerCloseCallbackCount - 1; i >= 0; i--) {
+			try {
+				outerCloseCallbacks[i].afterOuterClose(result);
+			} catch (Exception exception) {
+				if (closeException == null) {
+					closeException = new RuntimeException("Encountered an exception while invoking a transaction outer close callback.", exception);
+				} else {
+					closeException.addSuppressed(exception);
+				}
+			}
+		}
+
+		Arrays.fill(outerCloseCallbacks, 0, outerCloseCallbackCount, null);
+		outerCloseCallbackCount = 0;
+		return closeException;
+	}
+
+	private void deferOuterCloseCallbacks(OuterCloseCallbackBuffer buffer, Transaction.Result result) {
+		// Same order as invokeOuterCloseCallbacks.
+		for (int i = outerCloseCallbackCount - 1; i >= 0; i--) {
+			buffer.add(outerCloseCallbacks[i], result);
 		}
+
+		Arrays.fill(outerCloseCallbacks, 0, outerCloseCallbackCount, null);
+		outerCloseCallbackCount = 0;
+		outerCloseCallbackBuffer = null;
 	}
 
 	private class TransactionImpl implements Transaction {
 		final int nestingDepth;
-		final ArrayList<CloseCallback> closeCallbacks = new ArrayList<>();
-		Lifecycle lifecycle = Lifecycle.NONE;
+		CloseCallback[] closeCallbacks = new CloseCallback[INITIAL_CALLBACK_CAPACITY];
+		int closeCallbackCount = 0;
+		int lifecycle = NONE;
 
 		TransactionImpl(int nestingDepth) {
 			this.nestingDepth = nestingDepth;
 		}
 
+		TransactionManagerImpl manager() {
+			return TransactionManagerImpl.this;
+		}
+
 		void validateCurrentTransaction() {
 			validateCurrentThread();
 
-			if (currentDepth == -1 || stack.get(currentDepth) != this) {
+			// There is exactly one transaction object per depth, so comparing depths is enough.
+			if (CHECK_DEPTH && currentDepth != nestingDepth) {
 				String errorMessage = String.format(
 						"Transaction function was called on a transaction with depth %d, but the current transaction has depth %d.",
 						nestingDepth,
@@ -146,7 +495,7 @@ public class TransactionManagerImpl {
 
 		// Validate that this transaction is open.
 		private void validateOpen() {
-			if (lifecycle != Lifecycle.OPEN) {
+			if (CHECK_LIFECYCLE && lifecycle != OPEN) {
 				throw new IllegalStateException("Transaction operation cannot be applied to a closed transaction.");
 			}
 		}
@@ -161,17 +510,28 @@ public class TransactionManagerImpl {
 		private void close(Result result) {
 			validateCurrentTransaction();
 			validateOpen();
+			boolean conflict = false;
+
+			if (OPTIMISTIC && currentDepth == 0 && result == Result.COMMITTED && !validateReads()) {
+				// Another transaction modified something that this transaction read: roll back instead.
+				result = Result.ABORTED;
+				conflict = true;
+			}
+
 			// Block transaction operations
-			lifecycle = Lifecycle.CLOSING;
+			lifecycle = CLOSING;
 
 			// Note: it is important that we don't let exceptions corrupt the global state of the transaction manager.
 			// That is why any callback has to run inside a try block.
 			RuntimeException closeException = null;
 
-			// Invoke callbacks in reverse order
-			for (int i = closeCallbacks.size()-1; i >= 0; i--) {
+			// Invoke callbacks in reverse order, clearing the slots so that the callbacks can be garbage collected.
+			for (int i = closeCallbackCount - 1; i >= 0; i--) {
+				CloseCallback callback = closeCallbacks[i];
+				closeCallbacks[i] = null;
+
 				try {
-					closeCallbacks.get(i).onClose(this, result);
+					callback.onClose(this, result);
 				} catch (Exception exception) {
 					if (closeException == null) {
 						closeException = new RuntimeException("Encountered an exception while invoking a transaction close callback.", exception);
@@ -181,32 +541,48 @@ public class TransactionManagerImpl {
 				}
 			}
 
-			closeCallbacks.clear();
+			closeCallbackCount = 0;
+
+			if (OPTIMISTIC && currentDepth == 0) {
+				// The participants are back in a consistent state, other transactions may use them again.
+				releaseParticipants();
+			}
 
 			if (currentDepth == 0) {
-				lifecycle = Lifecycle.OUTER_CLOSING;
-
-				// Invoke outer close callbacks in reverse order
-				for (int i = outerCloseCallbacks.size() - 1; i >= 0; i--) {
-					try {
-						outerCloseCallbacks.get(i).afterOuterClose(result);
-					} catch (Exception exception) {
-						if (closeException == null) {
-							closeException = new RuntimeException("Encountered an exception while invoking a transaction outer close callback.", exception);
-						} else {
-							closeException.addSuppressed(exception);
-						}
-					}
+				lifecycle = OUTER_CLOSING;
+
+				if (outerCloseCallbackBuffer != null) {
+					deferOuterCloseCallbacks(outerCloseCallbackBuffer, result);
+				} else {
+					closeException = invokeOuterCloseCallbacks(result, closeException);
 				}
 
-				outerCloseCallbacks.clear();
+				if (heldLockCount > 0) {
+					// Only release the locks once the final state, including the outer close callbacks, is visible.
+					releaseLocks();
+				}
 			}
 
 			// Only this check will allow openOuter operations.
 			currentDepth--;
-			lifecycle = Lifecycle.NONE;
+			lifecycle = NONE;
+
+			if (POOLED && currentDepth == -1) {
+				releaseLease();
+			}
 
 			// Throw exception if necessary
+			if (conflict) {
+				TransactionConflictException conflictException = new TransactionConflictException(
+						"Transaction was aborted because a participant it read was modified by another transaction.");
+
+				if (closeException != null) {
+					conflictException.addSuppressed(closeException);
+				}
+
+				throw conflictException;
+			}
+
 			if (closeException != null) {
 				throw closeException;
 			}
@@ -222,9 +598,38 @@ public class TransactionManagerImpl {
 			close(Result.COMMITTED);
 		}
 
+		@Override
+		public DetachedTransaction detach() {
+			// Handoffs are rare, so they are always fully validated, whatever the validation level.
+			if (Thread.currentThread() != thread) {
+				throw new IllegalStateException("Transactions can only be detached from the thread they are attached to.");
+			}
+
+			if (nestingDepth != 0) {
+				throw new IllegalStateException("Only outer transactions can be detached, but this transaction has depth " + nestingDepth);
+			}
+
+			if (currentDepth != 0 || lifecycle != OPEN) {
+				throw new IllegalStateException("Only the current open transaction can be detached, but the current depth is " + currentDepth);
+			}
+
+			return detachFromCurrentThread();
+		}
+
 		@Override
 		public void close() {
-			if (isOpen() && lifecycle == Lifecycle.OPEN) { // check that a transaction is open on this thread and that this transaction is open.
+			if (handedOff && Thread.currentThread() != thread) {
+				// Typically the end of the try-with-resources block that opened a transaction which was then detached.
+				return;
+			}
+
+			if (POOLED && LEASED_MANAGERS.get() != TransactionManagerImpl.this) {
+				// The outer transaction was already closed, and this manager returned to the pool,
+				// where another thread may have leased it: its state must not be read, let alone aborted.
+				return;
+			}
+
+			if (isOpen() && lifecycle == OPEN) { // check that a transaction is open on this thread and that this transaction is open.
 				abort();
 			}
 		}
@@ -239,15 +644,15 @@ public class TransactionManagerImpl {
 		public Transaction getOpenTransaction(int nestingDepth) {
 			validateCurrentThread();
 
-			if (nestingDepth < 0) {
+			if (CHECK_DEPTH && nestingDepth < 0) {
 				throw new IndexOutOfBoundsException("Nesting depth may not be negative.");
 			}
 
-			if (nestingDepth > currentDepth) {
+			if (CHECK_DEPTH && nestingDepth > currentDepth) {
 				throw new IndexOutOfBoundsException("There is no open transaction for nesting depth " + nestingDepth);
 			}
 
-			TransactionImpl transaction = stack.get(nestingDepth);
+			TransactionImpl transaction = stack[nestingDepth];
 			transaction.validateOpen();
 			return transaction;
 		}
@@ -256,7 +661,12 @@ public class TransactionManagerImpl {
 		public void addCloseCallback(CloseCallback closeCallback) {
 			validateCurrentThread();
 			validateOpen();
-			closeCallbacks.add(closeCallback);
+
+			if (closeCallbackCount == closeCallbacks.length) {
+				closeCallbacks = Arrays.copyOf(closeCallbacks, closeCallbacks.length * 2);
+			}
+
+			closeCallbacks[closeCallbackCount++] = closeCallback;
 		}
 
 		@Override
@@ -265,16 +675,48 @@ public class TransactionManagerImpl {
 			// Note: we don't call validateOpen() because this transaction may not be open if this is called during a CloseCallback.
 			// We rely on a currentDepth check instead, as the depth is only set to -1 at the very end of close(Result).
 
-			if (currentDepth == -1) {
+			if (CHECK_DEPTH && currentDepth == -1) {
 				throw new IllegalStateException("There is no open transaction on this thread.");
 			}
 
-			outerCloseCallbacks.add(outerCloseCallback);
+			TransactionManagerImpl.this.addOuterCloseCallback(outerCloseCallback);
+		}
+
+		@Override
+		public String toString() {
+			return "Transaction[depth=%d, lifecycle=%s, thread=%s]".formatted(nestingDepth, LIFECYCLES[lifecycle].name(), threadName());
+		}
+	}
+
+	private static final class DetachedTransactionImpl implements DetachedTransaction {
+		// Cleared on attach, so that the transaction can only be attached once even if the handle is shared between threads.
+		private final AtomicReference<@Nullable TransactionManagerImpl> manager;
+
+		DetachedTransactionImpl(TransactionManagerImpl manager) {
+			this.manager = new AtomicReference<>(manager);
+		}
+
+		@Override
+		public Transaction attach() {
+			TransactionManagerImpl current = current();
+
+			if (current != null && current.isOpen()) {
+				throw new IllegalStateException("Cannot attach a transaction to a thread that already has an open transaction.");
+			}
+
+			TransactionManagerImpl manager = this.manager.getAndSet(null);
+
+			if (manager == null) {
+				throw new IllegalStateException("This transaction was already attached.");
+			}
+
+			return manager.attachToCurrentThread();
 		}
 
 		@Override
 		public String toString() {
-			return "Transaction[depth=%d, lifecycle=%s, thread=%s]".formatted(nestingDepth, lifecycle.name(), thread.getName());
+			TransactionManagerImpl manager = this.manager.get();
+			return manager == null ? "DetachedTransaction[attached]" : "DetachedTransaction[" + manager.stack[0] + "]";
 		}
 	}
 }
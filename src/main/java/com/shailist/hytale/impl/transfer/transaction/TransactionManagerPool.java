@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.impl.transfer.transaction;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free pool of idle transaction managers, used by the
+ * {@linkplain com.shailist.hytale.api.transfer.v1.transaction.Transaction.ContextMode#POOLED pooled context mode}.
+ *
+ * <p>Managers are stored in the slots of an atomic array. Threads start scanning at a slot derived from their identity,
+ * so that concurrent threads usually touch different slots. Neither leasing nor releasing a manager allocates,
+ * except when the pool is empty and a new manager has to be created.
+ */
+final class TransactionManagerPool {
+	private final AtomicReferenceArray<TransactionManagerImpl> slots;
+	private final int mask;
+
+	TransactionManagerPool(int minCapacity) {
+		int capacity = Integer.highestOneBit(Math.max(1, minCapacity - 1)) << 1;
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Take an idle manager from the pool, or create a new one if there is none.
+	 */
+	TransactionManagerImpl lease() {
+		int start = System.identityHashCode(Thread.currentThread());
+
+		for (int i = 0; i <= mask; i++) {
+			int index = (start + i) & mask;
+
+			if (slots.getPlain(index) != null) {
+				TransactionManagerImpl manager = slots.getAndSet(index, null);
+
+				if (manager != null) {
+					return manager;
+				}
+			}
+		}
+
+		return new TransactionManagerImpl();
+	}
+
+	/**
+	 * Return an idle manager to the pool. It is dropped if the pool is full.
+	 */
+	void release(TransactionManagerImpl manager) {
+		int start = System.identityHashCode(Thread.currentThread());
+
+		for (int i = 0; i <= mask; i++) {
+			int index = (start + i) & mask;
+
+			if (slots.getPlain(index) == null && slots.compareAndSet(index, null, manager)) {
+				return;
+			}
+		}
+	}
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.impl.transfer.transaction;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Internal undo log of journaled transactional types, kept out of their public signatures by {@link Stack}.
+ *
+ * <p>Every entry is made of an operation code, an index, a {@code long} and two object references,
+ * whose meaning is defined by the participant that records them.
+ * Entries are stored in flat parallel arrays, so recording an entry does not allocate once the arrays are large enough.
+ * This class is internal to the implementation and not part of the public API surface.
+ */
+public final class UndoLog {
+	private static final int INITIAL_CAPACITY = 8;
+
+	private int size = 0;
+	private int[] operations = new int[INITIAL_CAPACITY];
+	private int[] indices = new int[INITIAL_CAPACITY];
+	private long[] numbers = new long[INITIAL_CAPACITY];
+	private @Nullable Object[] firstObjects = new Object[INITIAL_CAPACITY];
+	private @Nullable Object[] secondObjects = new Object[INITIAL_CAPACITY];
+	// Participant-defined tag, for example to recognize the log a modification was already recorded in.
+	private long tag = 0;
+	// Link to the next free log when this log is pooled.
+	private @Nullable UndoLog nextFree;
+
+	/**
+	 * Create a new empty undo log.
+	 */
+	public UndoLog() {
+	}
+
+	/**
+	 * Record a new entry at the end of this log.
+	 *
+	 * @param operation The participant-defined operation code.
+	 * @param index The participant-defined index.
+	 * @param number The participant-defined number.
+	 * @param first The first participant-defined object.
+	 * @param second The second participant-defined object.
+	 */
+	public void record(int operation, int index, long number, @Nullable Object first, @Nullable Object second) {
+		if (size == operations.length) {
+			grow(size + 1);
+		}
+
+		operations[size] = operation;
+		indices[size] = index;
+		numbers[size] = number;
+		firstObjects[size] = first;
+		secondObjects[size] = second;
+		size++;
+	}
+
+	/**
+	 * Append all entries of another log at the end of this log, keeping their order.
+	 *
+	 * @param other The log to append. It is left unchanged.
+	 */
+	public void appendAll(UndoLog other) {
+		int newSize = size + other.size;
+
+		if (newSize > operations.length) {
+			grow(newSize);
+		}
+
+		System.arraycopy(other.operations, 0, operations, size, other.size);
+		System.arraycopy(other.indices, 0, indices, size, other.size);
+		System.arraycopy(other.numbers, 0, numbers, size, other.size);
+		System.arraycopy(other.firstObjects, 0, firstObjects, size, other.size);
+		System.arraycopy(other.secondObjects, 0, secondObjects, size, other.size);
+		size = newSize;
+	}
+
+	/**
+	 * Remove all entries from this log, release the objects they reference, and reset its tag.
+	 */
+	public void clear() {
+		Arrays.fill(firstObjects, 0, size, null);
+		Arrays.fill(secondObjects, 0, size, null);
+		size = 0;
+		tag = 0;
+	}
+
+	/**
+	 * Return the participant-defined tag of this log, {@code 0} if it was not set since the last {@link #clear}.
+	 *
+	 * @return The tag of this log.
+	 */
+	public long tag() {
+		return tag;
+	}
+
+	/**
+	 * Set the participant-defined tag of this log.
+	 *
+	 * @param tag The new tag of this log.
+	 */
+	public void setTag(long tag) {
+		this.tag = tag;
+	}
+
+	/**
+	 * Return the number of entries in this log.
+	 *
+	 * @return The number of entries in this log.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Return the operation code of an entry.
+	 *
+	 * @param entry The index of the entry.
+	 * @return The operation code of the entry.
+	 */
+	public int operation(int entry) {
+		return operations[entry];
+	}
+
+	/**
+	 * Return the index of an entry.
+	 *
+	 * @param entry The index of the entry.
+	 * @return The index of the entry.
+	 */
+	public int index(int entry) {
+		return indices[entry];
+	}
+
+	/**
+	 * Return the number of an entry.
+	 *
+	 * @param entry The index of the entry.
+	 * @return The number of the entry.
+	 */
+	public long number(int entry) {
+		return numbers[entry];
+	}
+
+	/**
+	 * Return the first object of an entry.
+	 *
+	 * @param entry The index of the entry.
+	 * @return The first object of the entry.
+	 */
+	public @Nullable Object first(int entry) {
+		return firstObjects[entry];
+	}
+
+	/**
+	 * Return the second object of an entry.
+	 *
+	 * @param entry The index of the entry.
+	 * @return The second object of the entry.
+	 */
+	public @Nullable Object second(int entry) {
+		return secondObjects[entry];
+	}
+
+	private void grow(int minCapacity) {
+		int newCapacity = Math.max(minCapacity, operations.length * 2);
+		operations = Arrays.copyOf(operations, newCapacity);
+		indices = Arrays.copyOf(indices, newCapacity);
+		numbers = Arrays.copyOf(numbers, newCapacity);
+		firstObjects = Arrays.copyOf(firstObjects, newCapacity);
+		secondObjects = Arrays.copyOf(secondObjects, newCapacity);
+	}
+
+	/**
+	 * A pool of cleared undo logs, so that participants don't allocate a new log for every transaction.
+	 */
+	public static final class Pool {
+		private @Nullable UndoLog firstFree;
+
+		/**
+		 * Create a new empty pool.
+		 */
+		public Pool() {
+		}
+
+		/**
+		 * Take an empty log from this pool, or create a new one if the pool is empty.
+		 *
+		 * @return An empty log.
+		 */
+		public UndoLog obtain() {
+			UndoLog log = firstFree;
+
+			if (log == null) {
+				return new UndoLog();
+			}
+
+			firstFree = log.nextFree;
+			log.nextFree = null;
+			return log;
+		}
+
+		/**
+		 * Clear a log and return it to this pool.
+		 *
+		 * @param log The log that will not be used anymore.
+		 */
+		public void release(UndoLog log) {
+			log.clear();
+			log.nextFree = firstFree;
+			firstFree = log;
+		}
+	}
+
+	/**
+	 * The undo logs of a participant, indexed by the nesting depth of the transactions that recorded them.
+	 * Implements the depth-indexed hooks of
+	 * {@link com.shailist.hytale.api.transfer.v1.transaction.base.AbstractSnapshotParticipant AbstractSnapshotParticipant}
+	 * for journaled participants, so that they don't expose their undo logs.
+	 *
+	 * <p>Every log gets a different tag when it is opened, so participants can use tags to recognize the log
+	 * a modification was already recorded in.
+	 */
+	public static final class Stack {
+		private static final UndoLog[] NO_LOGS = new UndoLog[0];
+
+		private final Pool pool = new Pool();
+		// Indexed by nesting depth, a null entry means that no log was opened at that depth.
+		private @Nullable UndoLog[] logs = NO_LOGS;
+		private long nextTag = 1;
+
+		/**
+		 * Create a new stack without any open log.
+		 */
+		public Stack() {
+		}
+
+		/**
+		 * Return whether a log is open at a nesting depth.
+		 *
+		 * @param nestingDepth The nesting depth.
+		 * @return True if a log is open at that depth, and false otherwise.
+		 */
+		public boolean has(int nestingDepth) {
+			return nestingDepth < logs.length && logs[nestingDepth] != null;
+		}
+
+		/**
+		 * Open an empty log with a new tag at a nesting depth that has none.
+		 *
+		 * @param nestingDepth The nesting depth.
+		 */
+		public void open(int nestingDepth) {
+			if (logs.length <= nestingDepth) {
+				logs = Arrays.copyOf(logs, Math.max(nestingDepth + 1, logs.length * 2));
+			}
+
+			UndoLog log = pool.obtain();
+			log.setTag(nextTag++);
+			logs[nestingDepth] = log;
+		}
+
+		/**
+		 * Return the open log of a nesting depth.
+		 *
+		 * @param nestingDepth The nesting depth, which must have an open log.
+		 * @return The open log of that depth.
+		 */
+		public UndoLog get(int nestingDepth) {
+			return Objects.requireNonNull(logs[nestingDepth]);
+		}
+
+		/**
+		 * Remove the open log of a nesting depth, whose transaction was aborted.
+		 * It must be {@linkplain #release released} once it was undone.
+		 *
+		 * @param nestingDepth The nesting depth, which must have an open log.
+		 * @return The removed log.
+		 */
+		public UndoLog take(int nestingDepth) {
+			UndoLog log = get(nestingDepth);
+			logs[nestingDepth] = null;
+			return log;
+		}
+
+		/**
+		 * Release a log removed by {@link #take}.
+		 *
+		 * @param log The log that will not be used anymore.
+		 */
+		public void release(UndoLog log) {
+			pool.release(log);
+		}
+
+		/**
+		 * Remove the open log of a nesting depth, whose transaction was committed.
+		 * It becomes the log of the parent depth if the parent has none, is otherwise appended to the log of the parent depth,
+		 * and is released at depth 0.
+		 *
+		 * @param nestingDepth The nesting depth, which must have an open log.
+		 */
+		public void commit(int nestingDepth) {
+			UndoLog log = take(nestingDepth);
+
+			if (nestingDepth > 0 && logs[nestingDepth - 1] == null) {
+				logs[nestingDepth - 1] = log;
+				return;
+			}
+
+			if (nestingDepth > 0) {
+				// Merged entries keep the tag of the nested log, so participants that record a modification once per log
+				// will record the next modification of the same element in the parent log again, which is harmless.
+				get(nestingDepth - 1).appendAll(log);
+			}
+
+			pool.release(log);
+		}
+	}
+}
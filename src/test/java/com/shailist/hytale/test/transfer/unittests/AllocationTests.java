@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.test.transfer.unittests;
+
+import java.lang.management.ManagementFactory;
+
+import com.shailist.hytale.api.transfer.v1.storage.base.SingleVariantStorage;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalLong;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalLongArray;
+import com.shailist.hytale.test.transfer.unittests.utils.SingleStringStorage;
+import com.shailist.hytale.test.transfer.unittests.utils.StringVariant;
+import org.junit.jupiter.api.Test;
+
+import static com.shailist.hytale.test.transfer.unittests.utils.StringConstants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that the hot transaction paths do not allocate once they are warmed up.
+ */
+public class AllocationTests {
+    private static final int WARMUP_ITERATIONS = 1_000;
+    private static final int MEASURED_ITERATIONS = 10_000;
+
+    @Test
+    public void testNestedInsertExtractDoesNotAllocate() {
+        SingleVariantStorage<StringVariant> storage = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        StringVariant hello = StringVariant.of(HELLO);
+        // Keep the storage from ever becoming empty, because the blank test variant is allocated on every call.
+        storage.variant = hello;
+        storage.amount = UNIT_BUCKET;
+
+        Runnable nestedInsertExtract = () -> {
+            try (Transaction outer = Transaction.openOuter()) {
+                try (Transaction nested = outer.openNested()) {
+                    storage.insert(hello, UNIT_BUCKET, nested);
+                    nested.commit();
+                }
+
+                try (Transaction nested = outer.openNested()) {
+                    // Aborted: rolls back to the snapshot taken at depth 1.
+                    storage.extract(hello, UNIT_BUCKET, nested);
+                }
+
+                try (Transaction nested = outer.openNested()) {
+                    try (Transaction deeper = nested.openNested()) {
+                        storage.extract(hello, UNIT_BUCKET, deeper);
+                        deeper.commit();
+                    }
+
+                    nested.commit();
+                }
+
+                outer.commit();
+            }
+        };
+
+        assertEquals(0L, measureAllocatedBytesPerIteration(nestedInsertExtract));
+        assertEquals(UNIT_BUCKET, storage.amount);
+    }
+
+    @Test
+    public void testPrimitiveCellsDoNotAllocate() {
+        TransactionalLong energy = new TransactionalLong(1_000_000L);
+        TransactionalLongArray amounts = new TransactionalLongArray(16);
+
+        Runnable nestedUpdates = () -> {
+            try (Transaction outer = Transaction.openOuter()) {
+                try (Transaction nested = outer.openNested()) {
+                    energy.assignValue(energy.getValue() + 1, nested);
+                    amounts.add(3, 1, nested);
+                    amounts.add(3, 1, nested);
+                    nested.commit();
+                }
+
+                try (Transaction nested = outer.openNested()) {
+                    // Aborted: rolls back to the values saved at depth 1.
+                    energy.assignValue(0, nested);
+                    amounts.set(3, 0, nested);
+                }
+
+                outer.commit();
+            }
+        };
+
+        assertEquals(0L, measureAllocatedBytesPerIteration(nestedUpdates));
+        assertEquals(1_000_000L + WARMUP_ITERATIONS + MEASURED_ITERATIONS, energy.getValue());
+        assertEquals(2L * (WARMUP_ITERATIONS + MEASURED_ITERATIONS), amounts.get(3));
+    }
+
+    @Test
+    public void testDeeplyNestedTransactionsDoNotAllocate() {
+        TransactionalLong counter = new TransactionalLong();
+
+        Runnable deeplyNested = () -> {
+            try (Transaction outer = Transaction.openOuter()) {
+                updateNested(outer, counter, 8);
+                outer.commit();
+            }
+        };
+
+        assertEquals(0L, measureAllocatedBytesPerIteration(deeplyNested));
+        assertEquals(8L * (WARMUP_ITERATIONS + MEASURED_ITERATIONS), counter.getValue());
+    }
+
+    /**
+     * Increment the counter in the transaction and in nested transactions up to the given depth,
+     * committing all nested transactions except the deepest one.
+     */
+    private static void updateNested(Transaction transaction, TransactionalLong counter, int maxDepth) {
+        counter.assignValue(counter.getValue() + 1, transaction);
+
+        if (transaction.nestingDepth() < maxDepth) {
+            try (Transaction nested = transaction.openNested()) {
+                updateNested(nested, counter, maxDepth);
+
+                if (nested.nestingDepth() < maxDepth) {
+                    nested.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the average number of bytes allocated by one call to the action, once warmed up.
+     * One-off allocations by the runtime (class loading, JIT transitions...) during the measurement are rounded away.
+     */
+    private static long measureAllocatedBytesPerIteration(Runnable action) {
+        var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            action.run();
+        }
+
+        long before = threadBean.getCurrentThreadAllocatedBytes();
+
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            action.run();
+        }
+
+        return (threadBean.getCurrentThreadAllocatedBytes() - before) / MEASURED_ITERATIONS;
+    }
+}
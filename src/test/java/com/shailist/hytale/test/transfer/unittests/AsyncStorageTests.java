@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.test.transfer.unittests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.shailist.hytale.api.transfer.v1.storage.StorageUtil;
+import com.shailist.hytale.api.transfer.v1.storage.base.AsyncStorage;
+import com.shailist.hytale.api.transfer.v1.storage.base.SingleVariantStorage;
+import com.shailist.hytale.api.transfer.v1.storage.base.StorageOwner;
+import com.shailist.hytale.test.transfer.unittests.utils.SingleStringStorage;
+import com.shailist.hytale.test.transfer.unittests.utils.StringVariant;
+import org.junit.jupiter.api.Test;
+
+import static com.shailist.hytale.test.transfer.unittests.utils.StringConstants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncStorageTests {
+    /**
+     * Make sure that operations submitted before the owner runs are batched, and that failures are isolated.
+     */
+    @Test
+    public void testBatching() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        List<Runnable> ownerTasks = new ArrayList<>();
+        int[] finalCommits = new int[1];
+        SingleVariantStorage<StringVariant> backing = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET, () -> finalCommits[0]++);
+        StorageOwner owner = new StorageOwner(ownerTasks::add);
+        AsyncStorage<StringVariant> storage = owner.wrap(backing);
+
+        CompletableFuture<Long> insertion = storage.insertAsync(hello, 4L * UNIT_BUCKET);
+        CompletableFuture<Long> failure = owner.submit(transaction -> {
+            backing.insert(hello, UNIT_BUCKET, transaction);
+            throw new IllegalStateException("Operation failure");
+        });
+        CompletableFuture<Long> extraction = storage.extractAsync(hello, UNIT_BUCKET);
+
+        // Nothing runs until the owner runs the batch, which was only scheduled once.
+        assertEquals(1, ownerTasks.size());
+        assertFalse(insertion.isDone());
+        ownerTasks.remove(0).run();
+
+        assertEquals(4L * UNIT_BUCKET, (long) insertion.get());
+        assertEquals(UNIT_BUCKET, (long) extraction.get());
+        ExecutionException exception = assertThrows(ExecutionException.class, failure::get);
+        assertTrue(exception.getCause() instanceof IllegalStateException);
+        assertEquals(3L * UNIT_BUCKET, backing.amount);
+        // All the operations were part of the same outer transaction.
+        assertEquals(1, finalCommits[0]);
+
+        // The next operation schedules a new batch.
+        CompletableFuture<Long> nextInsertion = storage.insertAsync(hello, 10L * UNIT_BUCKET);
+        assertEquals(1, ownerTasks.size());
+        ownerTasks.remove(0).run();
+        assertEquals(7L * UNIT_BUCKET, (long) nextInsertion.get());
+    }
+
+    /**
+     * Make sure that an operation that failed because its drain could not be scheduled is not run by a later drain.
+     */
+    @Test
+    public void testRejectedDrain() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        SingleVariantStorage<StringVariant> backing = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        boolean[] rejecting = { true };
+        List<Runnable> ownerTasks = new ArrayList<>();
+        StorageOwner owner = new StorageOwner(task -> {
+            if (rejecting[0]) {
+                throw new RejectedExecutionException("Owner is shut down");
+            }
+
+            ownerTasks.add(task);
+        });
+        AsyncStorage<StringVariant> storage = owner.wrap(backing);
+
+        CompletableFuture<Long> rejected = storage.insertAsync(hello, 4L * UNIT_BUCKET);
+        ExecutionException exception = assertThrows(ExecutionException.class, rejected::get);
+        assertTrue(exception.getCause() instanceof RejectedExecutionException);
+
+        // The rejected operation is skipped by the next drain.
+        rejecting[0] = false;
+        CompletableFuture<Long> insertion = storage.insertAsync(hello, UNIT_BUCKET);
+        assertEquals(1, ownerTasks.size());
+        ownerTasks.remove(0).run();
+        assertEquals(UNIT_BUCKET, (long) insertion.get());
+        assertEquals(UNIT_BUCKET, backing.amount);
+    }
+
+    /**
+     * Make sure that a drain runs at most one batch, and schedules another drain for the operations that are left.
+     */
+    @Test
+    public void testBatchSize() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        SingleVariantStorage<StringVariant> backing = SingleStringStorage.withFixedCapacity(Long.MAX_VALUE);
+        List<Runnable> ownerTasks = new ArrayList<>();
+        StorageOwner owner = new StorageOwner(ownerTasks::add);
+        AsyncStorage<StringVariant> storage = owner.wrap(backing);
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+
+        for (int i = 0; i <= StorageOwner.MAX_BATCH_SIZE; i++) {
+            futures.add(storage.insertAsync(hello, 1));
+        }
+
+        assertEquals(1, ownerTasks.size());
+        ownerTasks.remove(0).run();
+        assertEquals(StorageOwner.MAX_BATCH_SIZE, backing.amount);
+        assertFalse(futures.get(StorageOwner.MAX_BATCH_SIZE).isDone());
+
+        assertEquals(1, ownerTasks.size());
+        ownerTasks.remove(0).run();
+        assertEquals(StorageOwner.MAX_BATCH_SIZE + 1L, backing.amount);
+
+        for (CompletableFuture<Long> future : futures) {
+            assertEquals(1L, (long) future.get());
+        }
+    }
+
+    /**
+     * Make sure that a failing close callback is rethrown by the drain, and doesn't fail the operations that were applied.
+     */
+    @Test
+    public void testCloseCallbackFailure() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        SingleVariantStorage<StringVariant> backing = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        StorageOwner owner = new StorageOwner();
+        AsyncStorage<StringVariant> storage = owner.wrap(backing);
+
+        CompletableFuture<Long> insertion = storage.insertAsync(hello, 4L * UNIT_BUCKET);
+        CompletableFuture<Long> callback = owner.submit(transaction -> {
+            transaction.addOuterCloseCallback(result -> {
+                throw new IllegalStateException("Callback failure");
+            });
+            return 0;
+        });
+
+        assertThrows(RuntimeException.class, owner::drain);
+        assertEquals(4L * UNIT_BUCKET, (long) insertion.get());
+        assertEquals(0L, (long) callback.get());
+        assertEquals(4L * UNIT_BUCKET, backing.amount);
+    }
+
+    /**
+     * Submit operations from several threads to an owner thread, and make sure that they all complete.
+     */
+    @Test
+    public void testOwnerThread() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        ExecutorService ownerThread = Executors.newSingleThreadExecutor();
+        ExecutorService plugins = Executors.newFixedThreadPool(4);
+
+        try {
+            StorageOwner owner = new StorageOwner(ownerThread);
+            SingleVariantStorage<StringVariant> firstBacking = SingleStringStorage.withFixedCapacity(1_000L * UNIT_BUCKET);
+            SingleVariantStorage<StringVariant> secondBacking = SingleStringStorage.withFixedCapacity(1_000L * UNIT_BUCKET);
+            AsyncStorage<StringVariant> first = owner.wrap(firstBacking);
+            AsyncStorage<StringVariant> second = owner.wrap(secondBacking);
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 4; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    long moved = 0;
+
+                    for (int j = 0; j < 100; j++) {
+                        first.insertAsync(hello, UNIT_BUCKET);
+                        moved += StorageUtil.moveAsync(first, second, resource -> true, UNIT_BUCKET).join();
+                    }
+
+                    return moved;
+                }, plugins));
+            }
+
+            long moved = 0;
+
+            for (CompletableFuture<Long> future : futures) {
+                moved += future.get();
+            }
+
+            assertEquals(400L * UNIT_BUCKET, moved);
+            // Make sure that everything that was submitted ran.
+            ownerThread.submit(() -> {}).get();
+            assertEquals(0L, firstBacking.amount);
+            assertEquals(400L * UNIT_BUCKET, secondBacking.amount);
+        } finally {
+            ownerThread.shutdown();
+            plugins.shutdown();
+        }
+    }
+
+    /**
+     * Submit many small insertions from several threads, and drain them once per tick on the owner thread.
+     */
+    @Test
+    public void testDrainOncePerTick() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        int threads = 4;
+        int insertionsPerThread = 2_000;
+        int[] finalCommits = new int[1];
+        SingleVariantStorage<StringVariant> backing = SingleStringStorage.withFixedCapacity(Long.MAX_VALUE, () -> finalCommits[0]++);
+        StorageOwner owner = new StorageOwner();
+        AsyncStorage<StringVariant> storage = owner.wrap(backing);
+        ExecutorService network = Executors.newFixedThreadPool(threads);
+        List<CompletableFuture<Long>> futures = new ArrayList<>();
+
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+
+            for (int i = 0; i < threads; i++) {
+                producers.add(network.submit(() -> {
+                    for (int j = 0; j < insertionsPerThread; j++) {
+                        CompletableFuture<Long> future = storage.insertAsync(hello, 1);
+
+                        synchronized (futures) {
+                            futures.add(future);
+                        }
+                    }
+                }));
+            }
+
+            int drained = 0;
+            int ticks = 0;
+
+            // Tick until every insertion was drained.
+            while (drained < threads * insertionsPerThread) {
+                drained += owner.drain();
+                ticks++;
+                Thread.yield();
+            }
+
+            for (Future<?> producer : producers) {
+                producer.get();
+            }
+
+            assertEquals(0, owner.drain());
+            assertEquals((long) threads * insertionsPerThread, backing.amount);
+            // At most one final commit per tick, however many insertions were drained.
+            assertTrue(finalCommits[0] <= ticks);
+
+            for (CompletableFuture<Long> future : futures) {
+                assertEquals(1L, (long) future.get());
+            }
+        } finally {
+            network.shutdown();
+        }
+    }
+
+    /**
+     * Make sure that resources can't be moved asynchronously between storages of different owners.
+     */
+    @Test
+    public void testMoveBetweenOwners() {
+        AsyncStorage<StringVariant> first = new StorageOwner(Runnable::run).wrap(SingleStringStorage.withFixedCapacity(UNIT_BUCKET));
+        AsyncStorage<StringVariant> second = new StorageOwner(Runnable::run).wrap(SingleStringStorage.withFixedCapacity(UNIT_BUCKET));
+
+        assertThrows(IllegalArgumentException.class, () -> StorageUtil.moveAsync(first, second, resource -> true, UNIT_BUCKET));
+        assertTrue(StorageUtil.moveAsync(first, first, resource -> true, UNIT_BUCKET).isDone());
+    }
+}
@@ -19,18 +19,35 @@
 
 package com.shailist.hytale.test.transfer.unittests;
 
+import java.util.ArrayList;
 import java.util.Iterator;
-
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import com.shailist.hytale.api.transfer.v1.storage.base.CombinedStorage;
 import com.shailist.hytale.api.transfer.v1.storage.base.FixedVariantStorage;
 import com.shailist.hytale.api.transfer.v1.storage.base.ResourceAmount;
+import com.shailist.hytale.api.transfer.v1.storage.base.StorageChangeListener;
+import com.shailist.hytale.api.transfer.v1.storage.base.StorageChangeRegistry;
+import com.shailist.hytale.api.transfer.v1.storage.base.StorageStatistics;
 import com.shailist.hytale.test.transfer.unittests.utils.*;
 import org.junit.jupiter.api.Test;
 
+import com.shailist.hytale.api.transfer.v1.storage.CachedStorageQueries;
 import com.shailist.hytale.api.transfer.v1.storage.Storage;
+import com.shailist.hytale.api.transfer.v1.storage.StorageReservation;
+import com.shailist.hytale.api.transfer.v1.storage.StorageSnapshot;
 import com.shailist.hytale.api.transfer.v1.storage.StorageUtil;
 import com.shailist.hytale.api.transfer.v1.storage.StorageView;
 import com.shailist.hytale.api.transfer.v1.storage.base.FilteringStorage;
 import com.shailist.hytale.api.transfer.v1.storage.base.SingleVariantStorage;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
 
 import static com.shailist.hytale.test.transfer.unittests.utils.StringConstants.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -184,4 +201,461 @@ public class BaseStorageTests {
         // Extraction from a non-empty storage with the allowed variant should succeed.
         assertEquals(UNIT_BUCKET, TestStorageUtil.extract(storage, hello, UNIT_BUCKET));
     }
+
+    @Test
+    public void testSingleVariantStorageReservations() {
+        SingleVariantStorage<StringVariant> storage = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        StringVariant hello = StringVariant.of(StringConstants.HELLO);
+        StringVariant world = StringVariant.of(StringConstants.WORLD);
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            StorageReservation<StringVariant> insertion = storage.reserveInsert(hello, 4L * UNIT_BUCKET, transaction);
+            assertEquals(4L * UNIT_BUCKET, insertion.getAmount());
+
+            // The reserved capacity, and the reserved variant of the empty storage, can't be used by other insertions.
+            assertEquals(0L, storage.insert(world, UNIT_BUCKET, transaction));
+            assertEquals(6L * UNIT_BUCKET, storage.insert(hello, 10L * UNIT_BUCKET, transaction));
+
+            StorageReservation<StringVariant> extraction = storage.reserveExtract(hello, 5L * UNIT_BUCKET, transaction);
+            assertEquals(5L * UNIT_BUCKET, extraction.getAmount());
+            assertEquals(UNIT_BUCKET, storage.extract(hello, 10L * UNIT_BUCKET, transaction));
+
+            // Consuming part of a reservation releases the rest.
+            assertEquals(2L * UNIT_BUCKET, extraction.consume(2L * UNIT_BUCKET));
+            assertEquals(0L, extraction.getAmount());
+            assertEquals(3L * UNIT_BUCKET, storage.extract(hello, 10L * UNIT_BUCKET, transaction));
+            assertEquals(4L * UNIT_BUCKET, insertion.consume(10L * UNIT_BUCKET));
+            assertEquals(4L * UNIT_BUCKET, storage.amount);
+
+            // Pending reservations are released when the transaction is closed.
+            storage.reserveInsert(hello, 10L * UNIT_BUCKET, transaction);
+            transaction.commit();
+        }
+
+        assertEquals(6L * UNIT_BUCKET, TestStorageUtil.insert(storage, hello, 10L * UNIT_BUCKET));
+
+        // Reservations can only be consumed in the transaction they were made in, and are released with it.
+        try (Transaction transaction = Transaction.openOuter()) {
+            StorageReservation<StringVariant> extraction = storage.reserveExtract(hello, 2L * UNIT_BUCKET, transaction);
+
+            try (Transaction nested = transaction.openNested()) {
+                assertThrows(IllegalStateException.class, () -> extraction.consume(UNIT_BUCKET));
+                assertEquals(8L * UNIT_BUCKET, storage.extract(hello, 10L * UNIT_BUCKET, nested));
+            }
+
+            try (Transaction nested = transaction.openNested()) {
+                assertEquals(UNIT_BUCKET, storage.reserveExtract(hello, UNIT_BUCKET, nested).getAmount());
+                nested.commit();
+            }
+
+            assertEquals(2L * UNIT_BUCKET, extraction.consume(10L * UNIT_BUCKET));
+            assertEquals(8L * UNIT_BUCKET, storage.extract(hello, 10L * UNIT_BUCKET, transaction));
+        }
+
+        // Consuming from a close callback fails as well, since the transaction is not open anymore.
+        RuntimeException[] callbackException = new RuntimeException[1];
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            StorageReservation<StringVariant> extraction = storage.reserveExtract(hello, UNIT_BUCKET, transaction);
+            assertEquals(UNIT_BUCKET, extraction.getAmount());
+
+            transaction.addCloseCallback((context, result) -> {
+                try {
+                    extraction.consume(UNIT_BUCKET);
+                } catch (RuntimeException exception) {
+                    callbackException[0] = exception;
+                }
+            });
+            transaction.commit();
+        }
+
+        assertTrue(callbackException[0] instanceof IllegalStateException);
+        assertTrue(callbackException[0].getMessage().startsWith("Reservations must be consumed"));
+        assertEquals(10L * UNIT_BUCKET, storage.amount);
+    }
+
+    @Test
+    public void testCombinedStorageReservations() {
+        StringVariant hello = StringVariant.of(StringConstants.HELLO);
+        SingleVariantStorage<StringVariant> first = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        SingleVariantStorage<StringVariant> second = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        // The filtering wrapper uses the default reservations, that are only simulated.
+        CombinedStorage<StringVariant, Storage<StringVariant>> combined = new CombinedStorage<>(List.of(first, FilteringStorage.insertOnlyOf(second)));
+        SingleVariantStorage<StringVariant> source = SingleStringStorage.withFixedCapacity(100L * UNIT_BUCKET);
+        TestStorageUtil.insert(source, hello, 12L * UNIT_BUCKET);
+
+        // Plan-then-execute move: reserve the capacity of the target, then the amount of the source, and consume both.
+        try (Transaction transaction = Transaction.openOuter()) {
+            try (StorageReservation<StringVariant> insertion = combined.reserveInsert(hello, 15L * UNIT_BUCKET, transaction);
+                 StorageReservation<StringVariant> extraction = source.reserveExtract(hello, insertion.getAmount(), transaction)) {
+                assertEquals(15L * UNIT_BUCKET, insertion.getAmount());
+                assertEquals(12L * UNIT_BUCKET, extraction.getAmount());
+
+                long moved = extraction.consume(extraction.getAmount());
+                assertEquals(moved, insertion.consume(moved));
+            }
+
+            transaction.commit();
+        }
+
+        // The first part is filled before the second one.
+        assertEquals(10L * UNIT_BUCKET, first.amount);
+        assertEquals(2L * UNIT_BUCKET, second.amount);
+        assertEquals(0L, source.amount);
+
+        // Released reservations leave nothing behind.
+        try (Transaction transaction = Transaction.openOuter()) {
+            try (StorageReservation<StringVariant> insertion = combined.reserveInsert(hello, 5L * UNIT_BUCKET, transaction)) {
+                assertEquals(5L * UNIT_BUCKET, insertion.getAmount());
+            }
+
+            transaction.commit();
+        }
+
+        assertEquals(2L * UNIT_BUCKET, second.amount);
+    }
+
+    @Test
+    public void testSnapshots() throws Exception {
+        StringVariant hello = StringVariant.of(StringConstants.HELLO);
+        SingleVariantStorage<StringVariant> first = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        SingleVariantStorage<StringVariant> second = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        SingleVariantStorage<StringVariant> third = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        CombinedStorage<StringVariant, SingleVariantStorage<StringVariant>> inner = new CombinedStorage<>(List.of(second, third));
+        CombinedStorage<StringVariant, Storage<StringVariant>> root = new CombinedStorage<>(List.of(first, inner));
+        TestStorageUtil.insert(first, hello, 3L * UNIT_BUCKET);
+
+        StorageSnapshot<StringVariant> before = root.captureSnapshot();
+        assertEquals(3, before.getSlotCount());
+        // Nothing changed: the same snapshot is returned.
+        assertSame(before, root.captureSnapshot());
+
+        TestStorageUtil.insert(third, hello, 5L * UNIT_BUCKET);
+        StorageSnapshot<StringVariant> after = root.captureSnapshot();
+
+        // Only the modified subtree is copied.
+        assertNotSame(before, after);
+        assertSame(before.getChildren().get(0), after.getChildren().get(0));
+        assertSame(before.getChildren().get(1).getChildren().get(0), after.getChildren().get(1).getChildren().get(0));
+        assertEquals(5L * UNIT_BUCKET, after.getChildren().get(1).getChildren().get(1).getAmount());
+
+        // Earlier snapshots are not affected by later changes, and can be read from another thread.
+        CompletableFuture.runAsync(() -> {
+            List<ResourceAmount<StringVariant>> slots = new ArrayList<>();
+            before.forEachSlot((resource, amount) -> slots.add(new ResourceAmount<>(resource, amount)));
+            assertEquals(List.of(new ResourceAmount<>(hello, 3L * UNIT_BUCKET), new ResourceAmount<>(StringVariant.blank(), 0L),
+                    new ResourceAmount<>(StringVariant.blank(), 0L)), slots);
+        }).get();
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            assertThrows(IllegalStateException.class, root::captureSnapshot);
+        }
+    }
+
+    @Test
+    public void testVersions() {
+        StringVariant hello = StringVariant.of(StringConstants.HELLO);
+        SingleVariantStorage<StringVariant> first = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        SingleVariantStorage<StringVariant> second = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        CombinedStorage<StringVariant, SingleVariantStorage<StringVariant>> combined = new CombinedStorage<>(List.of(first, second));
+
+        // Versions are stable while nothing changes.
+        long firstVersion = first.getVersion();
+        long combinedVersion = combined.getVersion();
+        assertEquals(firstVersion, first.getVersion());
+        assertEquals(combinedVersion, combined.getVersion());
+
+        // Aborted changes don't change the versions.
+        try (Transaction transaction = Transaction.openOuter()) {
+            first.insert(hello, UNIT_BUCKET, transaction);
+            assertThrows(IllegalStateException.class, first::getVersion);
+        }
+
+        assertEquals(firstVersion, first.getVersion());
+        assertEquals(combinedVersion, combined.getVersion());
+
+        // Committed changes do.
+        long secondVersion = second.getVersion();
+        TestStorageUtil.insert(first, hello, UNIT_BUCKET);
+        assertNotEquals(firstVersion, first.getVersion());
+        assertEquals(secondVersion, second.getVersion());
+        assertNotEquals(combinedVersion, combined.getVersion());
+        combinedVersion = combined.getVersion();
+
+        // The changes of the other part too.
+        TestStorageUtil.insert(second, hello, UNIT_BUCKET);
+        assertNotEquals(secondVersion, second.getVersion());
+        assertNotEquals(combinedVersion, combined.getVersion());
+    }
+
+    /**
+     * Read the versions of shared storages from several threads, while their owner commits changes.
+     */
+    @Test
+    public void testConcurrentVersions() throws Exception {
+        StringVariant hello = StringVariant.of(StringConstants.HELLO);
+        SingleVariantStorage<StringVariant> first = SingleStringStorage.withFixedCapacity(Long.MAX_VALUE);
+        SingleVariantStorage<StringVariant> second = SingleStringStorage.withFixedCapacity(Long.MAX_VALUE);
+        CombinedStorage<StringVariant, SingleVariantStorage<StringVariant>> combined = new CombinedStorage<>(List.of(first, second));
+        int readers = 4;
+        int commits = 2_000;
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < readers; i++) {
+                futures.add(executor.submit(() -> {
+                    while (!done.get()) {
+                        combined.getVersion();
+                    }
+                }));
+            }
+
+            long version = combined.getVersion();
+
+            for (int i = 0; i < commits; i++) {
+                TestStorageUtil.insert(i % 2 == 0 ? first : second, hello, 1);
+                // Readers may allocate the new version first, but never return the previous one for the new contents.
+                long newVersion = combined.getVersion();
+                assertNotEquals(version, newVersion);
+                version = newVersion;
+            }
+        } finally {
+            done.set(true);
+            executor.shutdown();
+        }
+
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    @Test
+    public void testCachedQueries() {
+        StringVariant hello = StringVariant.of(StringConstants.HELLO);
+        StringVariant world = StringVariant.of(StringConstants.WORLD);
+        SingleVariantStorage<StringVariant> first = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        SingleVariantStorage<StringVariant> second = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        CombinedStorage<StringVariant, SingleVariantStorage<StringVariant>> combined = new CombinedStorage<>(List.of(first, second));
+        CachedStorageQueries queries = new CachedStorageQueries(2);
+
+        // Count the filter calls to know whether a query was cached.
+        AtomicInteger filterCalls = new AtomicInteger();
+        Predicate<StringVariant> filter = resource -> {
+            filterCalls.incrementAndGet();
+            return true;
+        };
+
+        assertNull(queries.findStoredResource(combined, filter));
+        TestStorageUtil.insert(second, hello, UNIT_BUCKET);
+        filterCalls.set(0);
+
+        // The version changed, so the query is recomputed, and then cached.
+        assertEquals(hello, queries.findStoredResource(combined, filter));
+        assertEquals(1, filterCalls.get());
+        assertEquals(hello, queries.findStoredResource(combined, filter));
+        assertEquals(new ResourceAmount<>(hello, UNIT_BUCKET), queries.findExtractableContent(combined, filter));
+        assertEquals(2, filterCalls.get());
+        assertEquals(new ResourceAmount<>(hello, UNIT_BUCKET), queries.findExtractableContent(combined, filter));
+        assertEquals(2, filterCalls.get());
+
+        // Aborted changes keep the cached results.
+        try (Transaction transaction = Transaction.openOuter()) {
+            first.insert(world, UNIT_BUCKET, transaction);
+            assertThrows(IllegalStateException.class, () -> queries.findStoredResource(combined, filter));
+        }
+
+        assertEquals(hello, queries.findStoredResource(combined, filter));
+        assertEquals(2, filterCalls.get());
+
+        // Committed changes invalidate them.
+        TestStorageUtil.insert(first, world, UNIT_BUCKET);
+        assertEquals(world, queries.findStoredResource(combined, filter));
+        assertEquals(3, filterCalls.get());
+
+        // The least recently used result is evicted.
+        assertEquals(2, queries.size());
+        assertEquals(world, queries.findExtractableResource(combined, filter));
+        assertEquals(2, queries.size());
+        filterCalls.set(0);
+        assertEquals(world, queries.findStoredResource(combined, filter));
+        assertEquals(new ResourceAmount<>(world, UNIT_BUCKET), queries.findExtractableContent(combined, filter));
+        assertEquals(1, filterCalls.get());
+
+        queries.clear();
+        assertEquals(0, queries.size());
+        assertNull(queries.findStoredResource(null));
+    }
+
+    @Test
+    public void testChangeListeners() {
+        StringVariant hello = StringVariant.of(StringConstants.HELLO);
+        StringVariant world = StringVariant.of(StringConstants.WORLD);
+        SingleVariantStorage<StringVariant> first = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        SingleVariantStorage<StringVariant> second = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        CombinedStorage<StringVariant, SingleVariantStorage<StringVariant>> combined = new CombinedStorage<>(List.of(first, second));
+        StorageChangeRegistry<StringVariant> registry = new StorageChangeRegistry<>();
+        List<List<StorageChangeListener.Change<StringVariant>>> batches = new ArrayList<>();
+        registry.track(combined);
+        registry.addListener(batches::add);
+
+        // Several modifications of several slots, in nested transactions, are reported in one batch with one change per slot.
+        try (Transaction transaction = Transaction.openOuter()) {
+            for (int i = 0; i < 3; i++) {
+                try (Transaction nested = transaction.openNested()) {
+                    combined.insert(hello, 4 * UNIT_BUCKET, nested);
+                    nested.commit();
+                }
+            }
+
+            // Aborted modifications are ignored.
+            try (Transaction nested = transaction.openNested()) {
+                combined.insert(hello, UNIT_BUCKET, nested);
+            }
+
+            assertTrue(batches.isEmpty());
+            transaction.commit();
+        }
+
+        assertEquals(1, batches.size());
+        assertEquals(List.of(
+                new StorageChangeListener.Change<>(first, StringVariant.blank(), 0, 10 * UNIT_BUCKET, hello, 10 * UNIT_BUCKET, 10 * UNIT_BUCKET),
+                new StorageChangeListener.Change<>(second, StringVariant.blank(), 0, 10 * UNIT_BUCKET, hello, 2 * UNIT_BUCKET, 10 * UNIT_BUCKET)
+        ), batches.get(0));
+
+        // Aborted transactions and changes that cancel each other out are not reported.
+        try (Transaction transaction = Transaction.openOuter()) {
+            first.extract(hello, UNIT_BUCKET, transaction);
+        }
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            first.extract(hello, UNIT_BUCKET, transaction);
+            first.insert(hello, UNIT_BUCKET, transaction);
+            transaction.commit();
+        }
+
+        assertEquals(1, batches.size());
+
+        TestStorageUtil.extract(second, hello, 2 * UNIT_BUCKET);
+        TestStorageUtil.insert(second, world, UNIT_BUCKET);
+        assertEquals(List.of(
+                List.of(new StorageChangeListener.Change<>(second, hello, 2 * UNIT_BUCKET, 10 * UNIT_BUCKET, StringVariant.blank(), 0, 10 * UNIT_BUCKET)),
+                List.of(new StorageChangeListener.Change<>(second, StringVariant.blank(), 0, 10 * UNIT_BUCKET, world, UNIT_BUCKET, 10 * UNIT_BUCKET))
+        ), batches.subList(1, 3));
+
+        // Storages can only be tracked by one registry.
+        assertThrows(IllegalStateException.class, () -> new StorageChangeRegistry<StringVariant>().track(first));
+        registry.untrack(combined);
+        TestStorageUtil.extract(second, world, UNIT_BUCKET);
+        assertEquals(3, batches.size());
+    }
+
+    @Test
+    public void testStorageStatistics() {
+        StringVariant hello = StringVariant.of(StringConstants.HELLO);
+        StringVariant world = StringVariant.of(StringConstants.WORLD);
+        List<SingleVariantStorage<StringVariant>> slots = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            slots.add(SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET));
+        }
+
+        CombinedStorage<StringVariant, SingleVariantStorage<StringVariant>> inventory = new CombinedStorage<>(slots);
+        TestStorageUtil.insert(inventory, world, UNIT_BUCKET);
+        StorageStatistics<StringVariant> statistics = new StorageStatistics<>(inventory);
+
+        assertEquals(3, statistics.getSlotCount());
+        assertEquals(1, statistics.getNonEmptySlotCount());
+        assertEquals(UNIT_BUCKET, statistics.getAmount(world));
+        assertEquals(1, statistics.getComparatorOutput());
+
+        // Committed changes are counted.
+        TestStorageUtil.extract(inventory, world, UNIT_BUCKET);
+        assertEquals(0, statistics.getComparatorOutput());
+        TestStorageUtil.insert(inventory, hello, 15 * UNIT_BUCKET);
+        assertEquals(15 * UNIT_BUCKET, statistics.getAmount(hello));
+        assertEquals(0, statistics.getAmount(world));
+        assertEquals(15 * UNIT_BUCKET, statistics.getTotalAmount());
+        assertEquals(2, statistics.getNonEmptySlotCount());
+        assertEquals(0.5, statistics.getFillRatio(), 1e-6);
+        assertEquals(8, statistics.getComparatorOutput());
+
+        // Rolled back changes are not.
+        try (Transaction transaction = Transaction.openOuter()) {
+            inventory.insert(world, 5 * UNIT_BUCKET, transaction);
+            inventory.extract(hello, 15 * UNIT_BUCKET, transaction);
+        }
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            try (Transaction nested = transaction.openNested()) {
+                inventory.extract(hello, 3 * UNIT_BUCKET, nested);
+            }
+
+            inventory.insert(world, 2 * UNIT_BUCKET, transaction);
+            transaction.commit();
+        }
+
+        assertEquals(15 * UNIT_BUCKET, statistics.getAmount(hello));
+        assertEquals(2 * UNIT_BUCKET, statistics.getAmount(world));
+        assertEquals(3, statistics.getNonEmptySlotCount());
+        assertEquals(17 * UNIT_BUCKET, statistics.getTotalAmount());
+
+        // Direct modifications need a recomputation.
+        slots.get(2).amount = 10 * UNIT_BUCKET;
+        assertEquals(2 * UNIT_BUCKET, statistics.getAmount(world));
+        statistics.recompute();
+        assertEquals(10 * UNIT_BUCKET, statistics.getAmount(world));
+        assertEquals(2.5 / 3, statistics.getFillRatio(), 1e-6);
+        assertEquals(12, statistics.getComparatorOutput());
+    }
+
+    @Test
+    public void testArraySlottedStorage() {
+        StringVariant hello = StringVariant.of(StringConstants.HELLO);
+        StringVariant world = StringVariant.of(StringConstants.WORLD);
+        ArrayStringStorage storage = ArrayStringStorage.withFixedCapacity(3, 10L * UNIT_BUCKET);
+
+        // Insertions fill the slots in order, like a combined storage.
+        assertEquals(15 * UNIT_BUCKET, TestStorageUtil.insert(storage, hello, 15 * UNIT_BUCKET));
+        assertEquals(UNIT_BUCKET, TestStorageUtil.insert(storage, world, UNIT_BUCKET));
+        assertEquals(hello, storage.getSlot(1).getResource());
+        assertEquals(5 * UNIT_BUCKET, storage.getSlot(1).getAmount());
+        assertEquals(world, storage.getSlot(2).getResource());
+        assertEquals(9 * UNIT_BUCKET, TestStorageUtil.insert(storage, world, 10 * UNIT_BUCKET));
+        assertThrows(IndexOutOfBoundsException.class, () -> storage.getSlot(3));
+
+        // Nested modifications of the same slots are rolled back to the right contents.
+        long version = storage.getVersion();
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            try (Transaction nested = transaction.openNested()) {
+                assertEquals(15 * UNIT_BUCKET, storage.extract(hello, 20 * UNIT_BUCKET, nested));
+                assertEquals(UNIT_BUCKET, storage.getSlot(0).insert(world, UNIT_BUCKET, nested));
+                nested.commit();
+            }
+
+            try (Transaction nested = transaction.openNested()) {
+                assertEquals(UNIT_BUCKET, storage.getSlot(0).extract(world, UNIT_BUCKET, nested));
+            }
+
+            assertEquals(world, storage.getSlot(0).getResource());
+            assertTrue(storage.getSlot(1).isResourceBlank());
+        }
+
+        assertEquals(hello, storage.getSlot(0).getResource());
+        assertEquals(10 * UNIT_BUCKET, storage.getSlot(0).getAmount());
+        assertEquals(hello, storage.getSlot(1).getResource());
+        assertEquals(5 * UNIT_BUCKET, storage.getSlot(1).getAmount());
+        assertEquals(version, storage.getVersion());
+
+        // Committed changes are kept, change the version and are seen by the statistics.
+        StorageStatistics<StringVariant> statistics = new StorageStatistics<>(storage);
+        assertEquals(5 * UNIT_BUCKET, TestStorageUtil.extract(storage.getSlot(1), hello, 10 * UNIT_BUCKET));
+        assertTrue(storage.getSlot(1).isResourceBlank());
+        assertNotEquals(version, storage.getVersion());
+        assertEquals(10 * UNIT_BUCKET, statistics.getAmount(hello));
+        assertEquals(10 * UNIT_BUCKET, statistics.getAmount(world));
+        assertEquals(2, statistics.getNonEmptySlotCount());
+    }
 }
@@ -0,0 +1,535 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.test.transfer.unittests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.shailist.hytale.api.transfer.v1.storage.StorageUtil;
+import com.shailist.hytale.api.transfer.v1.storage.StorageView;
+import com.shailist.hytale.api.transfer.v1.storage.base.AtomicFixedVariantStorage;
+import com.shailist.hytale.api.transfer.v1.storage.base.BufferSwapCoordinator;
+import com.shailist.hytale.api.transfer.v1.storage.base.CombinedSlottedStorage;
+import com.shailist.hytale.api.transfer.v1.storage.base.ConcurrentStorage;
+import com.shailist.hytale.api.transfer.v1.storage.base.DoubleBufferedStorage;
+import com.shailist.hytale.api.transfer.v1.storage.base.PublishedResourceAmount;
+import com.shailist.hytale.api.transfer.v1.storage.base.ResourceAmount;
+import com.shailist.hytale.api.transfer.v1.storage.base.SingleVariantStorage;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionConflictException;
+import com.shailist.hytale.test.transfer.unittests.utils.SingleStringStorage;
+import com.shailist.hytale.test.transfer.unittests.utils.StringVariant;
+import org.junit.jupiter.api.Test;
+
+import static com.shailist.hytale.test.transfer.unittests.utils.StringConstants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentStorageTests {
+    /**
+     * Move resources in both directions between two concurrent storages from several threads,
+     * and make sure that nothing is lost or duplicated, and that the threads don't deadlock.
+     */
+    @Test
+    public void testParallelMovesInBothDirections() throws Exception {
+        int threads = 4;
+        int movesPerThread = 500;
+        StringVariant hello = StringVariant.of(HELLO);
+        SingleVariantStorage<StringVariant> firstBacking = SingleStringStorage.withFixedCapacity(1_000L * UNIT_BUCKET);
+        SingleVariantStorage<StringVariant> secondBacking = SingleStringStorage.withFixedCapacity(1_000L * UNIT_BUCKET);
+        ConcurrentStorage<StringVariant> first = ConcurrentStorage.of(firstBacking);
+        ConcurrentStorage<StringVariant> second = ConcurrentStorage.of(secondBacking);
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            first.insert(hello, 100L * UNIT_BUCKET, transaction);
+            second.insert(hello, 100L * UNIT_BUCKET, transaction);
+            transaction.commit();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                // Half of the threads move in each direction, and half of those lock both storages up front.
+                ConcurrentStorage<StringVariant> from = i % 2 == 0 ? first : second;
+                ConcurrentStorage<StringVariant> to = i % 2 == 0 ? second : first;
+                boolean lockUpFront = i % 4 < 2;
+
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < movesPerThread; j++) {
+                        Transaction.callWithRetries(Integer.MAX_VALUE, transaction -> {
+                            if (lockUpFront) {
+                                ConcurrentStorage.lockAll(transaction, from, to);
+                            }
+
+                            long moved = StorageUtil.move(from, to, resource -> true, UNIT_BUCKET, transaction);
+                            transaction.commit();
+                            return moved;
+                        });
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(200L * UNIT_BUCKET, firstBacking.amount + secondBacking.amount);
+    }
+
+    /**
+     * Make sure that a lock that comes before a held lock is not waited for.
+     */
+    @Test
+    public void testOutOfOrderLockConflicts() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        ConcurrentStorage<StringVariant> first = ConcurrentStorage.of(SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET));
+        ConcurrentStorage<StringVariant> second = ConcurrentStorage.of(SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET));
+        CountDownLatch firstLocked = new CountDownLatch(1);
+        CountDownLatch conflictChecked = new CountDownLatch(1);
+        ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<?> holder = otherThread.submit(() -> {
+                try (Transaction transaction = Transaction.openOuter()) {
+                    first.insert(hello, UNIT_BUCKET, transaction);
+                    firstLocked.countDown();
+                    conflictChecked.await();
+                    transaction.commit();
+                }
+
+                return null;
+            });
+
+            firstLocked.await();
+
+            try (Transaction transaction = Transaction.openOuter()) {
+                second.insert(hello, UNIT_BUCKET, transaction);
+                // The first storage comes before the second one, so waiting for it could deadlock.
+                assertThrows(TransactionConflictException.class, () -> first.insert(hello, UNIT_BUCKET, transaction));
+            } finally {
+                conflictChecked.countDown();
+            }
+
+            holder.get();
+        } finally {
+            otherThread.shutdown();
+        }
+
+        // The lock was released when the other transaction was closed.
+        try (Transaction transaction = Transaction.openOuter()) {
+            assertEquals(UNIT_BUCKET, first.extract(hello, 10L * UNIT_BUCKET, transaction));
+            transaction.commit();
+        }
+    }
+
+    /**
+     * Make sure that iteration locks the storage for the transaction, and that versions are not read during a transaction of another thread.
+     */
+    @Test
+    public void testIterationAndVersionLock() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        SingleVariantStorage<StringVariant> backing = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        ConcurrentStorage<StringVariant> storage = ConcurrentStorage.of(backing);
+        CountDownLatch iterated = new CountDownLatch(1);
+        CountDownLatch versionRequested = new CountDownLatch(1);
+        ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Long> version = otherThread.submit(() -> {
+                iterated.await();
+                versionRequested.countDown();
+                return storage.getVersion();
+            });
+
+            try (Transaction transaction = Transaction.openOuter()) {
+                assertTrue(storage.iterator().hasNext());
+                iterated.countDown();
+                versionRequested.await();
+                // The other thread waits for the stripe, which iteration acquired for this transaction.
+                Thread.sleep(50);
+                assertFalse(version.isDone());
+                storage.insert(hello, UNIT_BUCKET, transaction);
+                transaction.commit();
+            }
+
+            assertEquals((Long) backing.getVersion(), version.get());
+        } finally {
+            otherThread.shutdown();
+        }
+
+        assertThrows(IllegalStateException.class, () -> {
+            try (Transaction transaction = Transaction.openOuter()) {
+                storage.getVersion();
+            }
+        });
+    }
+
+    /**
+     * Capture snapshots of a concurrent storage while another thread modifies it, and make sure that they never show a transaction in progress.
+     */
+    @Test
+    public void testConcurrentSnapshots() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        SingleVariantStorage<StringVariant> backing = SingleStringStorage.withFixedCapacity(100L * UNIT_BUCKET);
+        ConcurrentStorage<StringVariant> storage = ConcurrentStorage.of(backing);
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            storage.insert(hello, 100L * UNIT_BUCKET, transaction);
+            transaction.commit();
+        }
+
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<?> writes = writer.submit(() -> {
+                while (!done.get()) {
+                    // The amount is only lower in the middle of the transaction.
+                    try (Transaction transaction = Transaction.openOuter()) {
+                        assertEquals(UNIT_BUCKET, storage.extract(hello, UNIT_BUCKET, transaction));
+                        Thread.yield();
+                        assertEquals(UNIT_BUCKET, storage.insert(hello, UNIT_BUCKET, transaction));
+                        transaction.commit();
+                    }
+                }
+            });
+
+            for (int i = 0; i < 2_000; i++) {
+                assertEquals(100L * UNIT_BUCKET, storage.captureSnapshot().getAmount());
+            }
+
+            done.set(true);
+            writes.get();
+        } finally {
+            done.set(true);
+            writer.shutdown();
+        }
+    }
+
+    /**
+     * Make sure that the reservations of an atomic storage follow the transactions.
+     */
+    @Test
+    public void testAtomicStorageReservations() {
+        AtomicFixedVariantStorage<StringVariant> storage = atomicHelloStorage(10L * UNIT_BUCKET);
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            assertEquals(5L * UNIT_BUCKET, storage.insert(5L * UNIT_BUCKET, transaction));
+            // Insertions only become available once the outer transaction is committed.
+            assertEquals(0L, storage.extract(UNIT_BUCKET, transaction));
+            assertEquals(5L * UNIT_BUCKET, storage.insert(6L * UNIT_BUCKET, transaction));
+            transaction.commit();
+        }
+
+        assertEquals(10L * UNIT_BUCKET, storage.getAmount());
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            try (Transaction nested = transaction.openNested()) {
+                assertEquals(4L * UNIT_BUCKET, storage.extract(4L * UNIT_BUCKET, nested));
+                assertEquals(6L * UNIT_BUCKET, storage.getAmount());
+                // Aborted: the extracted amount is available again.
+            }
+
+            assertEquals(10L * UNIT_BUCKET, storage.getAmount());
+
+            try (Transaction nested = transaction.openNested()) {
+                storage.extract(3L * UNIT_BUCKET, nested);
+                nested.commit();
+            }
+
+            // The extraction was kept by the parent, but it is aborted too.
+            assertEquals(7L * UNIT_BUCKET, storage.getAmount());
+        }
+
+        assertEquals(10L * UNIT_BUCKET, storage.getAmount());
+        // The aborted extractions did not free any space.
+        assertEquals(0L, StorageUtil.simulateInsert(storage, StringVariant.of(HELLO), UNIT_BUCKET, null));
+    }
+
+    /**
+     * Insert and extract from several threads at once, and make sure that the committed operations add up.
+     */
+    @Test
+    public void testAtomicStorageParallelTransfers() throws Exception {
+        int threads = 4;
+        int iterations = 2_000;
+        long capacity = 50L * UNIT_BUCKET;
+        AtomicFixedVariantStorage<StringVariant> storage = atomicHelloStorage(capacity);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    long committedChange = 0;
+
+                    for (int j = 0; j < iterations; j++) {
+                        try (Transaction transaction = Transaction.openOuter()) {
+                            long change = storage.insert(3L * UNIT_BUCKET, transaction);
+
+                            try (Transaction nested = transaction.openNested()) {
+                                change -= storage.extract(2L * UNIT_BUCKET, nested);
+                                nested.commit();
+                            }
+
+                            if (j % 3 != 0) {
+                                transaction.commit();
+                                committedChange += change;
+                            }
+                        }
+                    }
+
+                    return committedChange;
+                }));
+            }
+
+            long expectedAmount = 0;
+
+            for (Future<Long> future : futures) {
+                expectedAmount += future.get();
+            }
+
+            assertEquals(expectedAmount, storage.getAmount());
+            assertTrue(storage.getAmount() <= capacity);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Read the committed contents of a storage from another thread while it is modified,
+     * and make sure that only consistent, committed pairs are observed.
+     */
+    @Test
+    public void testCommittedContents() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        SingleVariantStorage<StringVariant> storage = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        PublishedResourceAmount<StringVariant> contents = storage.getCommittedContents();
+        assertEquals(new ResourceAmount<>(StringVariant.blank(), 0L), contents.get());
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            storage.insert(hello, 2L * UNIT_BUCKET, transaction);
+            // Not committed yet.
+            assertEquals(0L, contents.getAmount());
+            transaction.commit();
+        }
+
+        assertEquals(new ResourceAmount<>(hello, 2L * UNIT_BUCKET), contents.get());
+        assertEquals(1L, contents.getVersion());
+
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<Long> reads = reader.submit(() -> {
+                long count = 0;
+
+                while (!done.get()) {
+                    ResourceAmount<StringVariant> read = contents.get();
+
+                    // Committed states are either empty or 2 buckets of hello: anything else is torn or uncommitted.
+                    if (read.resource().isBlank() ? read.amount() != 0 : read.amount() != 2L * UNIT_BUCKET) {
+                        throw new AssertionError("Inconsistent read: " + read);
+                    }
+
+                    count++;
+                }
+
+                return count;
+            });
+
+            for (int i = 0; i < 20_000; i++) {
+                try (Transaction transaction = Transaction.openOuter()) {
+                    // Aborted changes are never published.
+                    try (Transaction nested = transaction.openNested()) {
+                        storage.insert(hello, 5L * UNIT_BUCKET, nested);
+                    }
+
+                    if (storage.amount == 0) {
+                        storage.insert(hello, 2L * UNIT_BUCKET, transaction);
+                    } else {
+                        storage.extract(hello, 2L * UNIT_BUCKET, transaction);
+                    }
+
+                    transaction.commit();
+                }
+            }
+
+            done.set(true);
+            assertTrue(reads.get() > 0);
+        } finally {
+            done.set(true);
+            reader.shutdown();
+        }
+
+        assertEquals(new ResourceAmount<>(hello, 2L * UNIT_BUCKET), contents.get());
+        assertEquals(20_001L, contents.getVersion());
+    }
+
+    /**
+     * Move resources between double-buffered storages every tick, while another thread reads the front buffers,
+     * and make sure that the front buffers only change at the swaps.
+     */
+    @Test
+    public void testDoubleBufferedStorages() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        int ticks = 2_000;
+        BufferSwapCoordinator coordinator = new BufferSwapCoordinator();
+        SingleVariantStorage<StringVariant> firstBacking = SingleStringStorage.withFixedCapacity(ticks * UNIT_BUCKET);
+        DoubleBufferedStorage<StringVariant> first = coordinator.create(firstBacking);
+        DoubleBufferedStorage<StringVariant> second = coordinator.create(SingleStringStorage.withFixedCapacity(ticks * UNIT_BUCKET));
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            first.insert(hello, ticks * UNIT_BUCKET, transaction);
+            transaction.commit();
+        }
+
+        // Not swapped yet: the reads of the storage are served from the front buffer too.
+        long version = first.getVersion();
+        assertEquals(0L, first.getFront().getAmount(hello));
+        assertFalse(first.nonEmptyIterator().hasNext());
+        assertEquals(first.getFront().snapshot(), first.captureSnapshot());
+        coordinator.swap();
+        assertEquals(ticks * UNIT_BUCKET, first.getFront().getAmount(hello));
+        assertEquals(ticks * UNIT_BUCKET, first.iterator().next().getAmount());
+        assertTrue(first.getVersion() != version);
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicLong consistentReadCount = new AtomicLong();
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<?> consistentReads = reader.submit(() -> {
+                while (!done.get()) {
+                    DoubleBufferedStorage.Front<StringVariant> firstFront = first.getFront();
+                    DoubleBufferedStorage.Front<StringVariant> secondFront = second.getFront();
+
+                    if (firstFront.generation() == secondFront.generation()) {
+                        // Front buffers of the same generation never show a move in progress.
+                        assertEquals(ticks * UNIT_BUCKET, firstFront.getAmount(hello) + secondFront.getAmount(hello));
+                        assertEquals(firstFront.generation() - 1, secondFront.getAmount(hello) / UNIT_BUCKET);
+                        consistentReadCount.incrementAndGet();
+                    }
+                }
+            });
+
+            for (int i = 0; i < ticks; i++) {
+                long moved = StorageUtil.move(first, second, resource -> true, UNIT_BUCKET, null);
+                assertEquals(UNIT_BUCKET, moved);
+                // Reads during the tick still see the previous tick.
+                assertEquals(i * UNIT_BUCKET, second.getFront().getAmount(hello));
+                coordinator.swap();
+            }
+
+            // The reader may not have been scheduled during the ticks, but it sees the last swap eventually.
+            while (consistentReadCount.get() == 0 && !consistentReads.isDone()) {
+                Thread.onSpinWait();
+            }
+
+            done.set(true);
+            consistentReads.get();
+            assertTrue(consistentReadCount.get() > 0);
+        } finally {
+            done.set(true);
+            reader.shutdown();
+        }
+
+        assertEquals(ticks + 1L, coordinator.getGeneration());
+        assertEquals(0L, firstBacking.amount);
+        assertEquals(ticks * UNIT_BUCKET, second.getFront().getAmount(hello));
+    }
+
+    /**
+     * Make sure that the views of a double-buffered storage only read the front buffer,
+     * and extract from the slot of the back buffer with the same index.
+     */
+    @Test
+    public void testDoubleBufferedViews() throws Exception {
+        StringVariant hello = StringVariant.of(HELLO);
+        StringVariant world = StringVariant.of(WORLD);
+        SingleVariantStorage<StringVariant> helloSlot = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        SingleVariantStorage<StringVariant> worldSlot = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        CombinedSlottedStorage<StringVariant, SingleVariantStorage<StringVariant>> backBuffer = new CombinedSlottedStorage<>(List.of(helloSlot, worldSlot));
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            helloSlot.insert(hello, 5L * UNIT_BUCKET, transaction);
+            worldSlot.insert(world, 3L * UNIT_BUCKET, transaction);
+            transaction.commit();
+        }
+
+        DoubleBufferedStorage<StringVariant> storage = new DoubleBufferedStorage<>(backBuffer);
+
+        // During the tick, the world slot is emptied, and the hello slot receives world instead.
+        try (Transaction transaction = Transaction.openOuter()) {
+            assertEquals(3L * UNIT_BUCKET, worldSlot.extract(world, 10L * UNIT_BUCKET, transaction));
+            assertEquals(5L * UNIT_BUCKET, helloSlot.extract(hello, 10L * UNIT_BUCKET, transaction));
+            assertEquals(UNIT_BUCKET, helloSlot.insert(world, UNIT_BUCKET, transaction));
+            transaction.commit();
+        }
+
+        // Other threads see the previous tick.
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        List<StorageView<StringVariant>> views;
+
+        try {
+            views = reader.submit(() -> {
+                List<StorageView<StringVariant>> readViews = new ArrayList<>();
+                storage.iterator().forEachRemaining(readViews::add);
+                return readViews;
+            }).get();
+        } finally {
+            reader.shutdown();
+        }
+
+        assertEquals(2, views.size());
+        assertEquals(hello, views.get(0).getResource());
+        assertEquals(5L * UNIT_BUCKET, views.get(0).getAmount());
+        assertEquals(5L * UNIT_BUCKET, views.get(0).getCapacity());
+        assertEquals(world, views.get(1).getResource());
+
+        // Extractions on the tick thread go to the slot with the same index.
+        try (Transaction transaction = Transaction.openOuter()) {
+            assertEquals(0L, views.get(1).extract(world, UNIT_BUCKET, transaction));
+            assertEquals(0L, views.get(0).extract(hello, UNIT_BUCKET, transaction));
+            assertEquals(UNIT_BUCKET, views.get(0).extract(world, UNIT_BUCKET, transaction));
+            transaction.commit();
+        }
+
+        assertEquals(0L, helloSlot.amount);
+    }
+
+    private static AtomicFixedVariantStorage<StringVariant> atomicHelloStorage(long capacity) {
+        return new AtomicFixedVariantStorage<>() {
+            @Override
+            protected StringVariant getBlankVariant() {
+                return StringVariant.blank();
+            }
+
+            @Override
+            protected StringVariant getAllowedVariant() {
+                return StringVariant.of(HELLO);
+            }
+
+            @Override
+            public long getCapacity() {
+                return capacity;
+            }
+        };
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.test.transfer.unittests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.shailist.hytale.api.transfer.v1.storage.base.SingleVariantStorage;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.TransactionConflictException;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalLong;
+import com.shailist.hytale.test.transfer.unittests.utils.SingleStringStorage;
+import com.shailist.hytale.test.transfer.unittests.utils.StringVariant;
+import org.junit.jupiter.api.Test;
+
+import static com.shailist.hytale.test.transfer.unittests.utils.StringConstants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks the conflict detection of the optimistic concurrency mode.
+ * These tests only run when the JVM is started with {@code -Dhytale.transfer.transaction.concurrency=optimistic}.
+ */
+public class OptimisticTransactionTests {
+    @Test
+    public void testModifyingOwnedParticipantConflicts() throws Exception {
+        assumeOptimistic();
+        SingleVariantStorage<StringVariant> storage = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        StringVariant hello = StringVariant.of(HELLO);
+        ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            storage.insert(hello, UNIT_BUCKET, transaction);
+
+            // The storage is owned by the open transaction of this thread until it closes.
+            otherThread.submit(() -> {
+                try (Transaction other = Transaction.openOuter()) {
+                    assertThrows(TransactionConflictException.class, () -> storage.insert(hello, UNIT_BUCKET, other));
+                }
+            }).get();
+
+            transaction.commit();
+        } finally {
+            otherThread.shutdown();
+        }
+
+        assertEquals(UNIT_BUCKET, storage.amount);
+
+        // Closing the transaction released the storage.
+        try (Transaction transaction = Transaction.openOuter()) {
+            storage.extract(hello, UNIT_BUCKET, transaction);
+            transaction.commit();
+        }
+
+        assertEquals(0L, storage.amount);
+    }
+
+    @Test
+    public void testStaleReadFailsCommit() throws Exception {
+        assumeOptimistic();
+        TransactionalLong counter = new TransactionalLong();
+        ExecutorService otherThread = Executors.newSingleThreadExecutor();
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            counter.recordRead(transaction);
+            long value = counter.getValue();
+
+            // Another thread modifies the counter after it was read, but before it is written.
+            otherThread.submit(() -> increment(counter)).get();
+
+            counter.assignValue(value + 1, transaction);
+            assertThrows(TransactionConflictException.class, transaction::commit);
+        } finally {
+            otherThread.shutdown();
+        }
+
+        // The conflicting transaction was aborted, so only the increment of the other thread is visible.
+        assertEquals(1L, counter.getValue());
+    }
+
+    @Test
+    public void testCallWithRetries() throws Exception {
+        assumeOptimistic();
+        TransactionalLong counter = new TransactionalLong();
+        ExecutorService otherThread = Executors.newSingleThreadExecutor();
+        int[] attempts = new int[1];
+
+        try {
+            long result = Transaction.callWithRetries(3, transaction -> {
+                counter.recordRead(transaction);
+                long value = counter.getValue();
+
+                if (++attempts[0] == 1) {
+                    // Only interfere with the first attempt.
+                    try {
+                        otherThread.submit(() -> increment(counter)).get();
+                    } catch (Exception exception) {
+                        throw new AssertionError(exception);
+                    }
+                }
+
+                counter.assignValue(value + 1, transaction);
+                transaction.commit();
+                return value + 1;
+            });
+
+            assertEquals(2L, result);
+        } finally {
+            otherThread.shutdown();
+        }
+
+        assertEquals(2, attempts[0]);
+        assertEquals(2L, counter.getValue());
+    }
+
+    @Test
+    public void testConcurrentIncrementsAreNotLost() throws Exception {
+        assumeOptimistic();
+        int threads = 4;
+        int incrementsPerThread = 1_000;
+        TransactionalLong shared = new TransactionalLong();
+        TransactionalLong[] perThread = new TransactionalLong[threads];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                TransactionalLong own = perThread[i] = new TransactionalLong();
+
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < incrementsPerThread; j++) {
+                        Transaction.callWithRetries(Integer.MAX_VALUE, transaction -> {
+                            // The per-thread counters never conflict, only the shared one does.
+                            try (Transaction nested = transaction.openNested()) {
+                                own.assignValue(own.getValue() + 1, nested);
+                                nested.commit();
+                            }
+
+                            incrementIn(shared, transaction);
+                            transaction.commit();
+                            return null;
+                        });
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals((long) threads * incrementsPerThread, shared.getValue());
+
+        for (TransactionalLong own : perThread) {
+            assertEquals(incrementsPerThread, own.getValue());
+        }
+    }
+
+    private static void increment(TransactionalLong counter) {
+        try (Transaction transaction = Transaction.openOuter()) {
+            incrementIn(counter, transaction);
+            transaction.commit();
+        }
+    }
+
+    private static void incrementIn(TransactionalLong counter, Transaction transaction) {
+        counter.recordRead(transaction);
+        counter.assignValue(counter.getValue() + 1, transaction);
+    }
+
+    private static void assumeOptimistic() {
+        assumeTrue(Transaction.getConcurrency() == Transaction.Concurrency.OPTIMISTIC);
+    }
+}
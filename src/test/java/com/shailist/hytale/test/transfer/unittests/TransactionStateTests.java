@@ -19,12 +19,19 @@
 
 package com.shailist.hytale.test.transfer.unittests;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalValue;
 import org.junit.jupiter.api.Test;
 
+import com.shailist.hytale.api.transfer.v1.transaction.DetachedTransaction;
 import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 class TransactionStateTests {
     private int callbacksInvoked = 0;
@@ -258,4 +265,80 @@ class TransactionStateTests {
 
         assertEquals("World", str.getValue());
     }
+
+    @Test
+    public void testDetachedTransactionContinuesOnAnotherThread() throws Exception {
+        var str = new TransactionalValue<String>("Hello");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            DetachedTransaction detached;
+            Transaction detachedTransaction;
+
+            try (Transaction transaction = Transaction.openOuter()) {
+                str.assignValue("World", transaction);
+
+                try (Transaction nested = transaction.openNested()) {
+                    assertThrows(IllegalStateException.class, nested::detach);
+                    assertThrows(IllegalStateException.class, transaction::detach);
+                }
+
+                transaction.addOuterCloseCallback(result -> str.getValue());
+                detached = transaction.detach();
+                detachedTransaction = transaction;
+                assertFalse(Transaction.isOpen());
+                // Closing the detached transaction at the end of this block must not abort it.
+            }
+
+            // The thread that detached the transaction can open new transactions right away.
+            try (Transaction transaction = Transaction.openOuter()) {
+                assertThrows(IllegalStateException.class, detached::attach);
+            }
+
+            String finalValue = executor.submit(() -> {
+                try (Transaction transaction = detached.attach()) {
+                    assertSame(detachedTransaction, transaction);
+                    assertEquals("World", str.getValue());
+
+                    try (Transaction nested = transaction.openNested()) {
+                        str.assignValue("Again", nested);
+                        nested.commit();
+                    }
+
+                    transaction.commit();
+                }
+
+                assertFalse(Transaction.isOpen());
+                return str.getValue();
+            }).get();
+
+            assertEquals("Again", finalValue);
+            assertThrows(IllegalStateException.class, detached::attach);
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals("Again", str.getValue());
+    }
+
+    @Test
+    public void testDetachedTransactionCanBeAbortedAfterAttaching() {
+        var str = new TransactionalValue<String>("Hello");
+        DetachedTransaction detached;
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            str.assignValue("World", transaction);
+            detached = transaction.detach();
+        }
+
+        assertEquals("World", str.getValue());
+
+        // Attaching back to the same thread is allowed too.
+        try (Transaction transaction = detached.attach()) {
+            assertEquals(Transaction.Lifecycle.OPEN, Transaction.getLifecycle());
+        }
+
+        assertEquals("Hello", str.getValue());
+        assertFalse(Transaction.isOpen());
+    }
 }
@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.test.transfer.unittests;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalBitSet;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalBoolean;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalInt;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalList;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalLong;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalLongArray;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalQueue;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalMap;
+import com.shailist.hytale.api.transfer.v1.transaction.types.TransactionalSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TransactionalTypesTests {
+    @Test
+    public void testListAbortRevertsEveryOperation() {
+        var list = new TransactionalList<>(new ArrayList<>(List.of("a", "b", "c")));
+
+        try (var transaction = Transaction.openOuter()) {
+            list.add("d", transaction);
+            list.add(0, "z", transaction);
+            list.remove(1, transaction);
+            list.remove("c", transaction);
+            list.set(0, "y", transaction);
+            list.addAll(List.of("e", "f"), transaction);
+            list.addAll(1, List.of("g"), transaction);
+            list.removeAll(List.of("e"), transaction);
+            list.retainAll(List.of("y", "g", "f"), transaction);
+            assertEquals(List.of("y", "g", "f"), list.getValue());
+
+            list.clear(transaction);
+            assertEquals(List.of(), list.getValue());
+        }
+
+        assertEquals(List.of("a", "b", "c"), list.getValue());
+    }
+
+    @Test
+    public void testListNestedCommitMergesIntoParent() {
+        var list = new TransactionalList<>(new ArrayList<>(List.of("a")));
+
+        try (var transaction = Transaction.openOuter()) {
+            list.add("b", transaction);
+
+            try (var nested = transaction.openNested()) {
+                list.set(0, "c", nested);
+                list.add("d", nested);
+                nested.commit();
+            }
+
+            try (var nested = transaction.openNested()) {
+                list.remove(0, nested);
+                // Aborted: only this nested transaction is rolled back.
+            }
+
+            assertEquals(List.of("c", "b", "d"), list.getValue());
+        }
+
+        // The outer transaction is aborted, so the merged nested changes must be rolled back too.
+        assertEquals(List.of("a"), list.getValue());
+
+        try (var transaction = Transaction.openOuter()) {
+            try (var nested = transaction.openNested()) {
+                list.add("b", nested);
+                nested.commit();
+            }
+
+            transaction.commit();
+        }
+
+        assertEquals(List.of("a", "b"), list.getValue());
+    }
+
+    @Test
+    public void testListAssignValueIsReverted() {
+        List<String> original = new ArrayList<>(List.of("a"));
+        var list = new TransactionalList<>(original);
+
+        try (var transaction = Transaction.openOuter()) {
+            list.add("b", transaction);
+            list.assignValue(new ArrayList<>(List.of("x")), transaction);
+            list.add("y", transaction);
+            assertEquals(List.of("x", "y"), list.getValue());
+        }
+
+        assertEquals(List.of("a"), list.getValue());
+        assertSame(original, list.getValue());
+    }
+
+    @Test
+    public void testMapAbortRestoresTouchedKeys() {
+        var map = new TransactionalMap<>(new HashMap<>(Map.of("a", 1, "b", 2)));
+        map.getValue().put("n", null);
+
+        try (var transaction = Transaction.openOuter()) {
+            assertEquals(Integer.valueOf(1), map.put("a", 10, transaction));
+            assertNull(map.put("c", 3, transaction));
+            assertEquals(Integer.valueOf(2), map.remove("b", transaction));
+            assertNull(map.remove("missing", transaction));
+            assertNull(map.put("n", 4, transaction));
+            assertEquals(Integer.valueOf(10), map.putIfAbsent("a", 11, transaction));
+            map.putAll(Map.of("d", 5, "a", 12), transaction);
+            assertEquals(Map.of("a", 12, "c", 3, "d", 5, "n", 4), map.getValue());
+
+            map.clear(transaction);
+            assertEquals(Map.of(), map.getValue());
+        }
+
+        var expected = new HashMap<>(Map.of("a", 1, "b", 2));
+        expected.put("n", null);
+        assertEquals(expected, map.getValue());
+    }
+
+    @Test
+    public void testMapNestedCommitMergesIntoParent() {
+        var map = new TransactionalMap<String, Integer>();
+
+        try (var transaction = Transaction.openOuter()) {
+            map.put("a", 1, transaction);
+
+            try (var nested = transaction.openNested()) {
+                map.put("a", 2, nested);
+                map.put("b", 3, nested);
+                nested.commit();
+            }
+
+            try (var nested = transaction.openNested()) {
+                map.remove("a", nested);
+                // Aborted: only this nested transaction is rolled back.
+            }
+
+            assertEquals(Map.of("a", 2, "b", 3), map.getValue());
+        }
+
+        assertEquals(Map.of(), map.getValue());
+
+        try (var transaction = Transaction.openOuter()) {
+            try (var nested = transaction.openNested()) {
+                map.put("a", 1, nested);
+                nested.commit();
+            }
+
+            transaction.commit();
+        }
+
+        assertEquals(Map.of("a", 1), map.getValue());
+    }
+
+    @Test
+    public void testSetAbortRestoresTouchedElements() {
+        var set = new TransactionalSet<>(new HashSet<>(Set.of("a", "b", "c")));
+
+        try (var transaction = Transaction.openOuter()) {
+            assertFalse(set.add("a", transaction));
+            assertTrue(set.add("d", transaction));
+            assertTrue(set.remove("b", transaction));
+            assertFalse(set.remove("missing", transaction));
+            set.addAll(List.of("e", "f"), transaction);
+            set.removeAll(List.of("e"), transaction);
+            set.retainAll(List.of("a", "d", "f"), transaction);
+            assertEquals(Set.of("a", "d", "f"), set.getValue());
+
+            try (var nested = transaction.openNested()) {
+                set.clear(nested);
+                assertEquals(Set.of(), set.getValue());
+                nested.commit();
+            }
+
+            assertEquals(Set.of(), set.getValue());
+        }
+
+        assertEquals(Set.of("a", "b", "c"), set.getValue());
+
+        try (var transaction = Transaction.openOuter()) {
+            set.add("d", transaction);
+            transaction.commit();
+        }
+
+        assertEquals(Set.of("a", "b", "c", "d"), set.getValue());
+    }
+
+    @Test
+    public void testPrimitiveCellsRollBack() {
+        var longCell = new TransactionalLong(Long.MIN_VALUE);
+        var intCell = new TransactionalInt(-1);
+        var booleanCell = new TransactionalBoolean(true);
+
+        try (var transaction = Transaction.openOuter()) {
+            longCell.assignValue(1, transaction);
+
+            try (var nested = transaction.openNested()) {
+                longCell.assignValue(2, nested);
+                intCell.assignValue(Integer.MAX_VALUE, nested);
+                booleanCell.assignValue(false, nested);
+                nested.commit();
+            }
+
+            try (var nested = transaction.openNested()) {
+                longCell.assignValue(3, nested);
+                intCell.assignValue(3, nested);
+                // Aborted: only this nested transaction is rolled back.
+            }
+
+            assertEquals(2, longCell.getValue());
+            assertEquals(Integer.MAX_VALUE, intCell.getValue());
+            assertFalse(booleanCell.getValue());
+        }
+
+        assertEquals(Long.MIN_VALUE, longCell.getValue());
+        assertEquals(-1, intCell.getValue());
+        assertTrue(booleanCell.getValue());
+
+        try (var transaction = Transaction.openOuter()) {
+            intCell.assignValue(Integer.MIN_VALUE, transaction);
+            transaction.commit();
+        }
+
+        assertEquals(Integer.MIN_VALUE, intCell.getValue());
+    }
+
+    @Test
+    public void testLongArrayRestoresModifiedIndices() {
+        var array = new TransactionalLongArray(new long[] { 1, 2, 3, 4 });
+
+        try (var transaction = Transaction.openOuter()) {
+            assertEquals(1, array.set(0, 10, transaction));
+            assertEquals(11, array.add(0, 1, transaction));
+
+            try (var nested = transaction.openNested()) {
+                array.add(1, 5, nested);
+                array.set(0, 20, nested);
+                nested.commit();
+            }
+
+            // Modified again after the nested commit: the value from before the transaction must still be restored.
+            array.set(0, 30, transaction);
+
+            try (var nested = transaction.openNested()) {
+                array.fill(1, 4, 0, nested);
+                array.set(2, 9, nested);
+                assertEquals(0, array.get(1));
+                // Aborted: only this nested transaction is rolled back.
+            }
+
+            assertEquals(30, array.get(0));
+            assertEquals(7, array.get(1));
+            assertEquals(3, array.get(2));
+        }
+
+        for (int i = 0; i < array.length(); i++) {
+            assertEquals(i + 1, array.get(i));
+        }
+
+        try (var transaction = Transaction.openOuter()) {
+            array.fill(0, 2, 5, transaction);
+            transaction.commit();
+        }
+
+        assertEquals(5, array.get(0));
+        assertEquals(5, array.get(1));
+        assertEquals(3, array.get(2));
+    }
+
+    @Test
+    public void testBitSetRestoresFlippedWords() {
+        var bits = new TransactionalBitSet(130);
+
+        try (var transaction = Transaction.openOuter()) {
+            assertTrue(bits.set(0, transaction));
+            assertFalse(bits.set(0, transaction));
+            bits.set(129, true, transaction);
+            transaction.commit();
+        }
+
+        try (var transaction = Transaction.openOuter()) {
+            bits.set(64, transaction);
+
+            try (var nested = transaction.openNested()) {
+                assertTrue(bits.clear(0, nested));
+                bits.set(65, nested);
+                nested.commit();
+            }
+
+            try (var nested = transaction.openNested()) {
+                bits.clear(nested);
+                assertEquals(0, bits.cardinality());
+                // Aborted: only this nested transaction is rolled back.
+            }
+
+            assertFalse(bits.get(0));
+            assertTrue(bits.get(64));
+            assertTrue(bits.get(65));
+            assertEquals(3, bits.cardinality());
+        }
+
+        assertTrue(bits.get(0));
+        assertFalse(bits.get(64));
+        assertFalse(bits.get(65));
+        assertTrue(bits.get(129));
+        assertEquals(2, bits.cardinality());
+    }
+
+    @Test
+    public void testBitSetScans() {
+        var bits = new TransactionalBitSet(130);
+
+        try (var transaction = Transaction.openOuter()) {
+            for (int i = 0; i < 128; i++) {
+                bits.set(i, transaction);
+            }
+
+            bits.set(129, transaction);
+
+            assertEquals(0, bits.nextSetBit(0));
+            assertEquals(129, bits.nextSetBit(128));
+            assertEquals(128, bits.nextClearBit(0));
+            assertEquals(-1, bits.nextClearBit(129));
+            assertEquals(-1, bits.nextSetBit(130));
+
+            bits.clear(70, transaction);
+            assertEquals(70, bits.nextClearBit(3));
+            assertEquals(71, bits.nextSetBit(70));
+        }
+
+        assertEquals(-1, bits.nextSetBit(0));
+        assertEquals(0, bits.nextClearBit(0));
+    }
+
+    @Test
+    public void testQueueRollsBackAcrossWrapAndGrowth() {
+        var queue = new TransactionalQueue<String>(4);
+
+        try (var transaction = Transaction.openOuter()) {
+            queue.offer("a", transaction);
+            queue.offer("b", transaction);
+            queue.offer("c", transaction);
+            transaction.commit();
+        }
+
+        try (var transaction = Transaction.openOuter()) {
+            assertEquals("a", queue.poll(transaction));
+            assertEquals("b", queue.poll(transaction));
+
+            try (var nested = transaction.openNested()) {
+                // Wraps around the end of the ring buffer, then grows it.
+                queue.offer("d", nested);
+                queue.offer("e", nested);
+                queue.offer("f", nested);
+                queue.offer("g", nested);
+                queue.offer("h", nested);
+                nested.commit();
+            }
+
+            try (var nested = transaction.openNested()) {
+                assertEquals("c", queue.poll(nested));
+                queue.clear(nested);
+                assertTrue(queue.isEmpty());
+                // Aborted: only this nested transaction is rolled back.
+            }
+
+            assertEquals(6, queue.size());
+            assertEquals("c", queue.peek());
+            assertEquals("h", queue.get(5));
+        }
+
+        assertEquals(3, queue.size());
+
+        try (var transaction = Transaction.openOuter()) {
+            assertEquals("a", queue.poll(transaction));
+            assertEquals("b", queue.poll(transaction));
+            assertEquals("c", queue.poll(transaction));
+            assertNull(queue.poll(transaction));
+            transaction.commit();
+        }
+
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2025 Shai List and contributors
+ * Licensed under the MIT license. See LICENSE file in the project root for details.
+ */
+
+package com.shailist.hytale.test.transfer.unittests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.shailist.hytale.api.transfer.v1.storage.StorageUtil;
+import com.shailist.hytale.api.transfer.v1.storage.base.SingleVariantStorage;
+import com.shailist.hytale.api.transfer.v1.storage.base.TransferTickExecutor;
+import com.shailist.hytale.api.transfer.v1.transaction.Transaction;
+import com.shailist.hytale.test.transfer.unittests.utils.SingleStringStorage;
+import com.shailist.hytale.test.transfer.unittests.utils.StringVariant;
+import org.junit.jupiter.api.Test;
+
+import static com.shailist.hytale.test.transfer.unittests.utils.StringConstants.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TransferTickExecutorTests {
+    /**
+     * Make sure that tasks that share storages are grouped together, and that the groups are ticked correctly.
+     */
+    @Test
+    public void testGroups() {
+        StringVariant hello = StringVariant.of(HELLO);
+        List<SingleVariantStorage<StringVariant>> storages = new ArrayList<>();
+
+        for (int i = 0; i < 6; i++) {
+            storages.add(SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET));
+        }
+
+        fill(storages.get(0), hello, 10L * UNIT_BUCKET);
+        fill(storages.get(3), hello, 10L * UNIT_BUCKET);
+
+        TransferTickExecutor executor = new TransferTickExecutor(new ForkJoinPool(4));
+        // Chains 0 -> 1 -> 2 and 3 -> 4, added out of order, and an unrelated storage 5.
+        addMove(executor, storages.get(1), storages.get(2));
+        addMove(executor, storages.get(3), storages.get(4));
+        addMove(executor, storages.get(0), storages.get(1));
+        executor.addTask(List.of(storages.get(5)), transaction -> {});
+
+        assertEquals(3, executor.getGroupCount());
+
+        for (int i = 0; i < 5; i++) {
+            executor.tick();
+        }
+
+        assertEquals(4L * UNIT_BUCKET, storages.get(2).amount);
+        assertEquals(5L * UNIT_BUCKET, storages.get(4).amount);
+        assertEquals(10L * UNIT_BUCKET, storages.get(0).amount + storages.get(1).amount + storages.get(2).amount);
+    }
+
+    /**
+     * Make sure that the outer close callbacks are invoked on the ticking thread, in the order of the tasks.
+     */
+    @Test
+    public void testCallbacksAreInvokedInOrderOnTickingThread() {
+        StringVariant hello = StringVariant.of(HELLO);
+        Thread tickingThread = Thread.currentThread();
+        List<String> finalCommits = new ArrayList<>();
+        TransferTickExecutor executor = new TransferTickExecutor(new ForkJoinPool(4));
+        int groups = 16;
+
+        for (int i = 0; i < groups; i++) {
+            String name = "storage " + i;
+            SingleVariantStorage<StringVariant> storage = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET, () -> {
+                assertSame(tickingThread, Thread.currentThread());
+                finalCommits.add(name);
+            });
+
+            executor.addTask(List.of(storage), transaction -> {
+                storage.insert(hello, UNIT_BUCKET, transaction);
+                transaction.addOuterCloseCallback(result -> {
+                    assertSame(tickingThread, Thread.currentThread());
+                    finalCommits.add(name + " " + result);
+                });
+                transaction.commit();
+            });
+        }
+
+        List<String> expected = new ArrayList<>();
+
+        for (int i = 0; i < groups; i++) {
+            // Same order as in a single thread: the storage adds its callback when the transaction is closed,
+            // after the callback of the task, and the callbacks that were added last are invoked first.
+            expected.add("storage " + i);
+            expected.add("storage " + i + " " + Transaction.Result.COMMITTED);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            finalCommits.clear();
+            executor.tick();
+            assertEquals(expected, finalCommits);
+        }
+    }
+
+    /**
+     * Make sure that an exception thrown by a task only aborts its own transaction.
+     */
+    @Test
+    public void testExceptions() {
+        StringVariant hello = StringVariant.of(HELLO);
+        SingleVariantStorage<StringVariant> failing = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        SingleVariantStorage<StringVariant> working = SingleStringStorage.withFixedCapacity(10L * UNIT_BUCKET);
+        TransferTickExecutor executor = new TransferTickExecutor(new ForkJoinPool(2));
+        executor.addTask(List.of(failing), transaction -> {
+            failing.insert(hello, UNIT_BUCKET, transaction);
+            throw new IllegalArgumentException("Task failure");
+        });
+        executor.addTask(List.of(working), transaction -> {
+            working.insert(hello, UNIT_BUCKET, transaction);
+            transaction.commit();
+        });
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, executor::tick);
+        assertEquals("Task failure", exception.getMessage());
+        assertEquals(0L, failing.amount);
+        assertEquals(UNIT_BUCKET, working.amount);
+
+        try (Transaction transaction = Transaction.openOuter()) {
+            assertThrows(IllegalStateException.class, executor::tick);
+        }
+    }
+
+    private static void fill(SingleVariantStorage<StringVariant> storage, StringVariant resource, long amount) {
+        try (Transaction transaction = Transaction.openOuter()) {
+            storage.insert(resource, amount, transaction);
+            transaction.commit();
+        }
+    }
+
+    private static void addMove(TransferTickExecutor executor, SingleVariantStorage<StringVariant> from, SingleVariantStorage<StringVariant> to) {
+        executor.addTask(List.of(from, to), transaction -> {
+            StorageUtil.move(from, to, resource -> true, UNIT_BUCKET, transaction);
+            transaction.commit();
+        });
+    }
+}
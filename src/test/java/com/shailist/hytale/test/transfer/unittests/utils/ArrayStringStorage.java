@@ -0,0 +1,37 @@
+package com.shailist.hytale.test.transfer.unittests.utils;
+
+import com.shailist.hytale.api.transfer.v1.storage.StoragePreconditions;
+import com.shailist.hytale.api.transfer.v1.storage.base.ArraySlottedStorage;
+
+/**
+ * A slotted storage whose slots can each store a single string variant.
+ *
+ * <p>This is a convenient specialization of {@link ArraySlottedStorage} for strings.
+ */
+public abstract class ArrayStringStorage extends ArraySlottedStorage<StringVariant> {
+    /**
+     * Create a string storage whose slots all have the same fixed capacity.
+     *
+     * @param slotCount Number of slots of the string storage. Must be non-negative.
+     * @param capacity Fixed capacity of every slot. Must be non-negative.
+     */
+    public static ArrayStringStorage withFixedCapacity(int slotCount, long capacity) {
+        StoragePreconditions.notNegative(capacity);
+
+        return new ArrayStringStorage(slotCount) {
+            @Override
+            protected long getCapacity(int slot, StringVariant variant) {
+                return capacity;
+            }
+        };
+    }
+
+    protected ArrayStringStorage(int slotCount) {
+        super(slotCount);
+    }
+
+    @Override
+    protected final StringVariant getBlankVariant() {
+        return StringVariant.blank();
+    }
+}